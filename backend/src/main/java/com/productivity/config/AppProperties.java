@@ -9,6 +9,17 @@ public class AppProperties {
 
     private Cookie cookie = new Cookie();
     private Cors cors = new Cors();
+    private UserCache userCache = new UserCache();
+    private TaskCounters taskCounters = new TaskCounters();
+    private Dashboard dashboard = new Dashboard();
+    private HabitLogs habitLogs = new HabitLogs();
+    private StreakRecompute streakRecompute = new StreakRecompute();
+    private Analytics analytics = new Analytics();
+    private TokenRevocation tokenRevocation = new TokenRevocation();
+    private PasswordHashing passwordHashing = new PasswordHashing();
+    private AuthRateLimit authRateLimit = new AuthRateLimit();
+    private Otp otp = new Otp();
+    private EmailIndex emailIndex = new EmailIndex();
 
     public Cors getCors() {
         return cors;
@@ -26,6 +37,94 @@ public class AppProperties {
         this.cookie = cookie;
     }
 
+    public UserCache getUserCache() {
+        return userCache;
+    }
+
+    public void setUserCache(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    public TaskCounters getTaskCounters() {
+        return taskCounters;
+    }
+
+    public void setTaskCounters(TaskCounters taskCounters) {
+        this.taskCounters = taskCounters;
+    }
+
+    public Dashboard getDashboard() {
+        return dashboard;
+    }
+
+    public void setDashboard(Dashboard dashboard) {
+        this.dashboard = dashboard;
+    }
+
+    public HabitLogs getHabitLogs() {
+        return habitLogs;
+    }
+
+    public void setHabitLogs(HabitLogs habitLogs) {
+        this.habitLogs = habitLogs;
+    }
+
+    public StreakRecompute getStreakRecompute() {
+        return streakRecompute;
+    }
+
+    public void setStreakRecompute(StreakRecompute streakRecompute) {
+        this.streakRecompute = streakRecompute;
+    }
+
+    public Analytics getAnalytics() {
+        return analytics;
+    }
+
+    public void setAnalytics(Analytics analytics) {
+        this.analytics = analytics;
+    }
+
+    public TokenRevocation getTokenRevocation() {
+        return tokenRevocation;
+    }
+
+    public void setTokenRevocation(TokenRevocation tokenRevocation) {
+        this.tokenRevocation = tokenRevocation;
+    }
+
+    public PasswordHashing getPasswordHashing() {
+        return passwordHashing;
+    }
+
+    public void setPasswordHashing(PasswordHashing passwordHashing) {
+        this.passwordHashing = passwordHashing;
+    }
+
+    public AuthRateLimit getAuthRateLimit() {
+        return authRateLimit;
+    }
+
+    public void setAuthRateLimit(AuthRateLimit authRateLimit) {
+        this.authRateLimit = authRateLimit;
+    }
+
+    public Otp getOtp() {
+        return otp;
+    }
+
+    public void setOtp(Otp otp) {
+        this.otp = otp;
+    }
+
+    public EmailIndex getEmailIndex() {
+        return emailIndex;
+    }
+
+    public void setEmailIndex(EmailIndex emailIndex) {
+        this.emailIndex = emailIndex;
+    }
+
     public static class Cors {
         private String allowedOrigins = "http://localhost:5173";
         private String allowedMethods = "GET,POST,PUT,DELETE,PATCH,OPTIONS";
@@ -45,4 +144,156 @@ public class AppProperties {
         public boolean isSecure() { return secure; }
         public void setSecure(boolean secure) { this.secure = secure; }
     }
+
+    public static class UserCache {
+        private long ttlSeconds = 60;
+        private long maximumSize = 10_000;
+
+        public long getTtlSeconds() { return ttlSeconds; }
+        public void setTtlSeconds(long ttlSeconds) { this.ttlSeconds = ttlSeconds; }
+        public long getMaximumSize() { return maximumSize; }
+        public void setMaximumSize(long maximumSize) { this.maximumSize = maximumSize; }
+    }
+
+    public static class TaskCounters {
+        private int shards = 4;
+
+        public int getShards() { return shards; }
+        public void setShards(int shards) { this.shards = shards; }
+    }
+
+    public static class Dashboard {
+        private long timeoutMillis = 5000;
+        private long migrationWaitMillis = 1000;
+
+        public long getTimeoutMillis() { return timeoutMillis; }
+        public void setTimeoutMillis(long timeoutMillis) { this.timeoutMillis = timeoutMillis; }
+        public long getMigrationWaitMillis() { return migrationWaitMillis; }
+        public void setMigrationWaitMillis(long migrationWaitMillis) { this.migrationWaitMillis = migrationWaitMillis; }
+    }
+
+    public static class HabitLogs {
+        private boolean migrateOnStartup = false;
+        private int migrationPageSize = 100;
+        private long progressCoalesceMillis = 300;
+
+        public boolean isMigrateOnStartup() { return migrateOnStartup; }
+        public void setMigrateOnStartup(boolean migrateOnStartup) { this.migrateOnStartup = migrateOnStartup; }
+        public int getMigrationPageSize() { return migrationPageSize; }
+        public void setMigrationPageSize(int migrationPageSize) { this.migrationPageSize = migrationPageSize; }
+        public long getProgressCoalesceMillis() { return progressCoalesceMillis; }
+        public void setProgressCoalesceMillis(long progressCoalesceMillis) { this.progressCoalesceMillis = progressCoalesceMillis; }
+    }
+
+    public static class StreakRecompute {
+        private int parallelism = 4;
+        private int pageSize = 100;
+        private int writesPerSecond = 250;
+        private int maxReportedDiffs = 1000;
+
+        public int getParallelism() { return parallelism; }
+        public void setParallelism(int parallelism) { this.parallelism = parallelism; }
+        public int getPageSize() { return pageSize; }
+        public void setPageSize(int pageSize) { this.pageSize = pageSize; }
+        public int getWritesPerSecond() { return writesPerSecond; }
+        public void setWritesPerSecond(int writesPerSecond) { this.writesPerSecond = writesPerSecond; }
+        public int getMaxReportedDiffs() { return maxReportedDiffs; }
+        public void setMaxReportedDiffs(int maxReportedDiffs) { this.maxReportedDiffs = maxReportedDiffs; }
+    }
+
+    public static class Analytics {
+        private long cacheTtlSeconds = 3600;
+        private long cacheMaximumSize = 10_000;
+
+        public long getCacheTtlSeconds() { return cacheTtlSeconds; }
+        public void setCacheTtlSeconds(long cacheTtlSeconds) { this.cacheTtlSeconds = cacheTtlSeconds; }
+        public long getCacheMaximumSize() { return cacheMaximumSize; }
+        public void setCacheMaximumSize(long cacheMaximumSize) { this.cacheMaximumSize = cacheMaximumSize; }
+    }
+
+    public static class TokenRevocation {
+        private int expectedRevocations = 100_000;
+        private double falsePositiveRate = 0.01;
+
+        public int getExpectedRevocations() { return expectedRevocations; }
+        public void setExpectedRevocations(int expectedRevocations) { this.expectedRevocations = expectedRevocations; }
+        public double getFalsePositiveRate() { return falsePositiveRate; }
+        public void setFalsePositiveRate(double falsePositiveRate) { this.falsePositiveRate = falsePositiveRate; }
+    }
+
+    public static class PasswordHashing {
+        private int threads = 0; // 0 = half the available processors
+        private int queueCapacity = 64;
+        private long timeoutMillis = 5000;
+        private long targetMillis = 250;
+        private int minCost = 10;
+        private int maxCost = 14;
+
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = threads; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+        public long getTimeoutMillis() { return timeoutMillis; }
+        public void setTimeoutMillis(long timeoutMillis) { this.timeoutMillis = timeoutMillis; }
+        public long getTargetMillis() { return targetMillis; }
+        public void setTargetMillis(long targetMillis) { this.targetMillis = targetMillis; }
+        public int getMinCost() { return minCost; }
+        public void setMinCost(int minCost) { this.minCost = minCost; }
+        public int getMaxCost() { return maxCost; }
+        public void setMaxCost(int maxCost) { this.maxCost = maxCost; }
+    }
+
+    public static class AuthRateLimit {
+        private int loginWindowSeconds = 900;
+        private int maxLoginAttemptsPerEmail = 5;
+        private int maxLoginAttemptsPerIp = 100;
+        private int lockoutMinutes = 15;
+        private int emailSendWindowSeconds = 3600;
+        private int maxEmailSendsPerEmail = 5;
+        private int maxEmailSendsPerIp = 20;
+        private long maximumTrackedKeys = 100000;
+
+        public int getLoginWindowSeconds() { return loginWindowSeconds; }
+        public void setLoginWindowSeconds(int loginWindowSeconds) { this.loginWindowSeconds = loginWindowSeconds; }
+        public int getMaxLoginAttemptsPerEmail() { return maxLoginAttemptsPerEmail; }
+        public void setMaxLoginAttemptsPerEmail(int maxLoginAttemptsPerEmail) { this.maxLoginAttemptsPerEmail = maxLoginAttemptsPerEmail; }
+        public int getMaxLoginAttemptsPerIp() { return maxLoginAttemptsPerIp; }
+        public void setMaxLoginAttemptsPerIp(int maxLoginAttemptsPerIp) { this.maxLoginAttemptsPerIp = maxLoginAttemptsPerIp; }
+        public int getLockoutMinutes() { return lockoutMinutes; }
+        public void setLockoutMinutes(int lockoutMinutes) { this.lockoutMinutes = lockoutMinutes; }
+        public int getEmailSendWindowSeconds() { return emailSendWindowSeconds; }
+        public void setEmailSendWindowSeconds(int emailSendWindowSeconds) { this.emailSendWindowSeconds = emailSendWindowSeconds; }
+        public int getMaxEmailSendsPerEmail() { return maxEmailSendsPerEmail; }
+        public void setMaxEmailSendsPerEmail(int maxEmailSendsPerEmail) { this.maxEmailSendsPerEmail = maxEmailSendsPerEmail; }
+        public int getMaxEmailSendsPerIp() { return maxEmailSendsPerIp; }
+        public void setMaxEmailSendsPerIp(int maxEmailSendsPerIp) { this.maxEmailSendsPerIp = maxEmailSendsPerIp; }
+        public long getMaximumTrackedKeys() { return maximumTrackedKeys; }
+        public void setMaximumTrackedKeys(long maximumTrackedKeys) { this.maximumTrackedKeys = maximumTrackedKeys; }
+    }
+
+    public static class Otp {
+        private String store = "memory";
+        private int ttlSeconds = 300;
+        private int maxAttempts = 5;
+
+        public String getStore() { return store; }
+        public void setStore(String store) { this.store = store; }
+        public int getTtlSeconds() { return ttlSeconds; }
+        public void setTtlSeconds(int ttlSeconds) { this.ttlSeconds = ttlSeconds; }
+        public int getMaxAttempts() { return maxAttempts; }
+        public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+    }
+
+    public static class EmailIndex {
+        private boolean backfillOnStartup = false;
+        private int backfillPageSize = 100;
+        private boolean legacyLookup = true;
+
+        public boolean isBackfillOnStartup() { return backfillOnStartup; }
+        public void setBackfillOnStartup(boolean backfillOnStartup) { this.backfillOnStartup = backfillOnStartup; }
+        public int getBackfillPageSize() { return backfillPageSize; }
+        public void setBackfillPageSize(int backfillPageSize) { this.backfillPageSize = backfillPageSize; }
+        public boolean isLegacyLookup() { return legacyLookup; }
+        public void setLegacyLookup(boolean legacyLookup) { this.legacyLookup = legacyLookup; }
+    }
 }
@@ -0,0 +1,39 @@
+package com.productivity.controller;
+
+import com.productivity.dto.ApiResponse;
+import com.productivity.dto.StreakRecomputeStatusDTO;
+import com.productivity.exception.ResourceNotFoundException;
+import com.productivity.service.StreakRecomputeJob;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@Tag(name = "Admin", description = "Maintenance jobs (admin role required)")
+public class AdminController {
+
+    private final StreakRecomputeJob streakRecomputeJob;
+
+    public AdminController(StreakRecomputeJob streakRecomputeJob) {
+        this.streakRecomputeJob = streakRecomputeJob;
+    }
+
+    @PostMapping("/jobs/streak-recompute")
+    @Operation(summary = "Recompute every habit's streak fields from its logs (dry run by default)")
+    public ResponseEntity<ApiResponse<StreakRecomputeStatusDTO>> startStreakRecompute(
+            @RequestParam(defaultValue = "true") boolean dryRun) {
+        StreakRecomputeStatusDTO status = streakRecomputeJob.start(dryRun);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(status, "Streak recompute started"));
+    }
+
+    @GetMapping("/jobs/streak-recompute")
+    @Operation(summary = "Progress and diff of the latest streak recompute run")
+    public ResponseEntity<ApiResponse<StreakRecomputeStatusDTO>> getStreakRecompute() {
+        StreakRecomputeStatusDTO status = streakRecomputeJob.getStatus()
+                .orElseThrow(() -> new ResourceNotFoundException("Streak recompute job has not been run"));
+        return ResponseEntity.ok(ApiResponse.success(status));
+    }
+}
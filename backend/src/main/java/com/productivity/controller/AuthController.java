@@ -3,12 +3,16 @@ import com.productivity.config.AppProperties;
 import com.productivity.dto.ApiResponse;
 import com.productivity.dto.UserDTO;
 import com.productivity.model.User;
+import com.productivity.service.AuthRateLimiter;
 import com.productivity.service.JwtService;
 import com.productivity.service.OtpService;
 import com.productivity.service.PasswordService;
+import com.productivity.service.TokenRevocationService;
 import com.productivity.service.UserService;
+import io.jsonwebtoken.Claims;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,24 +41,30 @@ public class AuthController {
     private final JwtService jwtService;
     private final OtpService otpService;
     private final PasswordService passwordService;
+    private final TokenRevocationService tokenRevocationService;
+    private final AuthRateLimiter rateLimiter;
     private final AppProperties appProperties;
 
-    public AuthController(UserService userService, JwtService jwtService, OtpService otpService, PasswordService passwordService, AppProperties appProperties) {
+    public AuthController(UserService userService, JwtService jwtService, OtpService otpService, PasswordService passwordService,
+                          TokenRevocationService tokenRevocationService, AuthRateLimiter rateLimiter, AppProperties appProperties) {
         this.userService = userService;
         this.jwtService = jwtService;
         this.otpService = otpService;
         this.passwordService = passwordService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.rateLimiter = rateLimiter;
         this.appProperties = appProperties;
     }
 
     // ─── Signup ─────────────────────────────────────────────────────────────
     @PostMapping("/signup")
     @Operation(summary = "Step 1: Create account & send OTP")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> signup(@RequestBody Map<String, String> body) 
+    public ResponseEntity<ApiResponse<Map<String, Object>>> signup(@RequestBody Map<String, String> body, HttpServletRequest request) 
             throws ExecutionException, InterruptedException {
         String email = body.get("email") != null ? body.get("email").toLowerCase().trim() : null;
         String password = body.get("password");
         String displayName = body.get("displayName");
+        rateLimiter.acquireEmailSend(email, request.getRemoteAddr());
         
         // Check if user exists
         User existingUser = userService.findByEmail(email);
@@ -72,7 +82,7 @@ public class AuthController {
         
         Map<String, Object> data = new HashMap<>();
         data.put("maskedEmail", maskEmail(email));
-        data.put("expiresInSeconds", 300);
+        data.put("expiresInSeconds", otpService.getTtlSeconds());
         
         return ResponseEntity.ok(ApiResponse.success(data, "Account created. Please verify OTP."));
     }
@@ -80,7 +90,7 @@ public class AuthController {
     // ─── Resend OTP ─────────────────────────────────────────────────────────
     @PostMapping("/resend-otp")
     @Operation(summary = "Resend a new OTP to the user's email")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> resendOtp(@RequestBody Map<String, String> body) 
+    public ResponseEntity<ApiResponse<Map<String, Object>>> resendOtp(@RequestBody Map<String, String> body, HttpServletRequest request) 
             throws ExecutionException, InterruptedException {
         String rawEmail = body.get("email");
         String email = rawEmail != null ? rawEmail.toLowerCase().trim() : null;
@@ -88,6 +98,7 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(ApiResponse.error("Email is required"));
         }
+        rateLimiter.acquireEmailSend(email, request.getRemoteAddr());
 
         User user = userService.findByEmail(email);
         if (user == null) {
@@ -95,7 +106,7 @@ public class AuthController {
             log.warn("Resend OTP requested for non-existent email: {}", email);
             return ResponseEntity.ok(ApiResponse.success(Map.of(
                 "maskedEmail", maskEmail(email),
-                "expiresInSeconds", 300
+                "expiresInSeconds", otpService.getTtlSeconds()
             ), "If account exists, a new code has been sent."));
         }
 
@@ -105,7 +116,7 @@ public class AuthController {
 
         Map<String, Object> data = new HashMap<>();
         data.put("maskedEmail", maskEmail(email));
-        data.put("expiresInSeconds", 300);
+        data.put("expiresInSeconds", otpService.getTtlSeconds());
 
         return ResponseEntity.ok(ApiResponse.success(data, "A fresh verification code has been sent."));
     }
@@ -141,10 +152,13 @@ public class AuthController {
     // ─── Login ──────────────────────────────────────────────────────────────
     @PostMapping("/login")
     @Operation(summary = "Login with email & password")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> login(@RequestBody Map<String, String> body, HttpServletResponse response) 
+    public ResponseEntity<ApiResponse<Map<String, Object>>> login(@RequestBody Map<String, String> body, HttpServletRequest request,
+                                                                  HttpServletResponse response) 
             throws ExecutionException, InterruptedException {
         String email = body.get("email") != null ? body.get("email").toLowerCase().trim() : null;
         String password = body.get("password");
+        // Throttled before any Firestore read or BCrypt check
+        int attempts = rateLimiter.acquireLogin(email, request.getRemoteAddr());
         
         User user = userService.findByEmail(email);
         if (user == null) {
@@ -159,7 +173,12 @@ public class AuthController {
         
         // Check password
         if (!passwordService.checkPassword(password, user.getPasswordHash())) {
-            // TODO: Increment login attempts & lock if > 5
+            if (rateLimiter.isLoginLimitReached(attempts)) {
+                // Persisted only when the limit trips, so other instances and restarts honour the lockout
+                Instant lockedUntil = Instant.now().plus(rateLimiter.getLockoutDuration());
+                userService.lockAccount(user.getUid(), attempts, lockedUntil);
+                log.warn("Account {} locked until {} after {} failed logins", user.getUid(), lockedUntil, attempts);
+            }
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.error("Invalid credentials"));
         }
         
@@ -168,10 +187,32 @@ public class AuthController {
                     .body(ApiResponse.error("Email not verified"));
         }
         
+        rateLimiter.loginSucceeded(email);
         userService.recordLogin(user.getUid());
+        upgradePasswordHash(user, password);
         return generateTokensAndResponse(user, response);
     }
 
+    /**
+     * Re-hashes the password at the current BCrypt cost in the background when the stored hash is older.
+     */
+    private void upgradePasswordHash(User user, String password) {
+        if (!passwordService.needsRehash(user.getPasswordHash())) {
+            return;
+        }
+        String uid = user.getUid();
+        String verifiedHash = user.getPasswordHash();
+        passwordService.rehashAsync(password)
+                .thenCompose(hash -> userService.upgradePasswordHashAsync(uid, verifiedHash, hash))
+                .whenComplete((replaced, ex) -> {
+                    if (ex != null) {
+                        log.debug("Password hash upgrade skipped for user {}: {}", uid, ex.getMessage());
+                    } else if (!replaced) {
+                        log.debug("Password hash upgrade skipped for user {}: password changed meanwhile", uid);
+                    }
+                });
+    }
+
     // ─── Google SignIn ──────────────────────────────────────────────────────
     @PostMapping("/google")
     @Operation(summary = "Login or Signup with Google ID Token")
@@ -195,10 +236,8 @@ public class AuthController {
             User user = userService.findByEmail(email);
             if (user == null) {
                 // Auto-create user for Google Auth
-                // Generate a random impossible password since they login via Google
-                String randomPass = java.util.UUID.randomUUID().toString();
-                String passwordHash = passwordService.hashPassword(randomPass);
-                user = userService.createUser(email, passwordHash, displayName);
+                // No password: an unusable hash that never matches, without spending a BCrypt round
+                user = userService.createUser(email, passwordService.unusableHash(), displayName);
                 
                 // Immediately verify the user since Google did it
                 userService.verifyUser(user.getUid());
@@ -233,11 +272,31 @@ public class AuthController {
             @CookieValue(name = "refresh_token", required = false) String refreshToken,
             HttpServletResponse response) 
             throws ExecutionException, InterruptedException {
-        if (refreshToken == null || !jwtService.isTokenValid(refreshToken)) {
+        Claims claims = jwtService.parse(refreshToken).orElse(null);
+        // Only refresh tokens may be exchanged; ones issued before token types existed carry no type and no role
+        boolean exchangeable = claims != null && (JwtService.isType(claims, JwtService.TYPE_REFRESH)
+                || claims.get(JwtService.TYPE_CLAIM) == null && claims.get("role") == null);
+        if (!exchangeable) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.error("Invalid refresh token"));
         }
+
+        // Tokens issued before rotation families existed carry neither ID; they start a new family
+        String tokenId = claims.getId();
+        String familyId = claims.get(JwtService.FAMILY_CLAIM, String.class);
+        if (tokenId != null && familyId != null) {
+            if (tokenRevocationService.isRevoked(familyId)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.error("Invalid refresh token"));
+            }
+            // Spending the jti is atomic, so of two concurrent replays (on any instance) only one rotates
+            if (!tokenRevocationService.consume(tokenId, claims.getExpiration().toInstant())) {
+                // A rotated token was presented again: assume it leaked and end the whole session family
+                log.warn("Refresh token reuse detected for user {}, revoking family {}", claims.getSubject(), familyId);
+                revokeFamily(familyId);
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.error("Invalid refresh token"));
+            }
+        }
         
-        String uid = jwtService.extractUid(refreshToken);
+        String uid = claims.getSubject();
         User user = userService.getUserModel(uid);
         
         if (user.getLockedUntil() != null && user.getLockedUntil().toDate().toInstant().isAfter(Instant.now())) {
@@ -249,7 +308,9 @@ public class AuthController {
         
         // Refresh token rotation: generate new access AND new refresh token
         String newAccessToken = jwtService.generateAccessToken(uid, user.getRole());
-        String newRefreshToken = jwtService.generateRefreshToken(uid);
+        String newRefreshToken = familyId != null
+                ? jwtService.generateRefreshToken(uid, familyId)
+                : jwtService.generateRefreshToken(uid);
         
         // Set new refresh cookie
         ResponseCookie cookie = ResponseCookie.from("refresh_token", newRefreshToken)
@@ -265,7 +326,7 @@ public class AuthController {
         tokens.put("accessToken", newAccessToken);
         tokens.put("refreshToken", newRefreshToken);
         
-        UserDTO userDTO = userService.getUser(uid);
+        UserDTO userDTO = userService.toDTO(user);
         
         Map<String, Object> data = new HashMap<>();
         data.put("user", userDTO);
@@ -276,7 +337,17 @@ public class AuthController {
     
     // ─── Logout ─────────────────────────────────────────────────────────────
     @PostMapping("/logout")
-    public ResponseEntity<Void> logout(HttpServletResponse response) {
+    public ResponseEntity<Void> logout(
+            @CookieValue(name = "refresh_token", required = false) String refreshToken,
+            HttpServletResponse response) throws ExecutionException, InterruptedException {
+        // End the session family so no token rotated from this one can be used again
+        String familyId = jwtService.parse(refreshToken)
+                .map(claims -> claims.get(JwtService.FAMILY_CLAIM, String.class))
+                .orElse(null);
+        if (familyId != null) {
+            revokeFamily(familyId);
+        }
+
         ResponseCookie cookie = ResponseCookie.from("refresh_token", "")
                 .httpOnly(true)
                 .secure(appProperties.getCookie().isSecure())
@@ -290,18 +361,19 @@ public class AuthController {
     
     // ─── Forgot Password ────────────────────────────────────────────────────
     @PostMapping("/forgot-password")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> forgotPassword(@RequestBody Map<String, String> body) 
+    public ResponseEntity<ApiResponse<Map<String, Object>>> forgotPassword(@RequestBody Map<String, String> body, HttpServletRequest request) 
             throws ExecutionException, InterruptedException {
         String email = body.get("email") != null ? body.get("email").toLowerCase().trim() : null;
+        rateLimiter.acquireEmailSend(email, request.getRemoteAddr());
         User user = userService.findByEmail(email);
         if (user == null) {
             // Don't reveal user existence
-            return ResponseEntity.ok(ApiResponse.success(Map.of("maskedEmail", maskEmail(email), "expiresInSeconds", 300), "If exists, OTP sent"));
+            return ResponseEntity.ok(ApiResponse.success(Map.of("maskedEmail", maskEmail(email), "expiresInSeconds", otpService.getTtlSeconds()), "If exists, OTP sent"));
         }
         
         String otp = otpService.generateOtp(email);
         
-        return ResponseEntity.ok(ApiResponse.success(Map.of("maskedEmail", maskEmail(email), "expiresInSeconds", 300), "OTP sent"));
+        return ResponseEntity.ok(ApiResponse.success(Map.of("maskedEmail", maskEmail(email), "expiresInSeconds", otpService.getTtlSeconds()), "OTP sent"));
     }
     
     // ─── Verify Reset OTP ──────────────────────────────────────────────────
@@ -317,7 +389,7 @@ public class AuthController {
         // Return a temporary reset token (could be a short-lived JWT)
         // For simplicity, we'll just return success and trust the client to call reset immediately with the same OTP? 
         // No, that's insecure. We should generate a reset token.
-        String resetToken = jwtService.generateAccessToken(email, "RESET_SCOPE"); // Using email as subject for reset token
+        String resetToken = jwtService.generateResetToken(email); // Using email as subject for reset token
         
         return ResponseEntity.ok(ApiResponse.success(Map.of("resetToken", resetToken), "OTP verified"));
     }
@@ -330,12 +402,13 @@ public class AuthController {
         String newPassword = body.get("newPassword");
         String resetToken = body.get("resetToken");
         
-        if (!jwtService.isTokenValid(resetToken)) {
+        Claims claims = jwtService.parse(resetToken).orElse(null);
+        if (claims == null || !JwtService.isType(claims, JwtService.TYPE_RESET)) {
              return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.error("Invalid reset token"));
         }
         
         // Verify token subject matches email
-        if (!jwtService.extractUid(resetToken).equals(email)) {
+        if (!claims.getSubject().equals(email)) {
              return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.error("Token mismatch"));
         }
 
@@ -348,6 +421,12 @@ public class AuthController {
     }
 
     // ─── Helper ─────────────────────────────────────────────────────────────
+    private void revokeFamily(String familyId) throws ExecutionException, InterruptedException {
+        // Any token of the family expires at most one refresh lifetime from now
+        Instant familyExpiry = Instant.now().plusMillis(jwtService.getRefreshTokenExpiration());
+        tokenRevocationService.revoke(familyId, TokenRevocationService.KIND_FAMILY, familyExpiry);
+    }
+
     private ResponseEntity<ApiResponse<Map<String, Object>>> generateTokensAndResponse(User user, HttpServletResponse response) {
         String accessToken = jwtService.generateAccessToken(user.getUid(), user.getRole());
         String refreshToken = jwtService.generateRefreshToken(user.getUid());
@@ -1,11 +1,19 @@
 package com.productivity.controller;
 
 import com.productivity.dto.ApiResponse;
+import com.productivity.dto.HabitBatchCompleteDTO;
+import com.productivity.dto.HabitCorrelationDTO;
 import com.productivity.dto.HabitDTO;
+import com.productivity.dto.HabitHeatmapDTO;
+import com.productivity.dto.HabitIntelligenceDTO;
+import com.productivity.dto.HabitIntelligenceSnapshotDTO;
 import com.productivity.dto.HabitLogDTO;
+import com.productivity.dto.HabitProgressDTO;
+import com.productivity.service.FieldSelection;
 import com.productivity.service.HabitService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -13,7 +21,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/habits")
@@ -28,82 +36,169 @@ public class HabitController {
 
     @PostMapping
     @Operation(summary = "Create a new habit")
-    public ResponseEntity<ApiResponse<HabitDTO>> createHabit(
+    public CompletableFuture<ResponseEntity<ApiResponse<HabitDTO>>> createHabit(
             Authentication auth,
-            @Valid @RequestBody HabitDTO habitDTO) throws ExecutionException, InterruptedException {
+            @Valid @RequestBody HabitDTO habitDTO) {
         String userId = (String) auth.getPrincipal();
-        HabitDTO created = habitService.createHabit(userId, habitDTO);
-        return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(created, "Habit created"));
+        return habitService.createHabit(userId, habitDTO).thenApply(created ->
+                ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(created, "Habit created")));
     }
 
     @GetMapping
-    @Operation(summary = "List all habits")
-    public ResponseEntity<ApiResponse<List<HabitDTO>>> getHabits(Authentication auth)
-            throws ExecutionException, InterruptedException {
+    @Operation(summary = "List all habits, optionally limited to a sparse fieldset")
+    public CompletableFuture<ResponseEntity<ApiResponse<List<HabitDTO>>>> getHabits(
+            Authentication auth,
+            @RequestParam(required = false) String fields,
+            HttpServletRequest request) {
         String userId = (String) auth.getPrincipal();
-        List<HabitDTO> habits = habitService.getHabits(userId);
-        return ResponseEntity.ok(ApiResponse.success(habits));
+        FieldSelection selection = FieldSelection.parse(fields, HabitService.HABIT_FIELDS);
+        request.setAttribute(FieldSelection.REQUEST_ATTRIBUTE, selection);
+        return habitService.getHabits(userId, selection).thenApply(habits -> ResponseEntity.ok(ApiResponse.success(habits)));
     }
 
     @GetMapping("/dashboard")
     @Operation(summary = "Get habit dashboard (habits, logs, intelligence)")
-    public ResponseEntity<ApiResponse<com.productivity.dto.HabitDashboardDTO>> getDashboard(Authentication auth)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<ApiResponse<com.productivity.dto.HabitDashboardDTO>>> getDashboard(Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        return habitService.getDashboard(userId).thenApply(dashboard -> ResponseEntity.ok(ApiResponse.success(dashboard)));
+    }
+
+    @GetMapping("/correlations")
+    @Operation(summary = "Which habits are completed together: lift and conditional probabilities over the last N days")
+    public CompletableFuture<ResponseEntity<ApiResponse<HabitCorrelationDTO>>> getCorrelations(
+            Authentication auth,
+            @RequestParam(defaultValue = "90") int days) {
+        String userId = (String) auth.getPrincipal();
+        return habitService.getCorrelations(userId, days).thenApply(correlations ->
+                ResponseEntity.ok(ApiResponse.success(correlations)));
+    }
+
+    @GetMapping("/heatmap")
+    @Operation(summary = "Completion bitmaps (base64) for several habits over a date range, up to five years")
+    public CompletableFuture<ResponseEntity<ApiResponse<HabitHeatmapDTO>>> getHeatmap(
+            Authentication auth,
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(required = false) List<String> habitIds,
+            @RequestParam(defaultValue = "false") boolean intensity) {
         String userId = (String) auth.getPrincipal();
-        com.productivity.dto.HabitDashboardDTO dashboard = habitService.getDashboard(userId);
-        return ResponseEntity.ok(ApiResponse.success(dashboard));
+        return habitService.getHeatmap(userId, habitIds, startDate, endDate, intensity).thenApply(heatmap ->
+                ResponseEntity.ok(ApiResponse.success(heatmap)));
+    }
+
+    @GetMapping("/intelligence")
+    @Operation(summary = "Get habit intelligence (consistency, risk, streak, weekly rate) without logs")
+    public CompletableFuture<ResponseEntity<ApiResponse<HabitIntelligenceDTO>>> getIntelligence(Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        return habitService.getIntelligence(userId).thenApply(intelligence -> ResponseEntity.ok(ApiResponse.success(intelligence)));
+    }
+
+    @GetMapping("/intelligence/history")
+    @Operation(summary = "Daily intelligence snapshots over a date range, for trend charts")
+    public CompletableFuture<ResponseEntity<ApiResponse<List<HabitIntelligenceSnapshotDTO>>>> getIntelligenceHistory(
+            Authentication auth,
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        String userId = (String) auth.getPrincipal();
+        return habitService.getIntelligenceHistory(userId, startDate, endDate).thenApply(history ->
+                ResponseEntity.ok(ApiResponse.success(history)));
     }
 
     @GetMapping("/{habitId}")
     @Operation(summary = "Get a habit by ID")
-    public ResponseEntity<ApiResponse<HabitDTO>> getHabit(
+    public CompletableFuture<ResponseEntity<ApiResponse<HabitDTO>>> getHabit(
             Authentication auth,
-            @PathVariable String habitId) throws ExecutionException, InterruptedException {
+            @PathVariable String habitId) {
         String userId = (String) auth.getPrincipal();
-        HabitDTO habit = habitService.getHabit(userId, habitId);
-        return ResponseEntity.ok(ApiResponse.success(habit));
+        return habitService.getHabit(userId, habitId).thenApply(habit -> ResponseEntity.ok(ApiResponse.success(habit)));
     }
 
     @PutMapping("/{habitId}")
     @Operation(summary = "Update a habit")
-    public ResponseEntity<ApiResponse<HabitDTO>> updateHabit(
+    public CompletableFuture<ResponseEntity<ApiResponse<HabitDTO>>> updateHabit(
             Authentication auth,
             @PathVariable String habitId,
-            @Valid @RequestBody HabitDTO habitDTO) throws ExecutionException, InterruptedException {
+            @Valid @RequestBody HabitDTO habitDTO) {
         String userId = (String) auth.getPrincipal();
-        HabitDTO updated = habitService.updateHabit(userId, habitId, habitDTO);
-        return ResponseEntity.ok(ApiResponse.success(updated, "Habit updated"));
+        return habitService.updateHabit(userId, habitId, habitDTO).thenApply(updated ->
+                ResponseEntity.ok(ApiResponse.success(updated, "Habit updated")));
     }
 
     @DeleteMapping("/{habitId}")
     @Operation(summary = "Delete a habit")
-    public ResponseEntity<ApiResponse<Void>> deleteHabit(
+    public CompletableFuture<ResponseEntity<ApiResponse<Void>>> deleteHabit(
             Authentication auth,
-            @PathVariable String habitId) throws ExecutionException, InterruptedException {
+            @PathVariable String habitId) {
         String userId = (String) auth.getPrincipal();
-        habitService.deleteHabit(userId, habitId);
-        return ResponseEntity.ok(ApiResponse.success(null, "Habit deleted"));
+        return habitService.deleteHabit(userId, habitId).thenApply(ignored ->
+                ResponseEntity.ok(ApiResponse.<Void>success(null, "Habit deleted")));
     }
 
     @PostMapping("/{habitId}/complete")
     @Operation(summary = "Mark a habit as completed for today")
-    public ResponseEntity<ApiResponse<HabitDTO>> completeHabit(
+    public CompletableFuture<ResponseEntity<ApiResponse<HabitDTO>>> completeHabit(
+            Authentication auth,
+            @PathVariable String habitId) {
+        String userId = (String) auth.getPrincipal();
+        return habitService.completeHabit(userId, habitId).thenApply(habit ->
+                ResponseEntity.ok(ApiResponse.success(habit, "Habit completed")));
+    }
+
+    @PostMapping("/complete")
+    @Operation(summary = "Mark several habits as completed for today in one request")
+    public CompletableFuture<ResponseEntity<ApiResponse<List<HabitDTO>>>> completeHabits(
+            Authentication auth,
+            @Valid @RequestBody HabitBatchCompleteDTO request) {
+        String userId = (String) auth.getPrincipal();
+        return habitService.completeHabits(userId, request.getHabitIds()).thenApply(habits ->
+                ResponseEntity.ok(ApiResponse.success(habits, "Habits completed")));
+    }
+
+    @PutMapping("/{habitId}/logs/{date}")
+    @Operation(summary = "Complete or uncomplete a habit on a past date (or today)")
+    public CompletableFuture<ResponseEntity<ApiResponse<HabitDTO>>> setCompletion(
             Authentication auth,
-            @PathVariable String habitId) throws ExecutionException, InterruptedException {
+            @PathVariable String habitId,
+            @PathVariable String date,
+            @RequestBody HabitLogDTO logDTO) {
         String userId = (String) auth.getPrincipal();
-        HabitDTO habit = habitService.completeHabit(userId, habitId);
-        return ResponseEntity.ok(ApiResponse.success(habit, "Habit completed"));
+        return habitService.setCompletion(userId, habitId, date, logDTO.isCompleted()).thenApply(habit ->
+                ResponseEntity.ok(ApiResponse.success(habit, "Habit log updated")));
+    }
+
+    @PostMapping("/{habitId}/progress")
+    @Operation(summary = "Add to a day's progress on a count or duration goal; completes the day when the goal is reached")
+    public CompletableFuture<ResponseEntity<ApiResponse<HabitProgressDTO>>> addProgress(
+            Authentication auth,
+            @PathVariable String habitId,
+            @RequestParam(defaultValue = "1") long amount,
+            @RequestParam(required = false) String date) {
+        String userId = (String) auth.getPrincipal();
+        return habitService.addProgress(userId, habitId, date, amount).thenApply(progress ->
+                ResponseEntity.ok(ApiResponse.success(progress)));
     }
 
     @GetMapping("/{habitId}/logs")
     @Operation(summary = "Get habit completion logs for a date range (for heatmap)")
-    public ResponseEntity<ApiResponse<List<HabitLogDTO>>> getHabitLogs(
+    public CompletableFuture<ResponseEntity<ApiResponse<List<HabitLogDTO>>>> getHabitLogs(
+            Authentication auth,
+            @PathVariable String habitId,
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        String userId = (String) auth.getPrincipal();
+        return habitService.getHabitLogs(userId, habitId, startDate, endDate).thenApply(logs ->
+                ResponseEntity.ok(ApiResponse.success(logs)));
+    }
+
+    @GetMapping("/{habitId}/heatmap")
+    @Operation(summary = "Completion bitmap (base64) for one habit over a date range, up to five years")
+    public CompletableFuture<ResponseEntity<ApiResponse<HabitHeatmapDTO>>> getHabitHeatmap(
             Authentication auth,
             @PathVariable String habitId,
             @RequestParam String startDate,
-            @RequestParam String endDate) throws ExecutionException, InterruptedException {
+            @RequestParam String endDate) {
         String userId = (String) auth.getPrincipal();
-        List<HabitLogDTO> logs = habitService.getHabitLogs(userId, habitId, startDate, endDate);
-        return ResponseEntity.ok(ApiResponse.success(logs));
+        return habitService.getHeatmap(userId, habitId, startDate, endDate).thenApply(heatmap ->
+                ResponseEntity.ok(ApiResponse.success(heatmap)));
     }
 }
@@ -2,9 +2,12 @@ package com.productivity.controller;
 
 import com.productivity.dto.ApiResponse;
 import com.productivity.dto.TaskDTO;
+import com.productivity.dto.TaskStatsDTO;
+import com.productivity.service.FieldSelection;
 import com.productivity.service.TaskService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,7 +15,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/tasks")
@@ -27,77 +30,99 @@ public class TaskController {
 
     @PostMapping
     @Operation(summary = "Create a new task")
-    public ResponseEntity<ApiResponse<TaskDTO>> createTask(
+    public CompletableFuture<ResponseEntity<ApiResponse<TaskDTO>>> createTask(
             Authentication auth,
-            @Valid @RequestBody TaskDTO taskDTO) throws ExecutionException, InterruptedException {
+            @Valid @RequestBody TaskDTO taskDTO) {
         String userId = (String) auth.getPrincipal();
-        TaskDTO created = taskService.createTask(userId, taskDTO);
-        return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(created, "Task created"));
+        return taskService.createTask(userId, taskDTO).thenApply(created ->
+                ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(created, "Task created")));
     }
 
     @GetMapping
-    @Operation(summary = "List tasks with filtering, sorting, and pagination")
-    public ResponseEntity<ApiResponse<List<TaskDTO>>> getTasks(
+    @Operation(summary = "List tasks with filtering, sorting, sparse fieldsets and cursor (or legacy page/size) pagination")
+    public CompletableFuture<ResponseEntity<ApiResponse<List<TaskDTO>>>> getTasks(
             Authentication auth,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String priority,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDirection,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) throws ExecutionException, InterruptedException {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String fields,
+            HttpServletRequest request) {
         String userId = (String) auth.getPrincipal();
-        List<TaskDTO> tasks = taskService.getTasks(userId, status, priority, sortBy, sortDirection, page, size);
-        long total = taskService.getTaskCount(userId);
-        int totalPages = (int) Math.ceil((double) total / size);
-        return ResponseEntity.ok(ApiResponse.paginated(tasks, totalPages, total));
+        FieldSelection selection = FieldSelection.parse(fields, TaskService.TASK_FIELDS);
+        request.setAttribute(FieldSelection.REQUEST_ATTRIBUTE, selection);
+        // The count and the page are independent reads, so issue them together
+        CompletableFuture<Long> total = taskService.getTaskCount(userId);
+
+        // Legacy clients asking for page > 0 without a cursor still get offset paging
+        if (page > 0 && cursor == null && before == null) {
+            return taskService.getTasks(userId, status, priority, sortBy, sortDirection, page, size, selection)
+                    .thenCombine(total, (tasks, count) ->
+                            ResponseEntity.ok(ApiResponse.paginated(tasks, totalPages(count, size), count)));
+        }
+
+        return taskService.getTaskPage(userId, status, priority, sortBy, sortDirection, cursor, before, size, selection)
+                .thenCombine(total, (result, count) ->
+                        ResponseEntity.ok(ApiResponse.cursorPaginated(result.getItems(), totalPages(count, size), count,
+                                result.getNextCursor(), result.getPrevCursor())));
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Get task counters (total and by status)")
+    public CompletableFuture<ResponseEntity<ApiResponse<TaskStatsDTO>>> getTaskStats(Authentication auth) {
+        String userId = (String) auth.getPrincipal();
+        return taskService.getTaskStats(userId).thenApply(stats -> ResponseEntity.ok(ApiResponse.success(stats)));
     }
 
     @GetMapping("/{taskId}")
     @Operation(summary = "Get a task by ID")
-    public ResponseEntity<ApiResponse<TaskDTO>> getTask(
+    public CompletableFuture<ResponseEntity<ApiResponse<TaskDTO>>> getTask(
             Authentication auth,
-            @PathVariable String taskId) throws ExecutionException, InterruptedException {
+            @PathVariable String taskId) {
         String userId = (String) auth.getPrincipal();
-        TaskDTO task = taskService.getTask(userId, taskId);
-        return ResponseEntity.ok(ApiResponse.success(task));
+        return taskService.getTask(userId, taskId).thenApply(task -> ResponseEntity.ok(ApiResponse.success(task)));
     }
 
     @PutMapping("/{taskId}")
     @Operation(summary = "Update a task")
-    public ResponseEntity<ApiResponse<TaskDTO>> updateTask(
+    public CompletableFuture<ResponseEntity<ApiResponse<TaskDTO>>> updateTask(
             Authentication auth,
             @PathVariable String taskId,
-            @Valid @RequestBody TaskDTO taskDTO) throws ExecutionException, InterruptedException {
+            @Valid @RequestBody TaskDTO taskDTO) {
         String userId = (String) auth.getPrincipal();
-        TaskDTO updated = taskService.updateTask(userId, taskId, taskDTO);
-        return ResponseEntity.ok(ApiResponse.success(updated, "Task updated"));
+        return taskService.updateTask(userId, taskId, taskDTO).thenApply(updated ->
+                ResponseEntity.ok(ApiResponse.success(updated, "Task updated")));
     }
 
     @DeleteMapping("/{taskId}")
     @Operation(summary = "Delete a task")
-    public ResponseEntity<ApiResponse<Void>> deleteTask(
+    public CompletableFuture<ResponseEntity<ApiResponse<Void>>> deleteTask(
             Authentication auth,
-            @PathVariable String taskId) throws ExecutionException, InterruptedException {
+            @PathVariable String taskId) {
         String userId = (String) auth.getPrincipal();
-        taskService.deleteTask(userId, taskId);
-        return ResponseEntity.ok(ApiResponse.success(null, "Task deleted"));
+        return taskService.deleteTask(userId, taskId).thenApply(ignored ->
+                ResponseEntity.ok(ApiResponse.<Void>success(null, "Task deleted")));
     }
 
     @GetMapping("/overdue")
     @Operation(summary = "Get overdue tasks")
-    public ResponseEntity<ApiResponse<List<TaskDTO>>> getOverdueTasks(Authentication auth)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<ApiResponse<List<TaskDTO>>>> getOverdueTasks(Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        List<TaskDTO> tasks = taskService.getOverdueTasks(userId);
-        return ResponseEntity.ok(ApiResponse.success(tasks));
+        return taskService.getOverdueTasks(userId).thenApply(tasks -> ResponseEntity.ok(ApiResponse.success(tasks)));
     }
 
     @GetMapping("/today")
     @Operation(summary = "Get today's tasks")
-    public ResponseEntity<ApiResponse<List<TaskDTO>>> getTodayTasks(Authentication auth)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<ApiResponse<List<TaskDTO>>>> getTodayTasks(Authentication auth) {
         String userId = (String) auth.getPrincipal();
-        List<TaskDTO> tasks = taskService.getTodayTasks(userId);
-        return ResponseEntity.ok(ApiResponse.success(tasks));
+        return taskService.getTodayTasks(userId).thenApply(tasks -> ResponseEntity.ok(ApiResponse.success(tasks)));
+    }
+
+    private static int totalPages(long total, int size) {
+        return (int) Math.ceil((double) total / size);
     }
 }
@@ -9,7 +9,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/users")
@@ -24,43 +24,40 @@ public class UserController {
 
     @GetMapping("/me")
     @Operation(summary = "Get current user profile")
-    public ResponseEntity<ApiResponse<UserDTO>> getProfile(Authentication auth)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<ApiResponse<UserDTO>>> getProfile(Authentication auth) {
         String uid = (String) auth.getPrincipal();
-        UserDTO user = userService.getUser(uid);
-        return ResponseEntity.ok(ApiResponse.success(user));
+        return userService.getUserAsync(uid).thenApply(user -> ResponseEntity.ok(ApiResponse.success(user)));
     }
 
     @PostMapping("/onboarding")
     @Operation(summary = "Complete user onboarding")
-    public ResponseEntity<ApiResponse<UserDTO>> completeOnboarding(
+    public CompletableFuture<ResponseEntity<ApiResponse<UserDTO>>> completeOnboarding(
             Authentication auth,
-            @RequestBody java.util.Map<String, String> body) throws ExecutionException, InterruptedException {
+            @RequestBody java.util.Map<String, String> body) {
         String uid = (String) auth.getPrincipal();
         String bio = body.get("bio");
-        UserDTO user = userService.completeOnboarding(uid, bio);
-        return ResponseEntity.ok(ApiResponse.success(user, "Onboarding completed"));
+        return userService.completeOnboarding(uid, bio).thenApply(user ->
+                ResponseEntity.ok(ApiResponse.success(user, "Onboarding completed")));
     }
 
     @PutMapping("/me")
     @Operation(summary = "Update current user profile")
-    public ResponseEntity<ApiResponse<UserDTO>> updateProfile(
+    public CompletableFuture<ResponseEntity<ApiResponse<UserDTO>>> updateProfile(
             Authentication auth,
-            @RequestBody java.util.Map<String, String> body) throws ExecutionException, InterruptedException {
+            @RequestBody java.util.Map<String, String> body) {
         String uid = (String) auth.getPrincipal();
         String displayName = body.get("displayName");
         String bio = body.get("bio");
         String photoURL = body.get("photoURL");
-        UserDTO user = userService.updateProfile(uid, displayName, bio, photoURL);
-        return ResponseEntity.ok(ApiResponse.success(user, "Profile updated successfully"));
+        return userService.updateProfile(uid, displayName, bio, photoURL).thenApply(user ->
+                ResponseEntity.ok(ApiResponse.success(user, "Profile updated successfully")));
     }
 
     @DeleteMapping("/me")
     @Operation(summary = "Delete current user account")
-    public ResponseEntity<ApiResponse<Void>> deleteAccount(Authentication auth)
-            throws ExecutionException, InterruptedException {
+    public CompletableFuture<ResponseEntity<ApiResponse<Void>>> deleteAccount(Authentication auth) {
         String uid = (String) auth.getPrincipal();
-        userService.deleteUser(uid);
-        return ResponseEntity.ok(ApiResponse.success(null, "Account deleted successfully"));
+        return userService.deleteUser(uid).thenApply(ignored ->
+                ResponseEntity.ok(ApiResponse.<Void>success(null, "Account deleted successfully")));
     }
 }
@@ -11,6 +11,8 @@ public class ApiResponse<T> {
     private String timestamp;
     private Integer totalPages;
     private Long totalElements;
+    private String nextCursor;
+    private String prevCursor;
 
     private ApiResponse() {
         this.timestamp = LocalDateTime.now().toString();
@@ -36,6 +38,14 @@ public class ApiResponse<T> {
         return response;
     }
 
+    public static <T> ApiResponse<T> cursorPaginated(T data, int totalPages, long totalElements,
+                                                     String nextCursor, String prevCursor) {
+        ApiResponse<T> response = paginated(data, totalPages, totalElements);
+        response.nextCursor = nextCursor;
+        response.prevCursor = prevCursor;
+        return response;
+    }
+
     public static <T> ApiResponse<T> error(String message) {
         ApiResponse<T> response = new ApiResponse<>();
         response.success = false;
@@ -49,4 +59,6 @@ public class ApiResponse<T> {
     public String getTimestamp() { return timestamp; }
     public Integer getTotalPages() { return totalPages; }
     public Long getTotalElements() { return totalElements; }
+    public String getNextCursor() { return nextCursor; }
+    public String getPrevCursor() { return prevCursor; }
 }
@@ -0,0 +1,18 @@
+package com.productivity.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class HabitBatchCompleteDTO {
+
+    @NotEmpty(message = "At least one habit is required")
+    @Size(max = 100, message = "At most 100 habits can be completed at once")
+    private List<String> habitIds;
+
+    public HabitBatchCompleteDTO() {}
+
+    public List<String> getHabitIds() { return habitIds; }
+    public void setHabitIds(List<String> habitIds) { this.habitIds = habitIds; }
+}
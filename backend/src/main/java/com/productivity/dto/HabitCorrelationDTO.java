@@ -0,0 +1,76 @@
+package com.productivity.dto;
+
+import java.util.List;
+
+/**
+ * Which habits tend to be completed on the same days within [startDate, endDate].
+ */
+public class HabitCorrelationDTO {
+    private String startDate;
+    private String endDate;
+    private int days;
+    private List<HabitRateDTO> habits;
+    private List<HabitPairDTO> pairs; // Sorted by lift, strongest first
+
+    public HabitCorrelationDTO() {}
+
+    public String getStartDate() { return startDate; }
+    public void setStartDate(String startDate) { this.startDate = startDate; }
+    public String getEndDate() { return endDate; }
+    public void setEndDate(String endDate) { this.endDate = endDate; }
+    public int getDays() { return days; }
+    public void setDays(int days) { this.days = days; }
+    public List<HabitRateDTO> getHabits() { return habits; }
+    public void setHabits(List<HabitRateDTO> habits) { this.habits = habits; }
+    public List<HabitPairDTO> getPairs() { return pairs; }
+    public void setPairs(List<HabitPairDTO> pairs) { this.pairs = pairs; }
+
+    public static class HabitRateDTO {
+        private String habitId;
+        private String name;
+        private int completed;     // Days completed in the window
+        private double probability; // completed / days
+
+        public HabitRateDTO() {}
+
+        public HabitRateDTO(String habitId, String name, int completed, double probability) {
+            this.habitId = habitId;
+            this.name = name;
+            this.completed = completed;
+            this.probability = probability;
+        }
+
+        public String getHabitId() { return habitId; }
+        public void setHabitId(String habitId) { this.habitId = habitId; }
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getCompleted() { return completed; }
+        public void setCompleted(int completed) { this.completed = completed; }
+        public double getProbability() { return probability; }
+        public void setProbability(double probability) { this.probability = probability; }
+    }
+
+    public static class HabitPairDTO {
+        private String habitA;
+        private String habitB;
+        private int together;         // Days both were completed
+        private double lift;          // P(A and B) / (P(A) * P(B)); above 1 means they go together
+        private double probBGivenA;   // P(B | A)
+        private double probAGivenB;   // P(A | B)
+
+        public HabitPairDTO() {}
+
+        public String getHabitA() { return habitA; }
+        public void setHabitA(String habitA) { this.habitA = habitA; }
+        public String getHabitB() { return habitB; }
+        public void setHabitB(String habitB) { this.habitB = habitB; }
+        public int getTogether() { return together; }
+        public void setTogether(int together) { this.together = together; }
+        public double getLift() { return lift; }
+        public void setLift(double lift) { this.lift = lift; }
+        public double getProbBGivenA() { return probBGivenA; }
+        public void setProbBGivenA(double probBGivenA) { this.probBGivenA = probBGivenA; }
+        public double getProbAGivenB() { return probAGivenB; }
+        public void setProbAGivenB(double probAGivenB) { this.probAGivenB = probAGivenB; }
+    }
+}
@@ -1,8 +1,11 @@
 package com.productivity.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.productivity.service.FieldSelection;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
+@JsonFilter(FieldSelection.FILTER_ID) // Narrowed to the requested fields on sparse responses only
 public class HabitDTO {
     private String id;
 
@@ -16,11 +19,11 @@ public class HabitDTO {
     private String category;
     private String frequency;
     private String goalType;
-    private int goalValue;
+    private Integer goalValue;
     private String motivation;
 
-    private int currentStreak;
-    private int longestStreak;
+    private Integer currentStreak;
+    private Integer longestStreak;
     private String lastCompletedDate;
     private String createdAt;
 
@@ -38,14 +41,14 @@ public class HabitDTO {
     public void setFrequency(String frequency) { this.frequency = frequency; }
     public String getGoalType() { return goalType; }
     public void setGoalType(String goalType) { this.goalType = goalType; }
-    public int getGoalValue() { return goalValue; }
-    public void setGoalValue(int goalValue) { this.goalValue = goalValue; }
+    public Integer getGoalValue() { return goalValue; }
+    public void setGoalValue(Integer goalValue) { this.goalValue = goalValue; }
     public String getMotivation() { return motivation; }
     public void setMotivation(String motivation) { this.motivation = motivation; }
-    public int getCurrentStreak() { return currentStreak; }
-    public void setCurrentStreak(int currentStreak) { this.currentStreak = currentStreak; }
-    public int getLongestStreak() { return longestStreak; }
-    public void setLongestStreak(int longestStreak) { this.longestStreak = longestStreak; }
+    public Integer getCurrentStreak() { return currentStreak; }
+    public void setCurrentStreak(Integer currentStreak) { this.currentStreak = currentStreak; }
+    public Integer getLongestStreak() { return longestStreak; }
+    public void setLongestStreak(Integer longestStreak) { this.longestStreak = longestStreak; }
     public String getLastCompletedDate() { return lastCompletedDate; }
     public void setLastCompletedDate(String lastCompletedDate) { this.lastCompletedDate = lastCompletedDate; }
     public String getCreatedAt() { return createdAt; }
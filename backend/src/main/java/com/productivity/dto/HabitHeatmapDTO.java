@@ -0,0 +1,49 @@
+package com.productivity.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Completion bitmaps over [startDate, startDate + days). Day {@code i} is bit {@code i % 8} of
+ * byte {@code i / 8} of the base64-decoded {@code bits}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HabitHeatmapDTO {
+    private String startDate;
+    private int days;
+    private List<HabitBitmapDTO> habits;
+    private String intensity; // Optional: base64, one byte per day = number of listed habits completed that day
+
+    public HabitHeatmapDTO() {}
+
+    public String getStartDate() { return startDate; }
+    public void setStartDate(String startDate) { this.startDate = startDate; }
+    public int getDays() { return days; }
+    public void setDays(int days) { this.days = days; }
+    public List<HabitBitmapDTO> getHabits() { return habits; }
+    public void setHabits(List<HabitBitmapDTO> habits) { this.habits = habits; }
+    public String getIntensity() { return intensity; }
+    public void setIntensity(String intensity) { this.intensity = intensity; }
+
+    public static class HabitBitmapDTO {
+        private String habitId;
+        private int completed; // Number of set bits
+        private String bits;
+
+        public HabitBitmapDTO() {}
+
+        public HabitBitmapDTO(String habitId, int completed, String bits) {
+            this.habitId = habitId;
+            this.completed = completed;
+            this.bits = bits;
+        }
+
+        public String getHabitId() { return habitId; }
+        public void setHabitId(String habitId) { this.habitId = habitId; }
+        public int getCompleted() { return completed; }
+        public void setCompleted(int completed) { this.completed = completed; }
+        public String getBits() { return bits; }
+        public void setBits(String bits) { this.bits = bits; }
+    }
+}
@@ -0,0 +1,22 @@
+package com.productivity.dto;
+
+public class HabitIntelligenceSnapshotDTO {
+    private String date;
+    private int consistencyScore;
+    private int riskCount;
+    private int longestStreak;
+    private int weeklyCompletionRate;
+
+    public HabitIntelligenceSnapshotDTO() {}
+
+    public String getDate() { return date; }
+    public void setDate(String date) { this.date = date; }
+    public int getConsistencyScore() { return consistencyScore; }
+    public void setConsistencyScore(int consistencyScore) { this.consistencyScore = consistencyScore; }
+    public int getRiskCount() { return riskCount; }
+    public void setRiskCount(int riskCount) { this.riskCount = riskCount; }
+    public int getLongestStreak() { return longestStreak; }
+    public void setLongestStreak(int longestStreak) { this.longestStreak = longestStreak; }
+    public int getWeeklyCompletionRate() { return weeklyCompletionRate; }
+    public void setWeeklyCompletionRate(int weeklyCompletionRate) { this.weeklyCompletionRate = weeklyCompletionRate; }
+}
@@ -1,9 +1,13 @@
 package com.productivity.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class HabitLogDTO {
     private String date;
     private boolean completed;
     private String completedAt;
+    private Long value; // Progress towards a count or duration goal
 
     public HabitLogDTO() {}
 
@@ -13,4 +17,6 @@ public class HabitLogDTO {
     public void setCompleted(boolean completed) { this.completed = completed; }
     public String getCompletedAt() { return completedAt; }
     public void setCompletedAt(String completedAt) { this.completedAt = completedAt; }
+    public Long getValue() { return value; }
+    public void setValue(Long value) { this.value = value; }
 }
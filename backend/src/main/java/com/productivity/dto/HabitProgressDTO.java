@@ -0,0 +1,29 @@
+package com.productivity.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A day's progress towards a count or duration goal. {@code habit} is included when the update
+ * flipped the day's completion, so the client gets the new streak without another request.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HabitProgressDTO {
+    private String date;
+    private long value;
+    private int goalValue;
+    private boolean completed;
+    private HabitDTO habit;
+
+    public HabitProgressDTO() {}
+
+    public String getDate() { return date; }
+    public void setDate(String date) { this.date = date; }
+    public long getValue() { return value; }
+    public void setValue(long value) { this.value = value; }
+    public int getGoalValue() { return goalValue; }
+    public void setGoalValue(int goalValue) { this.goalValue = goalValue; }
+    public boolean isCompleted() { return completed; }
+    public void setCompleted(boolean completed) { this.completed = completed; }
+    public HabitDTO getHabit() { return habit; }
+    public void setHabit(HabitDTO habit) { this.habit = habit; }
+}
@@ -0,0 +1,81 @@
+package com.productivity.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StreakRecomputeStatusDTO {
+    private String jobId;
+    private String state; // running, completed, failed
+    private boolean dryRun;
+    private long usersScanned;
+    private long usersFailed;
+    private long habitsScanned;
+    private long habitsDrifted;   // habits whose stored streak fields differ from their logs
+    private long habitsCorrected; // drifted habits written back (0 on a dry run)
+    private long habitsSkipped; // drifted habits changed or deleted by the time of the write, left as they are
+    private String startedAt;
+    private String finishedAt;
+    private String error;
+    private List<StreakDiffDTO> diffs; // First drifted habits, capped by configuration
+
+    public StreakRecomputeStatusDTO() {}
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+    public boolean isDryRun() { return dryRun; }
+    public void setDryRun(boolean dryRun) { this.dryRun = dryRun; }
+    public long getUsersScanned() { return usersScanned; }
+    public void setUsersScanned(long usersScanned) { this.usersScanned = usersScanned; }
+    public long getUsersFailed() { return usersFailed; }
+    public void setUsersFailed(long usersFailed) { this.usersFailed = usersFailed; }
+    public long getHabitsScanned() { return habitsScanned; }
+    public void setHabitsScanned(long habitsScanned) { this.habitsScanned = habitsScanned; }
+    public long getHabitsDrifted() { return habitsDrifted; }
+    public void setHabitsDrifted(long habitsDrifted) { this.habitsDrifted = habitsDrifted; }
+    public long getHabitsCorrected() { return habitsCorrected; }
+    public void setHabitsCorrected(long habitsCorrected) { this.habitsCorrected = habitsCorrected; }
+    public long getHabitsSkipped() { return habitsSkipped; }
+    public void setHabitsSkipped(long habitsSkipped) { this.habitsSkipped = habitsSkipped; }
+    public String getStartedAt() { return startedAt; }
+    public void setStartedAt(String startedAt) { this.startedAt = startedAt; }
+    public String getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(String finishedAt) { this.finishedAt = finishedAt; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public List<StreakDiffDTO> getDiffs() { return diffs; }
+    public void setDiffs(List<StreakDiffDTO> diffs) { this.diffs = diffs; }
+
+    public static class StreakDiffDTO {
+        private String userId;
+        private String habitId;
+        private int currentStreak;
+        private int expectedCurrentStreak;
+        private int longestStreak;
+        private int expectedLongestStreak;
+        private String lastCompletedDate;
+        private String expectedLastCompletedDate;
+
+        public StreakDiffDTO() {}
+
+        public String getUserId() { return userId; }
+        public void setUserId(String userId) { this.userId = userId; }
+        public String getHabitId() { return habitId; }
+        public void setHabitId(String habitId) { this.habitId = habitId; }
+        public int getCurrentStreak() { return currentStreak; }
+        public void setCurrentStreak(int currentStreak) { this.currentStreak = currentStreak; }
+        public int getExpectedCurrentStreak() { return expectedCurrentStreak; }
+        public void setExpectedCurrentStreak(int expectedCurrentStreak) { this.expectedCurrentStreak = expectedCurrentStreak; }
+        public int getLongestStreak() { return longestStreak; }
+        public void setLongestStreak(int longestStreak) { this.longestStreak = longestStreak; }
+        public int getExpectedLongestStreak() { return expectedLongestStreak; }
+        public void setExpectedLongestStreak(int expectedLongestStreak) { this.expectedLongestStreak = expectedLongestStreak; }
+        public String getLastCompletedDate() { return lastCompletedDate; }
+        public void setLastCompletedDate(String lastCompletedDate) { this.lastCompletedDate = lastCompletedDate; }
+        public String getExpectedLastCompletedDate() { return expectedLastCompletedDate; }
+        public void setExpectedLastCompletedDate(String expectedLastCompletedDate) { this.expectedLastCompletedDate = expectedLastCompletedDate; }
+    }
+}
@@ -1,5 +1,7 @@
 package com.productivity.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.productivity.service.FieldSelection;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
@@ -7,6 +9,7 @@ import jakarta.validation.constraints.Size;
 import java.util.List;
 import java.util.Map;
 
+@JsonFilter(FieldSelection.FILTER_ID) // Narrowed to the requested fields on sparse responses only
 public class TaskDTO {
     private String id;
     private List<SubtaskDTO> subtasks;
@@ -0,0 +1,22 @@
+package com.productivity.dto;
+
+public class TaskStatsDTO {
+    private long total;
+    private long todo;
+    private long inProgress;
+    private long done;
+    private long overdueCandidates; // Open tasks that have a deadline
+
+    public TaskStatsDTO() {}
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+    public long getTodo() { return todo; }
+    public void setTodo(long todo) { this.todo = todo; }
+    public long getInProgress() { return inProgress; }
+    public void setInProgress(long inProgress) { this.inProgress = inProgress; }
+    public long getDone() { return done; }
+    public void setDone(long done) { this.done = done; }
+    public long getOverdueCandidates() { return overdueCandidates; }
+    public void setOverdueCandidates(long overdueCandidates) { this.overdueCandidates = overdueCandidates; }
+}
@@ -0,0 +1,17 @@
+package com.productivity.exception;
+
+/**
+ * The server is temporarily over capacity for this kind of request; clients should retry after a short delay.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,17 @@
+package com.productivity.exception;
+
+/**
+ * A client exceeded a rate limit; the request was rejected before doing any work.
+ */
+public class TooManyRequestsException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public TooManyRequestsException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,11 +1,13 @@
 package com.productivity.filter;
 
 import com.productivity.service.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -14,6 +16,8 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -31,12 +35,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && jwtService.isTokenValid(jwt)) {
-                String uid = jwtService.extractUid(jwt);
+            // One verification (or a cache hit) per request; uid and role come from the same claims
+            Claims claims = StringUtils.hasText(jwt) ? jwtService.parse(jwt).orElse(null) : null;
+            // Refresh and reset tokens are valid JWTs too, but must never stand in for an access token
+            if (claims != null && JwtService.isType(claims, JwtService.TYPE_ACCESS)) {
+                String uid = claims.getSubject();
+                String role = claims.get("role", String.class);
 
-                // Assuming role is simple 'user' for now, can extract authorities from claims if needed
+                List<SimpleGrantedAuthority> authorities = role != null
+                        ? List.of(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase(Locale.ROOT)))
+                        : Collections.emptyList();
                 UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(uid, null, Collections.emptyList());
+                        new UsernamePasswordAuthenticationToken(uid, null, authorities);
                 
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
@@ -17,6 +17,9 @@ public class Habit {
     private int currentStreak;
     private int longestStreak;
     private String lastCompletedDate; // YYYY-MM-DD
+    private String periodStart;       // weekly-quota habits: Monday of the week being counted
+    private int periodCompletions;    // weekly-quota habits: completions in that week
+    private Map<String, Integer> runLengths; // streak run length -> number of such runs; null until seeded
     private Timestamp createdAt;
 
     public Habit() {}
@@ -34,7 +37,15 @@ public class Habit {
         this.currentStreak = data.get("currentStreak") != null ? ((Number) data.get("currentStreak")).intValue() : 0;
         this.longestStreak = data.get("longestStreak") != null ? ((Number) data.get("longestStreak")).intValue() : 0;
         this.lastCompletedDate = (String) data.get("lastCompletedDate");
+        this.periodStart = (String) data.get("periodStart");
+        this.periodCompletions = data.get("periodCompletions") != null ? ((Number) data.get("periodCompletions")).intValue() : 0;
         this.createdAt = (Timestamp) data.get("createdAt");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> runs = (Map<String, Object>) data.get("runLengths");
+        if (runs != null) {
+            this.runLengths = new HashMap<>();
+            runs.forEach((length, count) -> runLengths.put(length, ((Number) count).intValue()));
+        }
     }
 
     public Map<String, Object> toMap() {
@@ -50,10 +61,38 @@ public class Habit {
         map.put("currentStreak", currentStreak);
         map.put("longestStreak", longestStreak);
         if (lastCompletedDate != null) map.put("lastCompletedDate", lastCompletedDate);
+        if (periodStart != null) {
+            map.put("periodStart", periodStart);
+            map.put("periodCompletions", periodCompletions);
+        }
         if (createdAt != null) map.put("createdAt", createdAt);
+        if (runLengths != null) map.put("runLengths", runLengths);
         return map;
     }
 
+    /**
+     * Adds {@code delta} runs of the given length to the run-length counts. The counts let the longest streak
+     * be re-derived when an edit shortens the longest run, without reading the rest of the history.
+     * Does nothing while the counts have not been seeded.
+     */
+    public void countRun(int length, int delta) {
+        if (runLengths == null || length <= 0) return;
+        String key = String.valueOf(length);
+        if (runLengths.merge(key, delta, Integer::sum) <= 0) {
+            runLengths.remove(key);
+        }
+    }
+
+    public int longestRun() {
+        int longest = 0;
+        if (runLengths != null) {
+            for (String length : runLengths.keySet()) {
+                longest = Math.max(longest, Integer.parseInt(length));
+            }
+        }
+        return longest;
+    }
+
     // Getters and Setters
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -79,6 +118,12 @@ public class Habit {
     public void setLongestStreak(int longestStreak) { this.longestStreak = longestStreak; }
     public String getLastCompletedDate() { return lastCompletedDate; }
     public void setLastCompletedDate(String lastCompletedDate) { this.lastCompletedDate = lastCompletedDate; }
+    public String getPeriodStart() { return periodStart; }
+    public void setPeriodStart(String periodStart) { this.periodStart = periodStart; }
+    public int getPeriodCompletions() { return periodCompletions; }
+    public void setPeriodCompletions(int periodCompletions) { this.periodCompletions = periodCompletions; }
+    public Map<String, Integer> getRunLengths() { return runLengths; }
+    public void setRunLengths(Map<String, Integer> runLengths) { this.runLengths = runLengths; }
     public Timestamp getCreatedAt() { return createdAt; }
     public void setCreatedAt(Timestamp createdAt) { this.createdAt = createdAt; }
 }
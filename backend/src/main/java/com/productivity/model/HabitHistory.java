@@ -0,0 +1,108 @@
+package com.productivity.model;
+
+import java.time.LocalDate;
+
+/**
+ * A habit's completion history as a day-indexed bitset: bit {@code i} is set when the habit was
+ * completed on epoch day {@code firstEpochDay + i}. Range counts are masked popcounts over whole
+ * 64-day words, so queries cost a handful of instructions regardless of how many logs exist.
+ */
+public final class HabitHistory {
+    private final long firstEpochDay;
+    private final int days;
+    private final long[] words;
+
+    public HabitHistory(LocalDate first, LocalDate last) {
+        this.firstEpochDay = first.toEpochDay();
+        this.days = (int) (last.toEpochDay() - firstEpochDay + 1);
+        this.words = new long[(Math.max(days, 0) + 63) >>> 6];
+    }
+
+    public static HabitHistory of(Iterable<HabitLog> logs, LocalDate first, LocalDate last) {
+        HabitHistory history = new HabitHistory(first, last);
+        for (HabitLog log : logs) {
+            if (log.isCompleted()) {
+                history.set(LocalDate.parse(log.getDate()).toEpochDay());
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Marks a day as completed; days outside the history's span are ignored.
+     */
+    public void set(long epochDay) {
+        long index = epochDay - firstEpochDay;
+        if (index < 0 || index >= days) return;
+        words[(int) (index >>> 6)] |= 1L << index;
+    }
+
+    public boolean isCompleted(long epochDay) {
+        long index = epochDay - firstEpochDay;
+        if (index < 0 || index >= days) return false;
+        return (words[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    /**
+     * Number of completed days in [fromEpochDay, toEpochDay], clamped to the history's span.
+     */
+    public int count(long fromEpochDay, long toEpochDay) {
+        long from = Math.max(fromEpochDay - firstEpochDay, 0);
+        long to = Math.min(toEpochDay - firstEpochDay, days - 1);
+        if (from > to) return 0;
+
+        int fromWord = (int) (from >>> 6);
+        int toWord = (int) (to >>> 6);
+        long fromMask = -1L << from;               // shift distance is taken mod 64
+        long toMask = -1L >>> (63 - (to & 63));
+        if (fromWord == toWord) {
+            return Long.bitCount(words[fromWord] & fromMask & toMask);
+        }
+        int count = Long.bitCount(words[fromWord] & fromMask);
+        for (int w = fromWord + 1; w < toWord; w++) {
+            count += Long.bitCount(words[w]);
+        }
+        return count + Long.bitCount(words[toWord] & toMask);
+    }
+
+    public boolean anyCompleted(long fromEpochDay, long toEpochDay) {
+        return count(fromEpochDay, toEpochDay) > 0;
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Number of days completed in both histories, which must cover the same span.
+     */
+    public int andCardinality(HabitHistory other) {
+        if (other.firstEpochDay != firstEpochDay || other.days != days) {
+            throw new IllegalArgumentException("Histories cover different spans");
+        }
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            count += Long.bitCount(words[w] & other.words[w]);
+        }
+        return count;
+    }
+
+    /**
+     * The bitset as bytes, day {@code i} in bit {@code i % 8} of byte {@code i / 8}
+     * (the {@link java.util.BitSet#toByteArray()} layout), sized to the span.
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[(days + 7) >>> 3];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (words[i >>> 3] >>> ((i & 7) << 3));
+        }
+        return bytes;
+    }
+
+    public long getFirstEpochDay() { return firstEpochDay; }
+    public int getDays() { return days; }
+}
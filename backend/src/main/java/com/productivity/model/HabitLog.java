@@ -6,13 +6,18 @@ import java.util.Map;
 
 public class HabitLog {
     private String date; // YYYY-MM-DD (used as document ID)
+    private String userId; // owner fields, denormalized for collection-group queries
+    private String habitId;
     private boolean completed;
     private Timestamp completedAt;
+    private Long value; // Progress towards a count or duration goal; null for yes/no habits
 
     public HabitLog() {}
 
     public HabitLog(Map<String, Object> data, String date) {
         this.date = date;
+        this.userId = (String) data.get("userId");
+        this.habitId = (String) data.get("habitId");
         this.completed = data.get("completed") != null && (boolean) data.get("completed");
         this.completedAt = (Timestamp) data.get("completedAt");
     }
@@ -20,6 +25,8 @@ public class HabitLog {
     public Map<String, Object> toMap() {
         Map<String, Object> map = new HashMap<>();
         map.put("date", date);
+        if (userId != null) map.put("userId", userId);
+        if (habitId != null) map.put("habitId", habitId);
         map.put("completed", completed);
         if (completedAt != null) map.put("completedAt", completedAt);
         return map;
@@ -27,8 +34,14 @@ public class HabitLog {
 
     public String getDate() { return date; }
     public void setDate(String date) { this.date = date; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getHabitId() { return habitId; }
+    public void setHabitId(String habitId) { this.habitId = habitId; }
     public boolean isCompleted() { return completed; }
     public void setCompleted(boolean completed) { this.completed = completed; }
     public Timestamp getCompletedAt() { return completedAt; }
     public void setCompletedAt(Timestamp completedAt) { this.completedAt = completedAt; }
+    public Long getValue() { return value; }
+    public void setValue(Long value) { this.value = value; }
 }
@@ -0,0 +1,159 @@
+package com.productivity.model;
+
+import com.google.cloud.Timestamp;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One month of a habit's completions in a single document (ID {@code YYYY-MM}).
+ * Bit {@code day - 1} of {@code completedDays} is set when the habit was completed on that day;
+ * {@code completedAt} optionally keeps the completion time as seconds since the start of the month (UTC),
+ * keyed by day of month. {@code progress} holds the numeric progress of count and duration goals, keyed by
+ * day of month; it is written with atomic increments outside of transactions.
+ */
+public class HabitLogMonth {
+    private String month; // YYYY-MM (used as document ID)
+    private String userId;
+    private String habitId;
+    private long completedDays;
+    private Map<String, Long> completedAt = new HashMap<>();
+    private Map<String, Long> progress = new HashMap<>();
+
+    public HabitLogMonth() {}
+
+    public HabitLogMonth(String userId, String habitId, YearMonth month) {
+        this.userId = userId;
+        this.habitId = habitId;
+        this.month = month.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    public HabitLogMonth(Map<String, Object> data, String month) {
+        this.month = month;
+        this.userId = (String) data.get("userId");
+        this.habitId = (String) data.get("habitId");
+        this.completedDays = data.get("completedDays") != null ? ((Number) data.get("completedDays")).longValue() : 0;
+        Map<String, Object> offsets = (Map<String, Object>) data.get("completedAt");
+        if (offsets != null) {
+            offsets.forEach((day, offset) -> completedAt.put(day, ((Number) offset).longValue()));
+        }
+        Map<String, Object> values = (Map<String, Object>) data.get("progress");
+        if (values != null) {
+            values.forEach((day, value) -> progress.put(day, ((Number) value).longValue()));
+        }
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("month", month);
+        map.put("userId", userId);
+        map.put("habitId", habitId);
+        map.put("completedDays", completedDays);
+        map.put("completedAt", completedAt);
+        map.put("progress", progress);
+        return map;
+    }
+
+    public static String monthOf(String date) {
+        return date.substring(0, 7);
+    }
+
+    public YearMonth yearMonth() {
+        return YearMonth.parse(month);
+    }
+
+    public boolean isCompleted(int dayOfMonth) {
+        return (completedDays & (1L << (dayOfMonth - 1))) != 0;
+    }
+
+    public Long progressOf(int dayOfMonth) {
+        return progress.get(String.valueOf(dayOfMonth));
+    }
+
+    /**
+     * The latest completed day of month strictly before {@code dayOfMonth}, or 0 if there is none.
+     */
+    public int lastCompletedDayBefore(int dayOfMonth) {
+        long earlier = completedDays & ((1L << (dayOfMonth - 1)) - 1);
+        return earlier == 0 ? 0 : 64 - Long.numberOfLeadingZeros(earlier);
+    }
+
+    /**
+     * Applies a day log to the bitmap: sets or clears the day's bit and its completion time.
+     */
+    public void apply(HabitLog log) {
+        int day = LocalDate.parse(log.getDate()).getDayOfMonth();
+        String key = String.valueOf(day);
+        if (log.isCompleted()) {
+            completedDays |= 1L << (day - 1);
+            if (log.getCompletedAt() != null) {
+                completedAt.put(key, log.getCompletedAt().getSeconds() - monthStartEpochSecond());
+            }
+        } else {
+            completedDays &= ~(1L << (day - 1));
+            completedAt.remove(key);
+        }
+    }
+
+    /**
+     * Decodes the completed days within [from, to] (inclusive) into day logs, in date order.
+     */
+    public List<HabitLog> toLogs(LocalDate from, LocalDate to) {
+        List<HabitLog> logs = new ArrayList<>();
+        YearMonth ym = yearMonth();
+        int firstDay = from.isAfter(ym.atDay(1)) ? from.getDayOfMonth() : 1;
+        int lastDay = to.isBefore(ym.atEndOfMonth()) ? to.getDayOfMonth() : ym.lengthOfMonth();
+        long monthStart = monthStartEpochSecond();
+
+        for (int day = firstDay; day <= lastDay; day++) {
+            if (!isCompleted(day)) continue;
+            HabitLog log = new HabitLog();
+            log.setDate(ym.atDay(day).toString());
+            log.setUserId(userId);
+            log.setHabitId(habitId);
+            log.setCompleted(true);
+            log.setValue(progressOf(day));
+            Long offset = completedAt.get(String.valueOf(day));
+            if (offset != null) {
+                log.setCompletedAt(Timestamp.ofTimeSecondsAndNanos(monthStart + offset, 0));
+            }
+            logs.add(log);
+        }
+        return logs;
+    }
+
+    /**
+     * Sets this month's completed days on a history bitset, straight from the bitmap.
+     */
+    public void copyInto(HabitHistory history) {
+        long firstDay = yearMonth().atDay(1).toEpochDay();
+        long bits = completedDays;
+        while (bits != 0) {
+            history.set(firstDay + Long.numberOfTrailingZeros(bits));
+            bits &= bits - 1;
+        }
+    }
+
+    private long monthStartEpochSecond() {
+        return yearMonth().atDay(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+    }
+
+    public String getMonth() { return month; }
+    public void setMonth(String month) { this.month = month; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getHabitId() { return habitId; }
+    public void setHabitId(String habitId) { this.habitId = habitId; }
+    public long getCompletedDays() { return completedDays; }
+    public void setCompletedDays(long completedDays) { this.completedDays = completedDays; }
+    public Map<String, Long> getCompletedAt() { return completedAt; }
+    public void setCompletedAt(Map<String, Long> completedAt) { this.completedAt = completedAt; }
+    public Map<String, Long> getProgress() { return progress; }
+    public void setProgress(Map<String, Long> progress) { this.progress = progress; }
+}
@@ -0,0 +1,194 @@
+package com.productivity.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A habit's {@code frequency} compiled into something the streak and intelligence logic can evaluate
+ * in constant time. Two shapes are supported:
+ * <ul>
+ *   <li>weekday schedules — a 7-bit mask of due weekdays ({@code daily}, {@code weekdays:mon,wed,fri});</li>
+ *   <li>weekly quotas — N completions per ISO week, on any days ({@code weekly}, {@code weekly:3}).</li>
+ * </ul>
+ * For weekday schedules the streak counts completed due days; for quotas it counts consecutive weeks
+ * whose quota was met. {@code custom:...} is accepted as an alias of {@code weekdays:...}; a bare
+ * {@code custom}, a missing value and unrecognised legacy values behave as daily.
+ */
+public final class HabitSchedule {
+
+    public static final HabitSchedule DAILY = new HabitSchedule(0x7F, 0);
+
+    private static final Map<String, HabitSchedule> COMPILED = new ConcurrentHashMap<>();
+
+    private final int weekdayMask; // bit (dayOfWeek - 1), Monday = bit 0; 0 for quotas
+    private final int weeklyQuota; // completions per week; 0 for weekday schedules
+
+    private HabitSchedule(int weekdayMask, int weeklyQuota) {
+        this.weekdayMask = weekdayMask;
+        this.weeklyQuota = weeklyQuota;
+    }
+
+    /**
+     * Lenient lookup for stored habits: anything unparseable is treated as daily.
+     */
+    public static HabitSchedule of(String frequency) {
+        if (frequency == null || frequency.isBlank()) return DAILY;
+        return COMPILED.computeIfAbsent(frequency.trim().toLowerCase(Locale.ROOT), key -> {
+            try {
+                return parse(key);
+            } catch (IllegalArgumentException e) {
+                return DAILY;
+            }
+        });
+    }
+
+    /**
+     * Strict parsing for incoming frequencies; throws IllegalArgumentException with a client-facing message.
+     */
+    public static HabitSchedule parse(String frequency) {
+        String value = frequency.trim().toLowerCase(Locale.ROOT);
+        if (value.equals("daily") || value.equals("custom")) return DAILY;
+        if (value.equals("weekly")) return new HabitSchedule(0, 1);
+
+        int colon = value.indexOf(':');
+        String kind = colon >= 0 ? value.substring(0, colon) : value;
+        String spec = colon >= 0 ? value.substring(colon + 1).trim() : "";
+        if (kind.equals("weekly")) {
+            int quota;
+            try {
+                quota = Integer.parseInt(spec);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid frequency: weekly quota must be a number");
+            }
+            if (quota < 1 || quota > 7) {
+                throw new IllegalArgumentException("Invalid frequency: weekly quota must be between 1 and 7");
+            }
+            return new HabitSchedule(0, quota);
+        }
+        if (kind.equals("weekdays") || kind.equals("custom")) {
+            int mask = 0;
+            for (String day : spec.split(",")) {
+                mask |= 1 << (weekday(day.trim()).getValue() - 1);
+            }
+            return new HabitSchedule(mask, 0);
+        }
+        throw new IllegalArgumentException("Invalid frequency: " + frequency);
+    }
+
+    private static DayOfWeek weekday(String name) {
+        for (DayOfWeek day : DayOfWeek.values()) {
+            String full = day.name().toLowerCase(Locale.ROOT);
+            if (!name.isEmpty() && (full.equals(name) || full.startsWith(name) && name.length() >= 3)) {
+                return day;
+            }
+        }
+        throw new IllegalArgumentException("Invalid frequency: unknown weekday '" + name + "'");
+    }
+
+    public boolean isQuota() {
+        return weeklyQuota > 0;
+    }
+
+    public boolean isDaily() {
+        return weekdayMask == 0x7F;
+    }
+
+    public int getWeekdayMask() { return weekdayMask; }
+    public int getWeeklyQuota() { return weeklyQuota; }
+
+    public boolean isDue(LocalDate day) {
+        return isQuota() || (weekdayMask & (1 << (day.getDayOfWeek().getValue() - 1))) != 0;
+    }
+
+    /**
+     * Completions expected in any 7 consecutive days.
+     */
+    public int expectedPerWeek() {
+        return isQuota() ? weeklyQuota : Integer.bitCount(weekdayMask);
+    }
+
+    /**
+     * The most recent due day strictly before {@code day} (weekday schedules only; at most 7 steps).
+     */
+    public LocalDate previousDueDay(LocalDate day) {
+        LocalDate candidate = day.minusDays(1);
+        while (!isDue(candidate)) {
+            candidate = candidate.minusDays(1);
+        }
+        return candidate;
+    }
+
+    public static LocalDate weekStart(LocalDate day) {
+        return day.minusDays(day.getDayOfWeek().getValue() - 1L);
+    }
+
+    /**
+     * Updates the streak fields of {@code habit} for a completion on {@code day}, which must be later than
+     * every earlier completion. The caller sets lastCompletedDate afterwards.
+     */
+    public void applyCompletion(Habit habit, LocalDate day) {
+        int extended = habit.getCurrentStreak(); // the run this completion may extend; 0 once it has ended
+        if (isQuota()) {
+            String week = weekStart(day).toString();
+            if (week.equals(habit.getPeriodStart())) {
+                habit.setPeriodCompletions(habit.getPeriodCompletions() + 1);
+            } else {
+                boolean previousWeekMet = weekStart(day).minusWeeks(1).toString().equals(habit.getPeriodStart())
+                        && habit.getPeriodCompletions() >= weeklyQuota;
+                if (!previousWeekMet) {
+                    habit.setCurrentStreak(0);
+                    extended = 0;
+                }
+                habit.setPeriodStart(week);
+                habit.setPeriodCompletions(1);
+            }
+            // The week counts towards the streak the moment its quota is reached
+            if (habit.getPeriodCompletions() == weeklyQuota) {
+                habit.setCurrentStreak(habit.getCurrentStreak() + 1);
+            }
+        } else {
+            boolean intact = isIntact(habit.getLastCompletedDate(), day);
+            if (!intact) extended = 0;
+            if (!isDue(day)) {
+                // Off-schedule completions never extend a streak, but they must not mask a missed due day either
+                if (!intact) habit.setCurrentStreak(0);
+            } else {
+                habit.setCurrentStreak(intact ? habit.getCurrentStreak() + 1 : 1);
+            }
+        }
+        // A run that grew replaces its shorter self in the counts; one that ended stays counted as it was
+        if (habit.getCurrentStreak() > extended) {
+            habit.countRun(extended, -1);
+            habit.countRun(habit.getCurrentStreak(), 1);
+        }
+        if (habit.getCurrentStreak() > habit.getLongestStreak()) {
+            habit.setLongestStreak(habit.getCurrentStreak());
+        }
+    }
+
+    /**
+     * Whether a streak with the given state is still alive on {@code today}, i.e. no due day
+     * (or week quota) has been missed yet.
+     */
+    public boolean isStreakIntact(String lastCompletedDate, String periodStart, int periodCompletions, LocalDate today) {
+        if (!isQuota()) {
+            return today.toString().equals(lastCompletedDate) || isIntact(lastCompletedDate, today);
+        }
+        LocalDate thisWeek = weekStart(today);
+        int remainingDays = (int) ChronoUnit.DAYS.between(today, thisWeek.plusDays(7));
+        if (thisWeek.toString().equals(periodStart)) {
+            return periodCompletions + remainingDays >= weeklyQuota || periodCompletions >= weeklyQuota;
+        }
+        boolean previousWeekMet = thisWeek.minusWeeks(1).toString().equals(periodStart) && periodCompletions >= weeklyQuota;
+        return previousWeekMet && remainingDays >= weeklyQuota;
+    }
+
+    private boolean isIntact(String lastCompletedDate, LocalDate day) {
+        if (lastCompletedDate == null) return false;
+        return !LocalDate.parse(lastCompletedDate).isBefore(previousDueDay(day));
+    }
+}
@@ -0,0 +1,160 @@
+package com.productivity.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user rolling habit aggregates, kept current on every completion so dashboard intelligence
+ * can be served from one document. Completion counts for the trailing 30 days live in a ring indexed
+ * by epoch day; the weighted, 30-day and 7-day sums are maintained alongside and rolled forward
+ * lazily when the aggregates are next touched on a later day.
+ */
+public class HabitStats {
+    public static final int WINDOW = 30;
+    public static final int WEEK = 7;
+
+    private long anchorEpochDay;              // "today" as of the last roll
+    private long[] dayCounts = new long[WINDOW]; // completions per day, slot = epochDay mod 30
+    private long weightedSum;                 // Σ completions × (30 - age in days)
+    private long windowSum;                   // completions in the last 30 days
+    private long weekSum;                     // completions in the last 7 days
+    private Map<String, HabitState> habits = new HashMap<>();
+
+    public HabitStats() {}
+
+    public HabitStats(long anchorEpochDay) {
+        this.anchorEpochDay = anchorEpochDay;
+    }
+
+    @SuppressWarnings("unchecked")
+    public HabitStats(Map<String, Object> data) {
+        this.anchorEpochDay = longValue(data.get("anchorEpochDay"));
+        List<Object> counts = (List<Object>) data.get("dayCounts");
+        if (counts != null) {
+            for (int i = 0; i < Math.min(counts.size(), WINDOW); i++) {
+                dayCounts[i] = longValue(counts.get(i));
+            }
+        }
+        this.weightedSum = longValue(data.get("weightedSum"));
+        this.windowSum = longValue(data.get("windowSum"));
+        this.weekSum = longValue(data.get("weekSum"));
+        Map<String, Object> states = (Map<String, Object>) data.get("habits");
+        if (states != null) {
+            states.forEach((id, state) -> habits.put(id, new HabitState((Map<String, Object>) state)));
+        }
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("anchorEpochDay", anchorEpochDay);
+        List<Long> counts = new ArrayList<>(WINDOW);
+        for (long count : dayCounts) counts.add(count);
+        map.put("dayCounts", counts);
+        map.put("weightedSum", weightedSum);
+        map.put("windowSum", windowSum);
+        map.put("weekSum", weekSum);
+        Map<String, Object> states = new HashMap<>();
+        habits.forEach((id, state) -> states.put(id, state.toMap()));
+        map.put("habits", states);
+        return map;
+    }
+
+    private static int slot(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) WINDOW);
+    }
+
+    /**
+     * Advances the window to {@code todayEpochDay}. Each elapsed day ages every counted completion
+     * by one, which lowers the weighted sum by the window sum, and drops the day falling out of the
+     * 30- and 7-day windows. At most 30 steps, however long the user was away.
+     */
+    public void rollTo(long todayEpochDay) {
+        long elapsed = todayEpochDay - anchorEpochDay;
+        if (elapsed <= 0) return;
+        for (long step = 1; step <= Math.min(elapsed, WINDOW); step++) {
+            long day = anchorEpochDay + step;
+            weightedSum -= windowSum;
+            windowSum -= dayCounts[slot(day - WINDOW)];
+            weekSum -= dayCounts[slot(day - WEEK)];
+            dayCounts[slot(day)] = 0;
+        }
+        anchorEpochDay = todayEpochDay;
+    }
+
+    /**
+     * Adds (or with a negative delta removes) completions on a day; days outside the window are ignored.
+     * Call {@link #rollTo} first.
+     */
+    public void record(long epochDay, long delta) {
+        long age = anchorEpochDay - epochDay;
+        if (age < 0 || age >= WINDOW) return;
+        dayCounts[slot(epochDay)] += delta;
+        windowSum += delta;
+        weightedSum += (WINDOW - age) * delta;
+        if (age < WEEK) weekSum += delta;
+    }
+
+    public long getAnchorEpochDay() { return anchorEpochDay; }
+    public long getWeightedSum() { return weightedSum; }
+    public long getWindowSum() { return windowSum; }
+    public long getWeekSum() { return weekSum; }
+    public Map<String, HabitState> getHabits() { return habits; }
+
+    private static long longValue(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+
+    /**
+     * The slice of a habit the intelligence metrics need (schedule, streak and risk), mirrored from the habit document.
+     */
+    public static class HabitState {
+        private String frequency;
+        private int currentStreak;
+        private String lastCompletedDate;
+        private String periodStart;
+        private int periodCompletions;
+
+        public HabitState() {}
+
+        public HabitState(Habit habit) {
+            this.frequency = habit.getFrequency();
+            this.currentStreak = habit.getCurrentStreak();
+            this.lastCompletedDate = habit.getLastCompletedDate();
+            this.periodStart = habit.getPeriodStart();
+            this.periodCompletions = habit.getPeriodCompletions();
+        }
+
+        public HabitState(Map<String, Object> data) {
+            this.frequency = (String) data.get("frequency");
+            this.currentStreak = data.get("currentStreak") != null ? ((Number) data.get("currentStreak")).intValue() : 0;
+            this.lastCompletedDate = (String) data.get("lastCompletedDate");
+            this.periodStart = (String) data.get("periodStart");
+            this.periodCompletions = data.get("periodCompletions") != null ? ((Number) data.get("periodCompletions")).intValue() : 0;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            if (frequency != null) map.put("frequency", frequency);
+            map.put("currentStreak", currentStreak);
+            if (lastCompletedDate != null) map.put("lastCompletedDate", lastCompletedDate);
+            if (periodStart != null) {
+                map.put("periodStart", periodStart);
+                map.put("periodCompletions", periodCompletions);
+            }
+            return map;
+        }
+
+        public String getFrequency() { return frequency; }
+        public void setFrequency(String frequency) { this.frequency = frequency; }
+        public int getCurrentStreak() { return currentStreak; }
+        public void setCurrentStreak(int currentStreak) { this.currentStreak = currentStreak; }
+        public String getLastCompletedDate() { return lastCompletedDate; }
+        public void setLastCompletedDate(String lastCompletedDate) { this.lastCompletedDate = lastCompletedDate; }
+        public String getPeriodStart() { return periodStart; }
+        public void setPeriodStart(String periodStart) { this.periodStart = periodStart; }
+        public int getPeriodCompletions() { return periodCompletions; }
+        public void setPeriodCompletions(int periodCompletions) { this.periodCompletions = periodCompletions; }
+    }
+}
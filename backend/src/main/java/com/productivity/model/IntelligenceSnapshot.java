@@ -0,0 +1,64 @@
+package com.productivity.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A user's habit intelligence as of one day. Stored compactly as a four-number array
+ * (consistencyScore, riskCount, longestStreak, weeklyCompletionRate) keyed by date in a yearly document.
+ */
+public class IntelligenceSnapshot {
+    private String date; // YYYY-MM-DD
+    private int consistencyScore;
+    private int riskCount;
+    private int longestStreak;
+    private int weeklyCompletionRate;
+
+    public IntelligenceSnapshot() {}
+
+    public IntelligenceSnapshot(LocalDate date, int consistencyScore, int riskCount, int longestStreak,
+                                int weeklyCompletionRate) {
+        this.date = date.toString();
+        this.consistencyScore = consistencyScore;
+        this.riskCount = riskCount;
+        this.longestStreak = longestStreak;
+        this.weeklyCompletionRate = weeklyCompletionRate;
+    }
+
+    public IntelligenceSnapshot(List<Object> values, String date) {
+        this.date = date;
+        this.consistencyScore = intValue(values, 0);
+        this.riskCount = intValue(values, 1);
+        this.longestStreak = intValue(values, 2);
+        this.weeklyCompletionRate = intValue(values, 3);
+    }
+
+    public List<Long> toValues() {
+        return List.of((long) consistencyScore, (long) riskCount, (long) longestStreak, (long) weeklyCompletionRate);
+    }
+
+    public static String yearOf(String date) {
+        return date.substring(0, 4);
+    }
+
+    public boolean sameAs(IntelligenceSnapshot other) {
+        return other != null && date.equals(other.date) && consistencyScore == other.consistencyScore
+                && riskCount == other.riskCount && longestStreak == other.longestStreak
+                && weeklyCompletionRate == other.weeklyCompletionRate;
+    }
+
+    private static int intValue(List<Object> values, int index) {
+        return index < values.size() && values.get(index) != null ? ((Number) values.get(index)).intValue() : 0;
+    }
+
+    public String getDate() { return date; }
+    public void setDate(String date) { this.date = date; }
+    public int getConsistencyScore() { return consistencyScore; }
+    public void setConsistencyScore(int consistencyScore) { this.consistencyScore = consistencyScore; }
+    public int getRiskCount() { return riskCount; }
+    public void setRiskCount(int riskCount) { this.riskCount = riskCount; }
+    public int getLongestStreak() { return longestStreak; }
+    public void setLongestStreak(int longestStreak) { this.longestStreak = longestStreak; }
+    public int getWeeklyCompletionRate() { return weeklyCompletionRate; }
+    public void setWeeklyCompletionRate(int weeklyCompletionRate) { this.weeklyCompletionRate = weeklyCompletionRate; }
+}
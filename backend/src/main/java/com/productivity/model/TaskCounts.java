@@ -0,0 +1,104 @@
+package com.productivity.model;
+
+import com.google.cloud.firestore.FieldValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Denormalized per-user task counters. Stored split across a few shard documents;
+ * the user's totals are the sum over all shards.
+ */
+public class TaskCounts {
+    private long total;
+    private long todo;
+    private long inProgress;
+    private long done;
+    private long overdueCandidates; // not done and has a deadline
+
+    public TaskCounts() {}
+
+    public TaskCounts(Map<String, Object> data) {
+        this.total = longValue(data.get("total"));
+        this.todo = longValue(data.get("todo"));
+        this.inProgress = longValue(data.get("inProgress"));
+        this.done = longValue(data.get("done"));
+        this.overdueCandidates = longValue(data.get("overdueCandidates"));
+    }
+
+    /**
+     * The contribution of a single task to the counters; a null task contributes nothing.
+     */
+    public static TaskCounts of(Task task) {
+        TaskCounts counts = new TaskCounts();
+        if (task == null) return counts;
+        counts.total = 1;
+        if ("todo".equals(task.getStatus())) counts.todo = 1;
+        if ("in-progress".equals(task.getStatus())) counts.inProgress = 1;
+        if ("done".equals(task.getStatus())) counts.done = 1;
+        if (!"done".equals(task.getStatus()) && task.getDeadline() != null) counts.overdueCandidates = 1;
+        return counts;
+    }
+
+    public TaskCounts plus(TaskCounts other) {
+        TaskCounts sum = new TaskCounts();
+        sum.total = total + other.total;
+        sum.todo = todo + other.todo;
+        sum.inProgress = inProgress + other.inProgress;
+        sum.done = done + other.done;
+        sum.overdueCandidates = overdueCandidates + other.overdueCandidates;
+        return sum;
+    }
+
+    public TaskCounts minus(TaskCounts other) {
+        TaskCounts diff = new TaskCounts();
+        diff.total = total - other.total;
+        diff.todo = todo - other.todo;
+        diff.inProgress = inProgress - other.inProgress;
+        diff.done = done - other.done;
+        diff.overdueCandidates = overdueCandidates - other.overdueCandidates;
+        return diff;
+    }
+
+    public boolean isZero() {
+        return total == 0 && todo == 0 && inProgress == 0 && done == 0 && overdueCandidates == 0;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("total", total);
+        map.put("todo", todo);
+        map.put("inProgress", inProgress);
+        map.put("done", done);
+        map.put("overdueCandidates", overdueCandidates);
+        return map;
+    }
+
+    /**
+     * Field transforms that add this delta to a shard document without reading it.
+     */
+    public Map<String, Object> toIncrementMap() {
+        Map<String, Object> map = new HashMap<>();
+        if (total != 0) map.put("total", FieldValue.increment(total));
+        if (todo != 0) map.put("todo", FieldValue.increment(todo));
+        if (inProgress != 0) map.put("inProgress", FieldValue.increment(inProgress));
+        if (done != 0) map.put("done", FieldValue.increment(done));
+        if (overdueCandidates != 0) map.put("overdueCandidates", FieldValue.increment(overdueCandidates));
+        return map;
+    }
+
+    private static long longValue(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+    public long getTodo() { return todo; }
+    public void setTodo(long todo) { this.todo = todo; }
+    public long getInProgress() { return inProgress; }
+    public void setInProgress(long inProgress) { this.inProgress = inProgress; }
+    public long getDone() { return done; }
+    public void setDone(long done) { this.done = done; }
+    public long getOverdueCandidates() { return overdueCandidates; }
+    public void setOverdueCandidates(long overdueCandidates) { this.overdueCandidates = overdueCandidates; }
+}
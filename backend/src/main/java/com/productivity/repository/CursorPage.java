@@ -0,0 +1,29 @@
+package com.productivity.repository;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of a keyset-paginated query plus the opaque cursors for its neighbours.
+ * A null cursor means there is no page in that direction.
+ */
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+    private final String prevCursor;
+
+    public CursorPage(List<T> items, String nextCursor, String prevCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(items.stream().map(mapper).collect(Collectors.toList()), nextCursor, prevCursor);
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public String getPrevCursor() { return prevCursor; }
+}
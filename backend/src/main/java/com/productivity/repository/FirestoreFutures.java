@@ -0,0 +1,52 @@
+package com.productivity.repository;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Status;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bridges Firestore's {@link ApiFuture} to {@link CompletableFuture} without parking a thread.
+ * Callbacks run on the Firestore client thread that completed the RPC, so continuations
+ * chained on the result should stay cheap (mapping, not blocking I/O).
+ */
+public final class FirestoreFutures {
+
+    private FirestoreFutures() {}
+
+    public static <T> CompletableFuture<T> toCompletable(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    /**
+     * Whether a failed future's error, or any of its causes, is an RPC error with the given status code.
+     */
+    public static boolean hasStatus(Throwable error, Status.Code code) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof ApiException api && api.getStatusCode().getCode().name().equals(code.name())) {
+                return true;
+            }
+            if (t instanceof FirestoreException fe && fe.getStatus() != null && fe.getStatus().getCode() == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,59 +1,491 @@
 package com.productivity.repository;
 
-import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
+import com.productivity.model.HabitHistory;
 import com.productivity.model.HabitLog;
+import com.productivity.model.HabitLogMonth;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
+/**
+ * Habit logs are stored as one bitmap document per habit and month
+ * ({@code users/{uid}/habits/{habitId}/logMonths/{YYYY-MM}}), see {@link HabitLogMonth}.
+ * The API still speaks in per-day {@link HabitLog}s; a 30-day range costs one or two document reads.
+ *
+ * Logs from before the monthly layout live at {@code .../logs/{YYYY-MM-DD}}. They are folded into
+ * month documents once per user, on first access or by the startup migration job.
+ */
 @Repository
 public class HabitLogRepository {
 
     private static final Logger log = LoggerFactory.getLogger(HabitLogRepository.class);
     private final Firestore firestore;
 
+    // Users whose daily logs are known to be migrated, so the marker is read once per process
+    private final Set<String> migratedUsers = ConcurrentHashMap.newKeySet();
+    // Migrations in progress, so concurrent first requests for a user share one run
+    private final Map<String, CompletableFuture<Void>> migrations = new ConcurrentHashMap<>();
+
     public HabitLogRepository(Firestore firestore) {
         this.firestore = firestore;
     }
 
-    private CollectionReference getCollection(String userId, String habitId) {
-        return firestore.collection("users").document(userId)
-                .collection("habits").document(habitId).collection("logs");
+    private CollectionReference getHabits(String userId) {
+        return firestore.collection("users").document(userId).collection("habits");
     }
 
-    public HabitLog save(String userId, String habitId, HabitLog habitLog) throws ExecutionException, InterruptedException {
-        getCollection(userId, habitId).document(habitLog.getDate()).set(habitLog.toMap()).get();
-        log.info("HabitLog saved: date={} habit={} user={}", habitLog.getDate(), habitId, userId);
-        return habitLog;
+    private CollectionReference getMonthCollection(String userId, String habitId) {
+        return getHabits(userId).document(habitId).collection("logMonths");
     }
 
-    public Optional<HabitLog> findByDate(String userId, String habitId, String date) throws ExecutionException, InterruptedException {
-        DocumentSnapshot doc = getCollection(userId, habitId).document(date).get().get();
-        if (doc.exists()) {
-            return Optional.of(new HabitLog(doc.getData(), doc.getId()));
+    private CollectionReference getLegacyCollection(String userId, String habitId) {
+        return getHabits(userId).document(habitId).collection("logs");
+    }
+
+    private DocumentReference getMigrationMarker(String userId) {
+        return firestore.collection("users").document(userId).collection("migrations").document("habitLogMonths");
+    }
+
+    private static List<HabitLog> decode(QuerySnapshot snapshot, LocalDate from, LocalDate to) {
+        List<HabitLog> logs = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+            logs.addAll(new HabitLogMonth(doc.getData(), doc.getId()).toLogs(from, to));
         }
-        return Optional.empty();
+        return logs;
     }
 
-    public List<HabitLog> findByDateRange(String userId, String habitId, String startDate, String endDate)
+    // ─── Non-blocking API ────────────────────────────────────────────────────
+
+    public CompletableFuture<HabitLog> saveAsync(String userId, String habitId, HabitLog habitLog) {
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            save(transaction, userId, habitId, habitLog);
+            return habitLog;
+        })).thenApply(saved -> {
+            log.info("HabitLog saved: date={} habit={} user={}", saved.getDate(), habitId, userId);
+            return saved;
+        });
+    }
+
+    /**
+     * Stages the log write on an open transaction so it commits together with the caller's other writes.
+     * Reads the month document first, so it must be called before the transaction's other writes.
+     */
+    public void save(Transaction transaction, String userId, String habitId, HabitLog habitLog)
             throws ExecutionException, InterruptedException {
-        Query query = getCollection(userId, habitId)
-                .whereGreaterThanOrEqualTo(FieldPath.documentId(), startDate)
-                .whereLessThanOrEqualTo(FieldPath.documentId(), endDate);
+        saveAll(transaction, userId, Map.of(habitId, habitLog));
+    }
 
-        List<HabitLog> logs = new ArrayList<>();
-        ApiFuture<QuerySnapshot> future = query.get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+    /**
+     * Stages one log per habit on an open transaction, reading all month documents with a single getAll.
+     * Must be called before the transaction's other writes.
+     */
+    public void saveAll(Transaction transaction, String userId, Map<String, HabitLog> logsByHabit)
+            throws ExecutionException, InterruptedException {
+        if (logsByHabit.isEmpty()) return;
+        List<String> habitIds = new ArrayList<>(logsByHabit.keySet());
+        DocumentReference[] monthRefs = new DocumentReference[habitIds.size()];
+        for (int i = 0; i < monthRefs.length; i++) {
+            HabitLog habitLog = logsByHabit.get(habitIds.get(i));
+            habitLog.setUserId(userId);
+            habitLog.setHabitId(habitIds.get(i));
+            monthRefs[i] = getMonthCollection(userId, habitIds.get(i)).document(HabitLogMonth.monthOf(habitLog.getDate()));
+        }
 
-        for (QueryDocumentSnapshot doc : documents) {
-            logs.add(new HabitLog(doc.getData(), doc.getId()));
+        List<DocumentSnapshot> monthDocs = transaction.getAll(monthRefs).get();
+        for (int i = 0; i < monthRefs.length; i++) {
+            DocumentSnapshot monthDoc = monthDocs.get(i);
+            HabitLogMonth month = monthDoc.exists()
+                    ? new HabitLogMonth(monthDoc.getData(), monthDoc.getId())
+                    : new HabitLogMonth(userId, habitIds.get(i), YearMonth.parse(monthRefs[i].getId()));
+            month.apply(logsByHabit.get(habitIds.get(i)));
+            transaction.set(monthRefs[i], month.toMap());
         }
-        return logs;
+    }
+
+    /**
+     * Adds {@code delta} to a day's progress with an atomic server-side increment (no transaction, so
+     * concurrent increments never contend), then reads the day back. Resolves to the day's log with its
+     * new progress and current completion flag.
+     */
+    public CompletableFuture<HabitLog> incrementProgressAsync(String userId, String habitId, String date, long delta) {
+        int day = LocalDate.parse(date).getDayOfMonth();
+        DocumentReference monthRef = getMonthCollection(userId, habitId).document(HabitLogMonth.monthOf(date));
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("month", monthRef.getId());
+        fields.put("userId", userId);
+        fields.put("habitId", habitId);
+        fields.put("progress", Map.of(String.valueOf(day), FieldValue.increment(delta)));
+
+        return FirestoreFutures.toCompletable(monthRef.set(fields, SetOptions.merge()))
+                .thenCompose(result -> FirestoreFutures.toCompletable(monthRef.get()))
+                .thenApply(doc -> {
+                    HabitLogMonth month = new HabitLogMonth(doc.getData(), doc.getId());
+                    HabitLog habitLog = new HabitLog();
+                    habitLog.setDate(date);
+                    habitLog.setUserId(userId);
+                    habitLog.setHabitId(habitId);
+                    habitLog.setCompleted(month.isCompleted(day));
+                    Long value = month.progressOf(day);
+                    habitLog.setValue(value != null ? value : 0L);
+                    return habitLog;
+                });
+    }
+
+    public CompletableFuture<Optional<HabitLog>> findByDateAsync(String userId, String habitId, String date) {
+        LocalDate day = LocalDate.parse(date);
+        DocumentReference monthRef = getMonthCollection(userId, habitId).document(HabitLogMonth.monthOf(date));
+        return ensureMigratedAsync(userId)
+                .thenCompose(ignored -> FirestoreFutures.toCompletable(monthRef.get()))
+                .thenApply(doc -> {
+                    if (doc.exists()) {
+                        return new HabitLogMonth(doc.getData(), doc.getId()).toLogs(day, day).stream().findFirst();
+                    }
+                    return Optional.empty();
+                });
+    }
+
+    public CompletableFuture<List<HabitLog>> findByDateRangeAsync(String userId, String habitId, String startDate, String endDate) {
+        LocalDate from = LocalDate.parse(startDate);
+        LocalDate to = LocalDate.parse(endDate);
+        Query query = monthsQuery(userId, habitId, startDate, endDate);
+
+        return ensureMigratedAsync(userId)
+                .thenCompose(ignored -> FirestoreFutures.toCompletable(query.get()))
+                .thenApply(snapshot -> decode(snapshot, from, to));
+    }
+
+    /**
+     * Same as {@link #findByDateRangeAsync}, read through an open transaction. The caller is
+     * responsible for having run {@link #ensureMigratedAsync} first.
+     */
+    public List<HabitLog> findByDateRange(Transaction transaction, String userId, String habitId, String startDate,
+                                          String endDate) throws ExecutionException, InterruptedException {
+        return decode(transaction.get(monthsQuery(userId, habitId, startDate, endDate)).get(),
+                LocalDate.parse(startDate), LocalDate.parse(endDate));
+    }
+
+    private Query monthsQuery(String userId, String habitId, String startDate, String endDate) {
+        return getMonthCollection(userId, habitId)
+                .whereGreaterThanOrEqualTo(FieldPath.documentId(), HabitLogMonth.monthOf(startDate))
+                .whereLessThanOrEqualTo(FieldPath.documentId(), HabitLogMonth.monthOf(endDate));
+    }
+
+    /**
+     * A habit's completions in [from, to] as a bitset, built directly from the month bitmaps
+     * without materializing per-day logs.
+     */
+    public CompletableFuture<HabitHistory> findHistoryAsync(String userId, String habitId, LocalDate from, LocalDate to) {
+        Query query = getMonthCollection(userId, habitId)
+                .whereGreaterThanOrEqualTo(FieldPath.documentId(), HabitLogMonth.monthOf(from.toString()))
+                .whereLessThanOrEqualTo(FieldPath.documentId(), HabitLogMonth.monthOf(to.toString()));
+        return ensureMigratedAsync(userId)
+                .thenCompose(ignored -> FirestoreFutures.toCompletable(query.get()))
+                .thenApply(snapshot -> {
+                    HabitHistory history = new HabitHistory(from, to);
+                    for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                        new HabitLogMonth(doc.getData(), doc.getId()).copyInto(history);
+                    }
+                    return history;
+                });
+    }
+
+    /**
+     * Bitset histories of all the user's habits over [from, to], keyed by habitId, from one collection-group query.
+     */
+    public CompletableFuture<Map<String, HabitHistory>> findAllHistoriesAsync(String userId, LocalDate from, LocalDate to) {
+        Query query = allMonthsQuery(userId, from.toString(), to.toString());
+        return ensureMigratedAsync(userId)
+                .thenCompose(ignored -> FirestoreFutures.toCompletable(query.get()))
+                .thenApply(snapshot -> {
+                    Map<String, HabitHistory> histories = new LinkedHashMap<>();
+                    for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                        HabitLogMonth month = new HabitLogMonth(doc.getData(), doc.getId());
+                        month.copyInto(histories.computeIfAbsent(month.getHabitId(), id -> new HabitHistory(from, to)));
+                    }
+                    return histories;
+                });
+    }
+
+    /**
+     * Logs of all the user's habits within a date range, grouped by habitId, in a single
+     * collection-group query. Needs a collection-group index on {@code logMonths} (userId asc, month asc).
+     */
+    public CompletableFuture<Map<String, List<HabitLog>>> findAllByDateRangeAsync(String userId, String startDate,
+                                                                                 String endDate) {
+        Query query = allMonthsQuery(userId, startDate, endDate);
+        return ensureMigratedAsync(userId)
+                .thenCompose(ignored -> FirestoreFutures.toCompletable(query.get()))
+                .thenApply(snapshot -> groupByHabit(snapshot, startDate, endDate));
+    }
+
+    /**
+     * Same as {@link #findAllByDateRangeAsync}, read through an open transaction. The caller is
+     * responsible for having run {@link #ensureMigratedAsync} first.
+     */
+    public Map<String, List<HabitLog>> findAllByDateRange(Transaction transaction, String userId, String startDate,
+                                                          String endDate) throws ExecutionException, InterruptedException {
+        return groupByHabit(transaction.get(allMonthsQuery(userId, startDate, endDate)).get(), startDate, endDate);
+    }
+
+    private Query allMonthsQuery(String userId, String startDate, String endDate) {
+        return firestore.collectionGroup("logMonths")
+                .whereEqualTo("userId", userId)
+                .whereGreaterThanOrEqualTo("month", HabitLogMonth.monthOf(startDate))
+                .whereLessThanOrEqualTo("month", HabitLogMonth.monthOf(endDate))
+                .orderBy("month", Query.Direction.ASCENDING);
+    }
+
+    private static Map<String, List<HabitLog>> groupByHabit(QuerySnapshot snapshot, String startDate, String endDate) {
+        LocalDate from = LocalDate.parse(startDate);
+        LocalDate to = LocalDate.parse(endDate);
+        Map<String, List<HabitLog>> logsByHabit = new LinkedHashMap<>();
+        for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+            HabitLogMonth month = new HabitLogMonth(doc.getData(), doc.getId());
+            logsByHabit.computeIfAbsent(month.getHabitId(), id -> new ArrayList<>()).addAll(month.toLogs(from, to));
+        }
+        return logsByHabit;
+    }
+
+    /**
+     * Folds the user's legacy per-day log documents into month documents, once. Merging only ever sets
+     * bits, so it is safe to run concurrently with new completions or to re-run after a partial failure;
+     * the marker document is written last. Legacy documents are left in place.
+     */
+    public CompletableFuture<Void> ensureMigratedAsync(String userId) {
+        if (migratedUsers.contains(userId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> migration = new CompletableFuture<>();
+        CompletableFuture<Void> inProgress = migrations.putIfAbsent(userId, migration);
+        if (inProgress != null) {
+            return inProgress;
+        }
+        runMigrationAsync(userId).whenComplete((result, ex) -> {
+            migrations.remove(userId, migration);
+            if (ex != null) {
+                migration.completeExceptionally(ex);
+            } else {
+                migration.complete(null);
+            }
+        });
+        return migration;
+    }
+
+    private CompletableFuture<Void> runMigrationAsync(String userId) {
+        DocumentReference marker = getMigrationMarker(userId);
+        return FirestoreFutures.toCompletable(marker.get()).thenCompose(markerDoc -> {
+            if (markerDoc.exists()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return migrateAsync(userId).thenCompose(migrated -> {
+                Map<String, Object> data = new HashMap<>();
+                data.put("migratedLogs", migrated);
+                data.put("completedAt", Timestamp.now());
+                log.info("Migrated {} daily habit logs to monthly storage for user: {}", migrated, userId);
+                return FirestoreFutures.toCompletable(marker.set(data));
+            });
+        }).thenAccept(result -> migratedUsers.add(userId));
+    }
+
+    private CompletableFuture<Integer> migrateAsync(String userId) {
+        Query habitIds = getHabits(userId).select(FieldPath.documentId());
+        return FirestoreFutures.toCompletable(habitIds.get()).thenCompose(habits -> {
+            List<CompletableFuture<Integer>> perHabit = new ArrayList<>();
+            for (QueryDocumentSnapshot habit : habits.getDocuments()) {
+                perHabit.add(migrateHabitAsync(userId, habit.getId()));
+            }
+            return CompletableFuture.allOf(perHabit.toArray(new CompletableFuture[0]))
+                    .thenApply(ignored -> perHabit.stream().mapToInt(CompletableFuture::join).sum());
+        });
+    }
+
+    private CompletableFuture<Integer> migrateHabitAsync(String userId, String habitId) {
+        return FirestoreFutures.toCompletable(getLegacyCollection(userId, habitId).get()).thenCompose(snapshot -> {
+            Map<String, List<HabitLog>> byMonth = new TreeMap<>();
+            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                HabitLog legacy = new HabitLog(doc.getData(), doc.getId());
+                // Incomplete entries are skipped so a migration never clears a bit set by a newer write
+                if (legacy.isCompleted()) {
+                    byMonth.computeIfAbsent(HabitLogMonth.monthOf(legacy.getDate()), m -> new ArrayList<>()).add(legacy);
+                }
+            }
+
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            byMonth.forEach((month, logs) -> {
+                DocumentReference monthRef = getMonthCollection(userId, habitId).document(month);
+                writes.add(FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+                    DocumentSnapshot monthDoc = transaction.get(monthRef).get();
+                    HabitLogMonth merged = monthDoc.exists()
+                            ? new HabitLogMonth(monthDoc.getData(), monthDoc.getId())
+                            : new HabitLogMonth(userId, habitId, YearMonth.parse(month));
+                    for (HabitLog legacy : logs) {
+                        int day = LocalDate.parse(legacy.getDate()).getDayOfMonth();
+                        if (!merged.isCompleted(day)) {
+                            merged.apply(legacy);
+                        }
+                    }
+                    transaction.set(monthRef, merged.toMap());
+                    return null;
+                })));
+            });
+            int migrated = byMonth.values().stream().mapToInt(List::size).sum();
+            return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).thenApply(ignored -> migrated);
+        });
+    }
+
+    /**
+     * Opens a lazily loaded view of one habit's month documents on a transaction, for edits that need to
+     * look at the days around them. Must be used before the transaction's other writes.
+     */
+    public LogSession openSession(Transaction transaction, String userId, String habitId) {
+        return new LogSession(transaction, userId, habitId);
+    }
+
+    /**
+     * Month documents of one habit read through a transaction on first access, edited in memory and
+     * staged on the transaction by {@link #flush()}. Months without a document read as empty.
+     */
+    public final class LogSession {
+        private static final int PAGE_SIZE = 6;
+
+        private final Transaction transaction;
+        private final String userId;
+        private final String habitId;
+        private final Map<YearMonth, HabitLogMonth> months = new HashMap<>();
+        private final Set<YearMonth> dirty = new LinkedHashSet<>();
+
+        private LogSession(Transaction transaction, String userId, String habitId) {
+            this.transaction = transaction;
+            this.userId = userId;
+            this.habitId = habitId;
+        }
+
+        public boolean isCompleted(LocalDate day) throws ExecutionException, InterruptedException {
+            return month(YearMonth.from(day)).isCompleted(day.getDayOfMonth());
+        }
+
+        /**
+         * Sets or clears a day in memory; written by {@link #flush()}.
+         */
+        public void set(LocalDate day, boolean completed, Timestamp completedAt)
+                throws ExecutionException, InterruptedException {
+            HabitLog habitLog = new HabitLog();
+            habitLog.setDate(day.toString());
+            habitLog.setCompleted(completed);
+            habitLog.setCompletedAt(completedAt);
+            YearMonth ym = YearMonth.from(day);
+            month(ym).apply(habitLog);
+            dirty.add(ym);
+        }
+
+        /**
+         * Reads every month in [from, to] with one query, keeping months already loaded.
+         */
+        public void loadRange(LocalDate from, LocalDate to) throws ExecutionException, InterruptedException {
+            Query query = getMonthCollection(userId, habitId)
+                    .whereGreaterThanOrEqualTo(FieldPath.documentId(), YearMonth.from(from).toString())
+                    .whereLessThanOrEqualTo(FieldPath.documentId(), YearMonth.from(to).toString());
+            for (QueryDocumentSnapshot doc : transaction.get(query).get().getDocuments()) {
+                months.putIfAbsent(YearMonth.parse(doc.getId()), new HabitLogMonth(doc.getData(), doc.getId()));
+            }
+            for (YearMonth ym = YearMonth.from(from); !ym.isAfter(YearMonth.from(to)); ym = ym.plusMonths(1)) {
+                months.putIfAbsent(ym, new HabitLogMonth(userId, habitId, ym));
+            }
+        }
+
+        /**
+         * The latest completed day strictly before {@code day} and not before {@code floor}. Earlier months
+         * are paged newest first, so the cost depends on the gap to that completion, not on the history.
+         */
+        public Optional<LocalDate> lastCompletedBefore(LocalDate day, LocalDate floor)
+                throws ExecutionException, InterruptedException {
+            YearMonth ym = YearMonth.from(day);
+            int inMonth = month(ym).lastCompletedDayBefore(day.getDayOfMonth());
+            if (inMonth > 0) {
+                return atLeast(ym.atDay(inMonth), floor);
+            }
+
+            Query query = getMonthCollection(userId, habitId)
+                    .whereLessThan(FieldPath.documentId(), ym.toString())
+                    .whereGreaterThanOrEqualTo(FieldPath.documentId(), YearMonth.from(floor).toString())
+                    .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                    .limit(PAGE_SIZE);
+            while (true) {
+                List<QueryDocumentSnapshot> docs = transaction.get(query).get().getDocuments();
+                for (QueryDocumentSnapshot doc : docs) {
+                    YearMonth earlier = YearMonth.parse(doc.getId());
+                    HabitLogMonth month = months.computeIfAbsent(earlier, k -> new HabitLogMonth(doc.getData(), doc.getId()));
+                    int last = month.lastCompletedDayBefore(32);
+                    if (last > 0) {
+                        return atLeast(earlier.atDay(last), floor);
+                    }
+                }
+                if (docs.size() < PAGE_SIZE) {
+                    return Optional.empty();
+                }
+                query = query.startAfter(docs.get(docs.size() - 1));
+            }
+        }
+
+        /**
+         * Stages the edited months on the transaction.
+         */
+        public void flush() {
+            for (YearMonth ym : dirty) {
+                transaction.set(getMonthCollection(userId, habitId).document(ym.toString()), months.get(ym).toMap());
+            }
+            dirty.clear();
+        }
+
+        private HabitLogMonth month(YearMonth ym) throws ExecutionException, InterruptedException {
+            HabitLogMonth month = months.get(ym);
+            if (month == null) {
+                DocumentSnapshot doc = transaction.get(getMonthCollection(userId, habitId).document(ym.toString())).get();
+                month = doc.exists() ? new HabitLogMonth(doc.getData(), doc.getId()) : new HabitLogMonth(userId, habitId, ym);
+                months.put(ym, month);
+            }
+            return month;
+        }
+
+        private Optional<LocalDate> atLeast(LocalDate day, LocalDate floor) {
+            return day.isBefore(floor) ? Optional.empty() : Optional.of(day);
+        }
+    }
+
+    // ─── Blocking API ────────────────────────────────────────────────────────
+
+    public HabitLog save(String userId, String habitId, HabitLog habitLog) throws ExecutionException, InterruptedException {
+        return saveAsync(userId, habitId, habitLog).get();
+    }
+
+    public Optional<HabitLog> findByDate(String userId, String habitId, String date) throws ExecutionException, InterruptedException {
+        return findByDateAsync(userId, habitId, date).get();
+    }
+
+    public List<HabitLog> findByDateRange(String userId, String habitId, String startDate, String endDate)
+            throws ExecutionException, InterruptedException {
+        return findByDateRangeAsync(userId, habitId, startDate, endDate).get();
+    }
+
+    public Map<String, List<HabitLog>> findAllByDateRange(String userId, String startDate, String endDate)
+            throws ExecutionException, InterruptedException {
+        return findAllByDateRangeAsync(userId, startDate, endDate).get();
     }
 }
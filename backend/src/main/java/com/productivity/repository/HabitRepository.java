@@ -1,6 +1,5 @@
 package com.productivity.repository;
 
-import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
 import com.productivity.model.Habit;
 import org.slf4j.Logger;
@@ -8,9 +7,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 @Repository
 public class HabitRepository {
@@ -26,7 +31,9 @@ public class HabitRepository {
         return firestore.collection("users").document(userId).collection("habits");
     }
 
-    public Habit save(String userId, Habit habit) throws ExecutionException, InterruptedException {
+    // ─── Non-blocking API ────────────────────────────────────────────────────
+
+    public CompletableFuture<Habit> saveAsync(String userId, Habit habit) {
         DocumentReference docRef;
         if (habit.getId() != null) {
             docRef = getCollection(userId).document(habit.getId());
@@ -35,31 +42,205 @@ public class HabitRepository {
             habit.setId(docRef.getId());
         }
         habit.setUserId(userId);
-        docRef.set(habit.toMap()).get();
-        log.info("Habit saved: {} for user: {}", habit.getId(), userId);
-        return habit;
+        return FirestoreFutures.toCompletable(docRef.set(habit.toMap())).thenApply(result -> {
+            log.info("Habit saved: {} for user: {}", habit.getId(), userId);
+            return habit;
+        });
     }
 
-    public Optional<Habit> findById(String userId, String habitId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot doc = getCollection(userId).document(habitId).get().get();
-        if (doc.exists()) {
-            return Optional.of(new Habit(doc.getData(), doc.getId()));
+    public CompletableFuture<Optional<Habit>> findByIdAsync(String userId, String habitId) {
+        return FirestoreFutures.toCompletable(getCollection(userId).document(habitId).get()).thenApply(doc -> {
+            if (doc.exists()) {
+                return Optional.of(new Habit(doc.getData(), doc.getId()));
+            }
+            return Optional.empty();
+        });
+    }
+
+    public CompletableFuture<List<Habit>> findAllAsync(String userId) {
+        return findAllAsync(userId, null);
+    }
+
+    /**
+     * Lists habits, optionally fetching only the given fields through a select() projection.
+     */
+    public CompletableFuture<List<Habit>> findAllAsync(String userId, String[] projection) {
+        Query query = getCollection(userId).orderBy("createdAt", Query.Direction.DESCENDING);
+        if (projection != null) {
+            query = query.select(projection);
         }
-        return Optional.empty();
+        return FirestoreFutures.toCompletable(query.get()).thenApply(snapshot -> {
+            List<Habit> habits = new ArrayList<>();
+            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                habits.add(new Habit(doc.getData(), doc.getId()));
+            }
+            return habits;
+        });
     }
 
-    public List<Habit> findAll(String userId) throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = getCollection(userId)
-                .orderBy("createdAt", Query.Direction.DESCENDING).get();
+    /**
+     * Lists the user's habits with the update time each was read at, for {@link #updateStreaksIfUnchangedAsync}.
+     */
+    public CompletableFuture<List<Versioned<Habit>>> findAllVersionedAsync(String userId) {
+        return FirestoreFutures.toCompletable(getCollection(userId).get()).thenApply(snapshot -> {
+            List<Versioned<Habit>> habits = new ArrayList<>();
+            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                habits.add(new Versioned<>(new Habit(doc.getData(), doc.getId()), doc.getUpdateTime()));
+            }
+            return habits;
+        });
+    }
+
+    /**
+     * Lists the user's habits through an open transaction. Must be called before the transaction's writes.
+     */
+    public List<Habit> findAll(Transaction transaction, String userId) throws ExecutionException, InterruptedException {
         List<Habit> habits = new ArrayList<>();
-        for (QueryDocumentSnapshot doc : future.get().getDocuments()) {
+        for (QueryDocumentSnapshot doc : transaction.get(getCollection(userId)).get().getDocuments()) {
             habits.add(new Habit(doc.getData(), doc.getId()));
         }
         return habits;
     }
 
+    /**
+     * Read-modify-write of a habit inside a Firestore transaction. The update may stage related writes
+     * (e.g. log entries) on the same transaction so everything commits atomically; concurrent updates
+     * are retried by Firestore against the fresh document. Resolves to empty if the habit does not exist.
+     */
+    public CompletableFuture<Optional<Habit>> updateInTransactionAsync(String userId, String habitId,
+                                                                       TransactionalUpdate update) {
+        DocumentReference docRef = getCollection(userId).document(habitId);
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            DocumentSnapshot doc = transaction.get(docRef).get();
+            if (!doc.exists()) {
+                return Optional.<Habit>empty();
+            }
+            Habit habit = new Habit(doc.getData(), doc.getId());
+            if (update.apply(transaction, habit)) {
+                habit.setUserId(userId);
+                transaction.set(docRef, habit.toMap());
+            }
+            return Optional.of(habit);
+        }));
+    }
+
+    /**
+     * Read-modify-write of several habits in one transaction: the habits are fetched with a single
+     * getAll and every habit returned by the update is written back when the transaction commits.
+     * Resolves to the habits that exist, keyed by ID in request order.
+     */
+    public CompletableFuture<Map<String, Habit>> updateAllInTransactionAsync(String userId, List<String> habitIds,
+                                                                             BatchTransactionalUpdate update) {
+        DocumentReference[] docRefs = habitIds.stream()
+                .map(habitId -> getCollection(userId).document(habitId))
+                .toArray(DocumentReference[]::new);
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            Map<String, Habit> habits = new LinkedHashMap<>();
+            for (DocumentSnapshot doc : transaction.getAll(docRefs).get()) {
+                if (doc.exists()) {
+                    habits.put(doc.getId(), new Habit(doc.getData(), doc.getId()));
+                }
+            }
+            for (Habit habit : update.apply(transaction, habits)) {
+                habit.setUserId(userId);
+                transaction.set(getCollection(userId).document(habit.getId()), habit.toMap());
+            }
+            return habits;
+        }));
+    }
+
+    /**
+     * Deletes a habit inside a Firestore transaction. The callback sees the habit as it is being deleted
+     * and may stage related writes (e.g. aggregates) so they commit atomically with the delete; return
+     * false to leave the habit in place. Resolves to empty if the habit does not exist.
+     */
+    public CompletableFuture<Optional<Habit>> deleteInTransactionAsync(String userId, String habitId,
+                                                                       TransactionalUpdate update) {
+        DocumentReference docRef = getCollection(userId).document(habitId);
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            DocumentSnapshot doc = transaction.get(docRef).get();
+            if (!doc.exists()) {
+                return Optional.<Habit>empty();
+            }
+            Habit habit = new Habit(doc.getData(), doc.getId());
+            if (update.apply(transaction, habit)) {
+                transaction.delete(docRef);
+            }
+            return Optional.of(habit);
+        })).thenApply(deleted -> {
+            deleted.ifPresent(habit -> log.info("Habit deleted: {} for user: {}", habitId, userId));
+            return deleted;
+        });
+    }
+
+    public CompletableFuture<Void> deleteAsync(String userId, String habitId) {
+        return FirestoreFutures.toCompletable(getCollection(userId).document(habitId).delete()).thenAccept(result ->
+                log.info("Habit deleted: {} for user: {}", habitId, userId));
+    }
+
+    /**
+     * Writes the streak fields of several habits in one batch, without a transaction. Each write is guarded by
+     * the update time its habit was read at, so a habit completed or deleted since then fails the whole batch
+     * with FAILED_PRECONDITION or NOT_FOUND instead of being overwritten. {@code related} may stage further
+     * writes (e.g. the aggregates) on the same batch.
+     */
+    public CompletableFuture<Void> updateStreaksIfUnchangedAsync(String userId, List<Versioned<Habit>> habits,
+                                                                 Consumer<WriteBatch> related) {
+        WriteBatch batch = firestore.batch();
+        for (Versioned<Habit> versioned : habits) {
+            Habit habit = versioned.getValue();
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("currentStreak", habit.getCurrentStreak());
+            fields.put("longestStreak", habit.getLongestStreak());
+            fields.put("lastCompletedDate", orDelete(habit.getLastCompletedDate()));
+            fields.put("periodStart", orDelete(habit.getPeriodStart()));
+            fields.put("periodCompletions", habit.getPeriodStart() != null ? habit.getPeriodCompletions() : FieldValue.delete());
+            fields.put("runLengths", orDelete(habit.getRunLengths()));
+            batch.update(getCollection(userId).document(habit.getId()), fields,
+                    Precondition.updatedAt(versioned.getUpdateTime()));
+        }
+        related.accept(batch);
+        return FirestoreFutures.toCompletable(batch.commit()).thenAccept(result ->
+                log.info("Streaks updated for {} habits of user: {}", habits.size(), userId));
+    }
+
+    private static Object orDelete(Object value) {
+        return value != null ? value : FieldValue.delete();
+    }
+
+    @FunctionalInterface
+    public interface TransactionalUpdate {
+        /**
+         * Mutates the freshly read habit and stages any related writes. Return false to leave the
+         * habit document untouched. May be invoked more than once if the transaction is retried.
+         */
+        boolean apply(Transaction transaction, Habit habit) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface BatchTransactionalUpdate {
+        /**
+         * Mutates the freshly read habits, stages any related writes and returns the habits to write back.
+         * May be invoked more than once if the transaction is retried.
+         */
+        Collection<Habit> apply(Transaction transaction, Map<String, Habit> habits) throws Exception;
+    }
+
+    // ─── Blocking API ────────────────────────────────────────────────────────
+
+    public Habit save(String userId, Habit habit) throws ExecutionException, InterruptedException {
+        return saveAsync(userId, habit).get();
+    }
+
+    public Optional<Habit> findById(String userId, String habitId) throws ExecutionException, InterruptedException {
+        return findByIdAsync(userId, habitId).get();
+    }
+
+    public List<Habit> findAll(String userId) throws ExecutionException, InterruptedException {
+        return findAllAsync(userId).get();
+    }
+
     public void delete(String userId, String habitId) throws ExecutionException, InterruptedException {
-        getCollection(userId).document(habitId).delete().get();
-        log.info("Habit deleted: {} for user: {}", habitId, userId);
+        deleteAsync(userId, habitId).get();
     }
 }
@@ -0,0 +1,126 @@
+package com.productivity.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+import com.productivity.model.HabitStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Stores each user's {@link HabitStats} at {@code users/{uid}/habitStats/intelligence}.
+ * The document is created lazily from the user's habits and logs the first time it is read;
+ * until then, writers skip it (the seed will include their changes).
+ */
+@Repository
+public class HabitStatsRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(HabitStatsRepository.class);
+    private final Firestore firestore;
+
+    public HabitStatsRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    private DocumentReference getDocument(String userId) {
+        return firestore.collection("users").document(userId).collection("habitStats").document("intelligence");
+    }
+
+    // ─── Non-blocking API ────────────────────────────────────────────────────
+
+    /**
+     * Returns the user's aggregates with a plain read, seeding them inside a transaction only if they
+     * do not exist yet. The seeder should do its reads through the transaction, so a completion
+     * committing concurrently forces a retry instead of being lost.
+     */
+    public CompletableFuture<HabitStats> getOrSeedAsync(String userId, Seeder seeder) {
+        DocumentReference docRef = getDocument(userId);
+        return FirestoreFutures.toCompletable(docRef.get()).thenCompose(doc -> doc.exists()
+                ? CompletableFuture.completedFuture(new HabitStats(doc.getData()))
+                : seedAsync(userId, docRef, seeder));
+    }
+
+    private CompletableFuture<HabitStats> seedAsync(String userId, DocumentReference docRef, Seeder seeder) {
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            DocumentSnapshot doc = transaction.get(docRef).get();
+            if (doc.exists()) {
+                return new HabitStats(doc.getData());
+            }
+            HabitStats seeded = seeder.seed(transaction);
+            transaction.set(docRef, seeded.toMap());
+            log.info("Habit stats seeded for user: {}", userId);
+            return seeded;
+        }));
+    }
+
+    /**
+     * Read-modify-write of existing aggregates; does nothing if they have not been seeded yet.
+     */
+    public CompletableFuture<Void> updateAsync(String userId, Consumer<HabitStats> update) {
+        DocumentReference docRef = getDocument(userId);
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            DocumentSnapshot doc = transaction.get(docRef).get();
+            if (doc.exists()) {
+                HabitStats stats = new HabitStats(doc.getData());
+                update.accept(stats);
+                transaction.set(docRef, stats.toMap());
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Reads the aggregates with the update time they were read at, for {@link #saveIfUnchanged}.
+     */
+    public CompletableFuture<Optional<Versioned<HabitStats>>> findVersionedAsync(String userId) {
+        return FirestoreFutures.toCompletable(getDocument(userId).get()).thenApply(doc -> doc.exists()
+                ? Optional.of(new Versioned<>(new HabitStats(doc.getData()), doc.getUpdateTime()))
+                : Optional.empty());
+    }
+
+    /**
+     * Reads the aggregates through an open transaction. Must be called before the transaction's writes.
+     */
+    public Optional<HabitStats> find(Transaction transaction, String userId) throws ExecutionException, InterruptedException {
+        DocumentSnapshot doc = transaction.get(getDocument(userId)).get();
+        return doc.exists() ? Optional.of(new HabitStats(doc.getData())) : Optional.empty();
+    }
+
+    /**
+     * Stages the aggregates write on an open transaction.
+     */
+    public void save(Transaction transaction, String userId, HabitStats stats) {
+        transaction.set(getDocument(userId), stats.toMap());
+    }
+
+    /**
+     * Stages the aggregates write on a batch, applied only if the document has not been updated since
+     * {@code updateTime}; otherwise the whole batch fails with FAILED_PRECONDITION.
+     */
+    public void saveIfUnchanged(WriteBatch batch, String userId, HabitStats stats, Timestamp updateTime) {
+        batch.update(getDocument(userId), stats.toMap(), Precondition.updatedAt(updateTime));
+    }
+
+    @FunctionalInterface
+    public interface Seeder {
+        /**
+         * Builds the aggregates from scratch. May be invoked more than once if the transaction is retried.
+         */
+        HabitStats seed(Transaction transaction) throws Exception;
+    }
+
+    // ─── Blocking API ────────────────────────────────────────────────────────
+
+    public HabitStats getOrSeed(String userId, Seeder seeder) throws ExecutionException, InterruptedException {
+        return getOrSeedAsync(userId, seeder).get();
+    }
+
+    public void update(String userId, Consumer<HabitStats> update) throws ExecutionException, InterruptedException {
+        updateAsync(userId, update).get();
+    }
+}
@@ -0,0 +1,94 @@
+package com.productivity.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Node-local OTP store for single-instance deployments. Each code schedules its own removal on a
+ * scheduled executor, whose work queue is a delay queue ordered by expiry, so nothing scans the map;
+ * replacing a code cancels the old removal.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "app.otp", name = "store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOtpStore implements OtpStore {
+
+    private final Map<String, Entry> codes = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor expiryExecutor;
+
+    public InMemoryOtpStore() {
+        this.expiryExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "otp-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Cancelled removals leave the queue immediately instead of at their original deadline
+        expiryExecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public void save(String email, String code, Duration ttl) {
+        Entry entry = new Entry(code, System.currentTimeMillis() + ttl.toMillis());
+        entry.expiry = expiryExecutor.schedule(() -> codes.remove(email, entry), ttl.toMillis(), TimeUnit.MILLISECONDS);
+        Entry previous = codes.put(email, entry);
+        if (previous != null) {
+            previous.expiry.cancel(false);
+        }
+    }
+
+    @Override
+    public CheckResult check(String email, String code, int maxAttempts) {
+        Entry entry = codes.get(email);
+        if (entry == null || code == null) {
+            return CheckResult.ABSENT;
+        }
+        if (System.currentTimeMillis() > entry.expiresAt) {
+            discard(email, entry);
+            return CheckResult.ABSENT;
+        }
+        if (MessageDigest.isEqual(entry.code, code.getBytes(StandardCharsets.UTF_8))) {
+            // Only one concurrent check can consume the code
+            return discard(email, entry) ? CheckResult.MATCH : CheckResult.ABSENT;
+        }
+        if (entry.attempts.incrementAndGet() >= maxAttempts) {
+            discard(email, entry);
+            return CheckResult.ATTEMPTS_EXHAUSTED;
+        }
+        return CheckResult.MISMATCH;
+    }
+
+    private boolean discard(String email, Entry entry) {
+        boolean removed = codes.remove(email, entry);
+        if (removed) {
+            entry.expiry.cancel(false);
+        }
+        return removed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiryExecutor.shutdownNow();
+    }
+
+    private static final class Entry {
+        final byte[] code;
+        final long expiresAt;
+        final AtomicInteger attempts = new AtomicInteger();
+        volatile ScheduledFuture<?> expiry;
+
+        Entry(String code, long expiresAt) {
+            this.code = code.getBytes(StandardCharsets.UTF_8);
+            this.expiresAt = expiresAt;
+        }
+    }
+}
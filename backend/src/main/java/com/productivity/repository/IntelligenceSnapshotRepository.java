@@ -0,0 +1,87 @@
+package com.productivity.repository;
+
+import com.google.cloud.firestore.*;
+import com.productivity.model.IntelligenceSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Daily {@link IntelligenceSnapshot}s, one document per user and year at
+ * {@code users/{uid}/intelligenceSnapshots/{YYYY}} with a {@code days} map keyed by date,
+ * so a year of history is a single document read.
+ */
+@Repository
+public class IntelligenceSnapshotRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(IntelligenceSnapshotRepository.class);
+    private final Firestore firestore;
+
+    public IntelligenceSnapshotRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    private CollectionReference getCollection(String userId) {
+        return firestore.collection("users").document(userId).collection("intelligenceSnapshots");
+    }
+
+    // ─── Non-blocking API ────────────────────────────────────────────────────
+
+    /**
+     * Writes (or overwrites) the snapshot's day, merging it into the year document.
+     */
+    public CompletableFuture<Void> saveAsync(String userId, IntelligenceSnapshot snapshot) {
+        String year = IntelligenceSnapshot.yearOf(snapshot.getDate());
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("year", year);
+        fields.put("days", Map.of(snapshot.getDate(), snapshot.toValues()));
+        return FirestoreFutures.toCompletable(getCollection(userId).document(year).set(fields, SetOptions.merge()))
+                .thenAccept(result -> log.debug("Intelligence snapshot saved: {} for user: {}", snapshot.getDate(), userId));
+    }
+
+    /**
+     * Snapshots within [from, to], oldest first.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<List<IntelligenceSnapshot>> findRangeAsync(String userId, LocalDate from, LocalDate to) {
+        String start = from.toString();
+        String end = to.toString();
+        Query query = getCollection(userId)
+                .whereGreaterThanOrEqualTo(FieldPath.documentId(), IntelligenceSnapshot.yearOf(start))
+                .whereLessThanOrEqualTo(FieldPath.documentId(), IntelligenceSnapshot.yearOf(end));
+        return FirestoreFutures.toCompletable(query.get()).thenApply(snapshot -> {
+            List<IntelligenceSnapshot> snapshots = new ArrayList<>();
+            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                Map<String, Object> days = (Map<String, Object>) doc.get("days");
+                if (days == null) continue;
+                days.forEach((date, values) -> {
+                    if (date.compareTo(start) >= 0 && date.compareTo(end) <= 0) {
+                        snapshots.add(new IntelligenceSnapshot((List<Object>) values, date));
+                    }
+                });
+            }
+            snapshots.sort(Comparator.comparing(IntelligenceSnapshot::getDate));
+            return snapshots;
+        });
+    }
+
+    // ─── Blocking API ────────────────────────────────────────────────────────
+
+    public void save(String userId, IntelligenceSnapshot snapshot) throws ExecutionException, InterruptedException {
+        saveAsync(userId, snapshot).get();
+    }
+
+    public List<IntelligenceSnapshot> findRange(String userId, LocalDate from, LocalDate to)
+            throws ExecutionException, InterruptedException {
+        return findRangeAsync(userId, from, to).get();
+    }
+}
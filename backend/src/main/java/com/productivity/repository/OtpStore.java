@@ -0,0 +1,16 @@
+package com.productivity.repository;
+
+import java.time.Duration;
+
+/**
+ * Storage for one-time codes, keyed by email. Saving replaces any earlier code for the email;
+ * a code is consumed by its first successful check and discarded after too many wrong guesses.
+ */
+public interface OtpStore {
+
+    enum CheckResult { MATCH, MISMATCH, ABSENT, ATTEMPTS_EXHAUSTED }
+
+    void save(String email, String code, Duration ttl);
+
+    CheckResult check(String email, String code, int maxAttempts);
+}
@@ -0,0 +1,117 @@
+package com.productivity.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for Firestore list queries.
+ * Encodes the sort field, direction, the last seen value of the sort field and the document ID,
+ * so the next page can be fetched with startAfter/endBefore instead of an offset.
+ */
+public final class PageCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private final String sortField;
+    private final String direction;
+    private final String documentId;
+    private final Object value;
+
+    private PageCursor(String sortField, String direction, String documentId, Object value) {
+        this.sortField = sortField;
+        this.direction = direction;
+        this.documentId = documentId;
+        this.value = value;
+    }
+
+    public static PageCursor of(DocumentSnapshot doc, String sortField, String direction) {
+        return new PageCursor(sortField, direction, doc.getId(), doc.get(sortField));
+    }
+
+    public String encode() {
+        String payload = sortField + SEPARATOR + direction + SEPARATOR + documentId + SEPARATOR + encodeValue(value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor previously produced by {@link #encode()}. The cursor must have been issued
+     * for the same sort field and direction, otherwise the page boundary is meaningless.
+     */
+    public static PageCursor decode(String token, String sortField, String direction) {
+        String payload;
+        try {
+            payload = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+
+        String[] parts = payload.split(SEPARATOR, 4);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (!parts[0].equals(sortField) || !parts[1].equalsIgnoreCase(direction)) {
+            throw new IllegalArgumentException("Cursor does not match sortBy/sortDirection");
+        }
+        return new PageCursor(parts[0], parts[1], parts[2], decodeValue(parts[3]));
+    }
+
+    private static String encodeValue(Object value) {
+        // Firestore orders null before every other value, so a null boundary pages like any other
+        if (value == null) {
+            return "n:";
+        }
+        if (value instanceof Timestamp ts) {
+            return "t:" + ts.getSeconds() + ":" + ts.getNanos();
+        }
+        if (value instanceof String s) {
+            return "s:" + s;
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return "l:" + value;
+        }
+        if (value instanceof Number n) {
+            return "d:" + n.doubleValue();
+        }
+        if (value instanceof Boolean b) {
+            return "b:" + b;
+        }
+        throw new IllegalStateException("Unsupported cursor value type: " + value.getClass());
+    }
+
+    private static Object decodeValue(String encoded) {
+        if (encoded.length() < 2 || encoded.charAt(1) != ':') {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        String raw = encoded.substring(2);
+        try {
+            switch (encoded.charAt(0)) {
+                case 't': {
+                    String[] ts = raw.split(":", 2);
+                    return Timestamp.ofTimeSecondsAndNanos(Long.parseLong(ts[0]), Integer.parseInt(ts[1]));
+                }
+                case 's':
+                    return raw;
+                case 'l':
+                    return Long.parseLong(raw);
+                case 'd':
+                    return Double.parseDouble(raw);
+                case 'b':
+                    return Boolean.parseBoolean(raw);
+                case 'n':
+                    return null;
+                default:
+                    throw new IllegalArgumentException("Malformed cursor");
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+    }
+
+    public String getSortField() { return sortField; }
+    public String getDirection() { return direction; }
+    public String getDocumentId() { return documentId; }
+    public Object getValue() { return value; }
+}
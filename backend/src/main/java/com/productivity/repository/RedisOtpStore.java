@@ -0,0 +1,66 @@
+package com.productivity.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * OTP store shared by all instances, on any server speaking the Redis protocol. Each code is a hash
+ * {@code otp:{email}} holding the code and its wrong-guess count, expired by the server. Both operations
+ * are Lua scripts, so a check and its attempt increment or consumption are atomic across instances.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "app.otp", name = "store", havingValue = "redis")
+public class RedisOtpStore implements OtpStore {
+
+    private static final String KEY_PREFIX = "otp:";
+
+    // KEYS[1] = otp key; ARGV = code, ttl millis
+    private static final RedisScript<Long> SAVE = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) "
+            + "redis.call('HSET', KEYS[1], 'code', ARGV[1], 'attempts', 0) "
+            + "redis.call('PEXPIRE', KEYS[1], ARGV[2]) "
+            + "return 1", Long.class);
+
+    // KEYS[1] = otp key; ARGV = code, max attempts. Returns 1 match, 0 mismatch, -1 absent, -2 exhausted
+    private static final RedisScript<Long> CHECK = new DefaultRedisScript<>(
+            "local code = redis.call('HGET', KEYS[1], 'code') "
+            + "if not code then return -1 end "
+            + "if code == ARGV[1] then redis.call('DEL', KEYS[1]) return 1 end "
+            + "local attempts = redis.call('HINCRBY', KEYS[1], 'attempts', 1) "
+            + "if attempts >= tonumber(ARGV[2]) then redis.call('DEL', KEYS[1]) return -2 end "
+            + "return 0", Long.class);
+
+    private final StringRedisTemplate redis;
+
+    public RedisOtpStore(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    @Override
+    public void save(String email, String code, Duration ttl) {
+        redis.execute(SAVE, List.of(KEY_PREFIX + email), code, String.valueOf(ttl.toMillis()));
+    }
+
+    @Override
+    public CheckResult check(String email, String code, int maxAttempts) {
+        if (code == null) {
+            return CheckResult.ABSENT;
+        }
+        Long result = redis.execute(CHECK, List.of(KEY_PREFIX + email), code, String.valueOf(maxAttempts));
+        if (result == null) {
+            return CheckResult.ABSENT;
+        }
+        return switch (result.intValue()) {
+            case 1 -> CheckResult.MATCH;
+            case 0 -> CheckResult.MISMATCH;
+            case -2 -> CheckResult.ATTEMPTS_EXHAUSTED;
+            default -> CheckResult.ABSENT;
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.productivity.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Revoked refresh-token IDs ({@code jti}) and rotation family IDs at {@code revokedTokens/{id}}.
+ * Entries only matter until {@code expiresAt}; a Firestore TTL policy on that field can delete them.
+ */
+@Repository
+public class RevokedTokenRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(RevokedTokenRepository.class);
+    private final Firestore firestore;
+
+    public RevokedTokenRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    private CollectionReference getCollection() {
+        return firestore.collection("revokedTokens");
+    }
+
+    // ─── Non-blocking API ────────────────────────────────────────────────────
+
+    public CompletableFuture<Void> saveAsync(String id, String kind, Instant expiresAt) {
+        return FirestoreFutures.toCompletable(getCollection().document(id).set(entry(kind, expiresAt))).thenAccept(result ->
+                log.info("Token {} revoked: {}", kind, id));
+    }
+
+    /**
+     * Revokes an ID only if no entry exists yet, with a single create (exists = false precondition) write,
+     * so exactly one of several concurrent callers (on any instance) wins without a read.
+     * Resolves to false if the ID was already revoked.
+     */
+    public CompletableFuture<Boolean> createIfAbsentAsync(String id, String kind, Instant expiresAt) {
+        return FirestoreFutures.toCompletable(getCollection().document(id).create(entry(kind, expiresAt)))
+                .handle((result, error) -> {
+                    if (error == null) {
+                        log.info("Token {} revoked: {}", kind, id);
+                        return true;
+                    }
+                    if (FirestoreFutures.hasStatus(error, Status.Code.ALREADY_EXISTS)) {
+                        return false;
+                    }
+                    throw error instanceof CompletionException ce ? ce : new CompletionException(error);
+                });
+    }
+
+    public CompletableFuture<Boolean> isRevokedAsync(String id) {
+        return FirestoreFutures.toCompletable(getCollection().document(id).get()).thenApply(doc -> {
+            Timestamp expiresAt = doc.exists() ? doc.getTimestamp("expiresAt") : null;
+            return expiresAt != null && expiresAt.compareTo(Timestamp.now()) > 0;
+        });
+    }
+
+    /**
+     * Streams every revocation that has not expired yet: the existing ones in the first snapshot,
+     * then revocations written by any instance as they happen.
+     */
+    public ListenerRegistration listenActive(BiConsumer<String, Instant> onRevoked, Runnable onFirstSnapshot) {
+        Query query = getCollection().whereGreaterThan("expiresAt", Timestamp.now());
+        boolean[] first = {true};
+        return query.addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                log.error("Revoked token listener failed: {}", error.getMessage());
+                return;
+            }
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                if (change.getType() == DocumentChange.Type.REMOVED) continue;
+                Timestamp expiresAt = change.getDocument().getTimestamp("expiresAt");
+                if (expiresAt != null) {
+                    onRevoked.accept(change.getDocument().getId(), expiresAt.toDate().toInstant());
+                }
+            }
+            if (first[0]) {
+                first[0] = false;
+                onFirstSnapshot.run();
+            }
+        });
+    }
+
+    private static Map<String, Object> entry(String kind, Instant expiresAt) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("kind", kind);
+        entry.put("expiresAt", Timestamp.ofTimeSecondsAndNanos(expiresAt.getEpochSecond(), expiresAt.getNano()));
+        entry.put("revokedAt", Timestamp.now());
+        return entry;
+    }
+
+    // ─── Blocking API ────────────────────────────────────────────────────────
+
+    public void save(String id, String kind, Instant expiresAt) throws ExecutionException, InterruptedException {
+        saveAsync(id, kind, expiresAt).get();
+    }
+
+    public boolean createIfAbsent(String id, String kind, Instant expiresAt) throws ExecutionException, InterruptedException {
+        return createIfAbsentAsync(id, kind, expiresAt).get();
+    }
+
+    public boolean isRevoked(String id) throws ExecutionException, InterruptedException {
+        return isRevokedAsync(id).get();
+    }
+}
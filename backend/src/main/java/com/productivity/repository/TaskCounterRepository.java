@@ -0,0 +1,125 @@
+package com.productivity.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+import com.productivity.config.AppProperties;
+import com.productivity.model.TaskCounts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-user task counters at {@code users/{uid}/taskCounters/{shard}}.
+ * Writers increment one random shard so bursts of task writes do not contend on a single
+ * document; readers sum all shards in one small query.
+ */
+@Repository
+public class TaskCounterRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskCounterRepository.class);
+    private static final String SEEDED = "seeded";
+
+    private final Firestore firestore;
+    private final int shards;
+
+    public TaskCounterRepository(Firestore firestore, AppProperties appProperties) {
+        this.firestore = firestore;
+        this.shards = Math.max(1, appProperties.getTaskCounters().getShards());
+    }
+
+    private CollectionReference getCollection(String userId) {
+        return firestore.collection("users").document(userId).collection("taskCounters");
+    }
+
+    /**
+     * Stages an increment of a random shard on the caller's transaction or batch, so the counters
+     * commit atomically with the task write that caused the change.
+     */
+    public void increment(UpdateBuilder<?> writer, String userId, TaskCounts delta) {
+        if (delta.isZero()) return;
+        String shard = String.valueOf(ThreadLocalRandom.current().nextInt(shards));
+        writer.set(getCollection(userId).document(shard), delta.toIncrementMap(), SetOptions.merge());
+    }
+
+    public CompletableFuture<TaskCounts> getCountsAsync(String userId) {
+        return FirestoreFutures.toCompletable(getCollection(userId).get()).thenCompose(snapshot -> {
+            if (isSeeded(snapshot.getDocuments())) {
+                return CompletableFuture.completedFuture(sum(snapshot.getDocuments()));
+            }
+            return seedAsync(userId);
+        });
+    }
+
+    /**
+     * First read for a user whose tasks predate the counters: count the tasks collection once
+     * and overwrite the shards with absolute values. Runs in a transaction so increments
+     * committed concurrently force a retry instead of being lost.
+     */
+    private CompletableFuture<TaskCounts> seedAsync(String userId) {
+        CollectionReference tasks = firestore.collection("users").document(userId).collection("tasks");
+        CollectionReference counters = getCollection(userId);
+
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            List<QueryDocumentSnapshot> shardDocs = transaction.get(counters).get().getDocuments();
+            if (isSeeded(shardDocs)) {
+                return sum(shardDocs);
+            }
+
+            TaskCounts counts = new TaskCounts();
+            counts.setTotal(count(transaction, tasks));
+            counts.setTodo(count(transaction, tasks.whereEqualTo("status", "todo")));
+            counts.setInProgress(count(transaction, tasks.whereEqualTo("status", "in-progress")));
+            counts.setDone(count(transaction, tasks.whereEqualTo("status", "done")));
+            long withDeadline = count(transaction, tasks.whereGreaterThanOrEqualTo("deadline", Timestamp.MIN_VALUE));
+            long doneWithDeadline = count(transaction, tasks.whereEqualTo("status", "done")
+                    .whereGreaterThanOrEqualTo("deadline", Timestamp.MIN_VALUE));
+            counts.setOverdueCandidates(withDeadline - doneWithDeadline);
+
+            for (QueryDocumentSnapshot doc : shardDocs) {
+                if (!isShardId(doc.getId())) {
+                    transaction.delete(doc.getReference());
+                }
+            }
+            TaskCounts zero = new TaskCounts();
+            for (int i = 0; i < shards; i++) {
+                Map<String, Object> data = i == 0 ? counts.toMap() : zero.toMap();
+                if (i == 0) data.put(SEEDED, true);
+                transaction.set(counters.document(String.valueOf(i)), data);
+            }
+            return counts;
+        })).thenApply(counts -> {
+            log.info("Task counters seeded for user: {} (total={})", userId, counts.getTotal());
+            return counts;
+        });
+    }
+
+    private boolean isShardId(String id) {
+        try {
+            int index = Integer.parseInt(id);
+            return index >= 0 && index < shards;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static long count(Transaction transaction, Query query) throws Exception {
+        return transaction.get(query.count()).get().getCount();
+    }
+
+    private static boolean isSeeded(List<QueryDocumentSnapshot> shardDocs) {
+        return shardDocs.stream().anyMatch(doc -> Boolean.TRUE.equals(doc.getBoolean(SEEDED)));
+    }
+
+    private static TaskCounts sum(List<QueryDocumentSnapshot> shardDocs) {
+        TaskCounts total = new TaskCounts();
+        for (QueryDocumentSnapshot doc : shardDocs) {
+            total = total.plus(new TaskCounts(doc.getData()));
+        }
+        return total;
+    }
+}
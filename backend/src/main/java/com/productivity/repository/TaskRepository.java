@@ -1,8 +1,8 @@
 package com.productivity.repository;
 
-import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
 import com.productivity.model.Task;
+import com.productivity.model.TaskCounts;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @Repository
@@ -17,104 +18,218 @@ public class TaskRepository {
 
     private static final Logger log = LoggerFactory.getLogger(TaskRepository.class);
     private final Firestore firestore;
+    private final TaskCounterRepository taskCounterRepository;
 
-    public TaskRepository(Firestore firestore) {
+    public TaskRepository(Firestore firestore, TaskCounterRepository taskCounterRepository) {
         this.firestore = firestore;
+        this.taskCounterRepository = taskCounterRepository;
     }
 
     private CollectionReference getCollection(String userId) {
         return firestore.collection("users").document(userId).collection("tasks");
     }
 
-    public Task save(String userId, Task task) throws ExecutionException, InterruptedException {
-        DocumentReference docRef;
-        if (task.getId() != null) {
-            docRef = getCollection(userId).document(task.getId());
-        } else {
-            docRef = getCollection(userId).document();
-            task.setId(docRef.getId());
+    private Query filteredQuery(String userId, String status, String priority) {
+        Query query = getCollection(userId);
+        if (status != null && !status.isEmpty()) {
+            query = query.whereEqualTo("status", status);
         }
-        task.setUserId(userId);
-        docRef.set(task.toMap()).get();
-        log.info("Task saved: {} for user: {}", task.getId(), userId);
-        return task;
+        if (priority != null && !priority.isEmpty()) {
+            query = query.whereEqualTo("priority", priority);
+        }
+        return query;
     }
 
-    public Optional<Task> findById(String userId, String taskId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot doc = getCollection(userId).document(taskId).get().get();
-        if (doc.exists()) {
-            return Optional.of(new Task(doc.getData(), doc.getId()));
+    /**
+     * Applies a select() projection when the caller only needs some fields; null means whole documents.
+     */
+    private static Query project(Query query, String[] projection) {
+        return projection != null ? query.select(projection) : query;
+    }
+
+    private static List<Task> toTasks(QuerySnapshot snapshot) {
+        List<Task> tasks = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+            tasks.add(new Task(doc.getData(), doc.getId()));
         }
-        return Optional.empty();
+        return tasks;
     }
 
-    public List<Task> findAll(String userId, String status, String priority, String sortBy,
-                               String sortDirection, int page, int size) throws ExecutionException, InterruptedException {
-        Query query = getCollection(userId);
+    // ─── Non-blocking API ────────────────────────────────────────────────────
 
-        if (status != null && !status.isEmpty()) {
-            query = query.whereEqualTo("status", status);
-        }
-        if (priority != null && !priority.isEmpty()) {
-            query = query.whereEqualTo("priority", priority);
+    /**
+     * Creates or replaces a task. The per-user counters are adjusted in the same commit:
+     * a batch for new tasks, a transaction for existing ones (the old status is needed for the delta).
+     */
+    public CompletableFuture<Task> saveAsync(String userId, Task task) {
+        task.setUserId(userId);
+        if (task.getId() == null) {
+            DocumentReference docRef = getCollection(userId).document();
+            task.setId(docRef.getId());
+            WriteBatch batch = firestore.batch();
+            batch.set(docRef, task.toMap());
+            taskCounterRepository.increment(batch, userId, TaskCounts.of(task));
+            return FirestoreFutures.toCompletable(batch.commit()).thenApply(result -> {
+                log.info("Task saved: {} for user: {}", task.getId(), userId);
+                return task;
+            });
         }
 
+        DocumentReference docRef = getCollection(userId).document(task.getId());
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            DocumentSnapshot previous = transaction.get(docRef).get();
+            Task old = previous.exists() ? new Task(previous.getData(), previous.getId()) : null;
+            transaction.set(docRef, task.toMap());
+            taskCounterRepository.increment(transaction, userId, TaskCounts.of(task).minus(TaskCounts.of(old)));
+            return task;
+        })).thenApply(saved -> {
+            log.info("Task saved: {} for user: {}", saved.getId(), userId);
+            return saved;
+        });
+    }
+
+    public CompletableFuture<Optional<Task>> findByIdAsync(String userId, String taskId) {
+        return FirestoreFutures.toCompletable(getCollection(userId).document(taskId).get()).thenApply(doc -> {
+            if (doc.exists()) {
+                return Optional.of(new Task(doc.getData(), doc.getId()));
+            }
+            return Optional.empty();
+        });
+    }
+
+    public CompletableFuture<List<Task>> findAllAsync(String userId, String status, String priority, String sortBy,
+                                                      String sortDirection, int page, int size, String[] projection) {
+        Query query = project(filteredQuery(userId, status, priority), projection);
+
         Query.Direction direction = "asc".equalsIgnoreCase(sortDirection) ? Query.Direction.ASCENDING : Query.Direction.DESCENDING;
         String orderField = sortBy != null ? sortBy : "createdAt";
         query = query.orderBy(orderField, direction);
 
         query = query.offset(page * size).limit(size);
 
-        ApiFuture<QuerySnapshot> future = query.get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-
-        List<Task> tasks = new ArrayList<>();
-        for (QueryDocumentSnapshot doc : documents) {
-            tasks.add(new Task(doc.getData(), doc.getId()));
-        }
-        return tasks;
+        return FirestoreFutures.toCompletable(query.get()).thenApply(TaskRepository::toTasks);
     }
 
-    public long count(String userId) throws ExecutionException, InterruptedException {
-        AggregateQuerySnapshot snapshot = getCollection(userId).count().get().get();
-        return snapshot.getCount();
-    }
+    /**
+     * Keyset-paginated listing. Pass {@code after} (a previous nextCursor) to move forward or
+     * {@code before} (a previous prevCursor) to move back; with neither, the first page is returned.
+     * Unlike offset paging, skipped documents are never read.
+     */
+    public CompletableFuture<CursorPage<Task>> findPageAsync(String userId, String status, String priority, String sortBy,
+                                                             String sortDirection, String after, String before, int size,
+                                                             String[] projection) {
+        String orderField = sortBy != null ? sortBy : "createdAt";
+        String dir = "asc".equalsIgnoreCase(sortDirection) ? "asc" : "desc";
+        Query.Direction direction = "asc".equals(dir) ? Query.Direction.ASCENDING : Query.Direction.DESCENDING;
+
+        Query query = project(filteredQuery(userId, status, priority), projection)
+                .orderBy(orderField, direction)
+                .orderBy(FieldPath.documentId(), direction);
+
+        boolean backward = before != null && !before.isEmpty();
+        boolean forward = after != null && !after.isEmpty();
+        if (backward) {
+            PageCursor cursor = PageCursor.decode(before, orderField, dir);
+            query = query.endBefore(cursor.getValue(), cursor.getDocumentId()).limitToLast(size + 1);
+        } else {
+            if (forward) {
+                PageCursor cursor = PageCursor.decode(after, orderField, dir);
+                query = query.startAfter(cursor.getValue(), cursor.getDocumentId());
+            }
+            query = query.limit(size + 1);
+        }
 
-    public long countByStatus(String userId, String status) throws ExecutionException, InterruptedException {
-        AggregateQuerySnapshot snapshot = getCollection(userId)
-                .whereEqualTo("status", status).count().get().get();
-        return snapshot.getCount();
+        return FirestoreFutures.toCompletable(query.get()).thenApply(snapshot -> {
+            // One extra document is fetched to learn whether another page exists in the direction of travel
+            List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+            boolean hasMore = documents.size() > size;
+            if (hasMore) {
+                documents = backward ? documents.subList(1, documents.size()) : documents.subList(0, size);
+            }
+
+            List<Task> tasks = new ArrayList<>();
+            for (QueryDocumentSnapshot doc : documents) {
+                tasks.add(new Task(doc.getData(), doc.getId()));
+            }
+
+            String nextCursor = null;
+            String prevCursor = null;
+            if (!documents.isEmpty()) {
+                String first = PageCursor.of(documents.get(0), orderField, dir).encode();
+                String last = PageCursor.of(documents.get(documents.size() - 1), orderField, dir).encode();
+                if (backward) {
+                    nextCursor = last;
+                    prevCursor = hasMore ? first : null;
+                } else {
+                    nextCursor = hasMore ? last : null;
+                    prevCursor = forward ? first : null;
+                }
+            }
+            return new CursorPage<>(tasks, nextCursor, prevCursor);
+        });
     }
 
-    public List<Task> findOverdue(String userId, com.google.cloud.Timestamp now) throws ExecutionException, InterruptedException {
+    public CompletableFuture<List<Task>> findOverdueAsync(String userId, com.google.cloud.Timestamp now) {
         Query query = getCollection(userId)
                 .whereLessThan("deadline", now)
                 .whereNotEqualTo("status", "done")
                 .orderBy("deadline", Query.Direction.ASCENDING);
-
-        List<Task> tasks = new ArrayList<>();
-        for (QueryDocumentSnapshot doc : query.get().get().getDocuments()) {
-            tasks.add(new Task(doc.getData(), doc.getId()));
-        }
-        return tasks;
+        return FirestoreFutures.toCompletable(query.get()).thenApply(TaskRepository::toTasks);
     }
 
-    public List<Task> findByDeadlineRange(String userId, com.google.cloud.Timestamp start,
-                                           com.google.cloud.Timestamp end) throws ExecutionException, InterruptedException {
+    public CompletableFuture<List<Task>> findByDeadlineRangeAsync(String userId, com.google.cloud.Timestamp start,
+                                                                  com.google.cloud.Timestamp end) {
         Query query = getCollection(userId)
                 .whereGreaterThanOrEqualTo("deadline", start)
                 .whereLessThanOrEqualTo("deadline", end)
                 .orderBy("deadline", Query.Direction.ASCENDING);
+        return FirestoreFutures.toCompletable(query.get()).thenApply(TaskRepository::toTasks);
+    }
 
-        List<Task> tasks = new ArrayList<>();
-        for (QueryDocumentSnapshot doc : query.get().get().getDocuments()) {
-            tasks.add(new Task(doc.getData(), doc.getId()));
-        }
-        return tasks;
+    public CompletableFuture<Void> deleteAsync(String userId, String taskId) {
+        DocumentReference docRef = getCollection(userId).document(taskId);
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            DocumentSnapshot previous = transaction.get(docRef).get();
+            if (previous.exists()) {
+                Task old = new Task(previous.getData(), previous.getId());
+                transaction.delete(docRef);
+                taskCounterRepository.increment(transaction, userId, new TaskCounts().minus(TaskCounts.of(old)));
+            }
+            return null;
+        })).thenAccept(result -> log.info("Task deleted: {} for user: {}", taskId, userId));
+    }
+
+    // ─── Blocking API ────────────────────────────────────────────────────────
+
+    public Task save(String userId, Task task) throws ExecutionException, InterruptedException {
+        return saveAsync(userId, task).get();
+    }
+
+    public Optional<Task> findById(String userId, String taskId) throws ExecutionException, InterruptedException {
+        return findByIdAsync(userId, taskId).get();
+    }
+
+    public List<Task> findAll(String userId, String status, String priority, String sortBy,
+                               String sortDirection, int page, int size) throws ExecutionException, InterruptedException {
+        return findAllAsync(userId, status, priority, sortBy, sortDirection, page, size, null).get();
+    }
+
+    public CursorPage<Task> findPage(String userId, String status, String priority, String sortBy,
+                                     String sortDirection, String after, String before, int size)
+            throws ExecutionException, InterruptedException {
+        return findPageAsync(userId, status, priority, sortBy, sortDirection, after, before, size, null).get();
+    }
+
+    public List<Task> findOverdue(String userId, com.google.cloud.Timestamp now) throws ExecutionException, InterruptedException {
+        return findOverdueAsync(userId, now).get();
+    }
+
+    public List<Task> findByDeadlineRange(String userId, com.google.cloud.Timestamp start,
+                                           com.google.cloud.Timestamp end) throws ExecutionException, InterruptedException {
+        return findByDeadlineRangeAsync(userId, start, end).get();
     }
 
     public void delete(String userId, String taskId) throws ExecutionException, InterruptedException {
-        getCollection(userId).document(taskId).delete().get();
-        log.info("Task deleted: {} for user: {}", taskId, userId);
+        deleteAsync(userId, taskId).get();
     }
 }
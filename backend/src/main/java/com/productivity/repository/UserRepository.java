@@ -1,12 +1,25 @@
 package com.productivity.repository;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
+import com.productivity.config.AppProperties;
 import com.productivity.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @Repository
@@ -15,47 +28,320 @@ public class UserRepository {
     private static final Logger log = LoggerFactory.getLogger(UserRepository.class);
     private final Firestore firestore;
 
-    public UserRepository(Firestore firestore) {
+    // Read-through cache of raw document data keyed by uid, plus an email → uid index.
+    // Raw data (not User instances) is cached so callers never share a mutable model object.
+    private final Cache<String, Map<String, Object>> usersById;
+    private final Cache<String, String> uidsByEmail;
+
+    // Whether an index miss falls back to querying users by email (accounts predating the index)
+    private volatile boolean legacyLookup;
+
+    public UserRepository(Firestore firestore, AppProperties appProperties, MeterRegistry meterRegistry) {
         this.firestore = firestore;
+
+        this.legacyLookup = appProperties.getEmailIndex().isLegacyLookup();
+
+        AppProperties.UserCache config = appProperties.getUserCache();
+        Duration ttl = Duration.ofSeconds(config.getTtlSeconds());
+        this.usersById = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .<String, Map<String, Object>>build(), "users");
+        this.uidsByEmail = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .<String, String>build(), "user-emails");
     }
 
     private DocumentReference getDocument(String userId) {
         return firestore.collection("users").document(userId);
     }
 
+    private CollectionReference getEmailIndex() {
+        return firestore.collection("emails");
+    }
+
+    private DocumentReference getEmailIndexDocument(String email) {
+        // Firestore document IDs cannot contain '/'
+        if (email == null || email.isEmpty() || email.indexOf('/') >= 0) {
+            throw new IllegalArgumentException("Invalid email address");
+        }
+        return getEmailIndex().document(email);
+    }
+
+    private static Map<String, Object> emailIndexEntry(String uid) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("uid", uid);
+        entry.put("createdAt", Timestamp.now());
+        return entry;
+    }
+
+    private void cache(String uid, Map<String, Object> data) {
+        usersById.put(uid, Collections.unmodifiableMap(data));
+        if (data.get("email") instanceof String email) {
+            uidsByEmail.put(email, uid);
+        }
+    }
+
+    private void invalidate(String uid) {
+        Map<String, Object> cached = usersById.getIfPresent(uid);
+        if (cached != null && cached.get("email") instanceof String email) {
+            uidsByEmail.invalidate(email);
+        }
+        usersById.invalidate(uid);
+    }
+
+    // ─── Non-blocking API ────────────────────────────────────────────────────
+
+    public CompletableFuture<User> saveAsync(User user) {
+        invalidate(user.getUid());
+        return FirestoreFutures.toCompletable(getDocument(user.getUid()).set(user.toMap())).thenApply(result -> {
+            // Drop anything a concurrent read may have cached while the write was in flight
+            invalidate(user.getUid());
+            log.info("User saved: {}", user.getUid());
+            return user;
+        });
+    }
+
+    /**
+     * Creates a new user and claims its email in the {@code emails/{email}} index within one
+     * transaction, so two concurrent signups cannot both own the same address.
+     * Resolves to false, without writing anything, if the email is already claimed.
+     */
+    public CompletableFuture<Boolean> createAsync(User user) {
+        DocumentReference userRef = getDocument(user.getUid());
+        DocumentReference emailRef = getEmailIndexDocument(user.getEmail());
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            if (transaction.get(emailRef).get().exists()) {
+                return false;
+            }
+            transaction.create(emailRef, emailIndexEntry(user.getUid()));
+            transaction.create(userRef, user.toMap());
+            return true;
+        })).thenApply(created -> {
+            if (created) {
+                log.info("User created: {}", user.getUid());
+            } else {
+                log.warn("User not created, email already claimed: {}", user.getEmail());
+            }
+            return created;
+        });
+    }
+
+    public CompletableFuture<Optional<User>> findByIdAsync(String userId) {
+        Map<String, Object> cached = usersById.getIfPresent(userId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(Optional.of(new User(cached, userId)));
+        }
+        return FirestoreFutures.toCompletable(getDocument(userId).get()).thenApply(doc -> {
+            if (doc.exists()) {
+                cache(doc.getId(), doc.getData());
+                return Optional.of(new User(doc.getData(), doc.getId()));
+            }
+            return Optional.empty();
+        });
+    }
+
+    public CompletableFuture<User> updateAsync(String userId, java.util.Map<String, Object> updates) {
+        invalidate(userId);
+        return FirestoreFutures.toCompletable(getDocument(userId).update(updates))
+                .thenCompose(result -> {
+                    invalidate(userId);
+                    log.info("User updated: {}", userId);
+                    // Re-read refreshes the cache with the post-update document
+                    return findByIdAsync(userId);
+                })
+                .thenApply(Optional::orElseThrow);
+    }
+
+    /**
+     * Compare-and-set on {@code passwordHash}: writes {@code newHash} in a transaction only if the
+     * stored hash still equals {@code expectedHash}. Resolves to false, writing nothing, otherwise.
+     */
+    public CompletableFuture<Boolean> replacePasswordHashAsync(String userId, String expectedHash, String newHash) {
+        DocumentReference ref = getDocument(userId);
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            DocumentSnapshot doc = transaction.get(ref).get();
+            if (!doc.exists() || !expectedHash.equals(doc.getString("passwordHash"))) {
+                return false;
+            }
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("passwordHash", newHash);
+            updates.put("updatedAt", Timestamp.now());
+            transaction.update(ref, updates);
+            return true;
+        })).thenApply(replaced -> {
+            if (replaced) {
+                invalidate(userId);
+            }
+            return replaced;
+        });
+    }
+
+    public CompletableFuture<Optional<User>> findByEmailAsync(String email) {
+        if (email == null || email.isEmpty() || email.indexOf('/') >= 0) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        String uid = uidsByEmail.getIfPresent(email);
+        if (uid != null) {
+            Map<String, Object> cached = usersById.getIfPresent(uid);
+            if (cached != null && email.equals(cached.get("email"))) {
+                return CompletableFuture.completedFuture(Optional.of(new User(cached, uid)));
+            }
+        }
+
+        // Single document get against the unique index instead of a users-collection scan
+        return FirestoreFutures.toCompletable(getEmailIndexDocument(email).get()).thenCompose(indexDoc -> {
+            if (indexDoc.exists()) {
+                String indexedUid = indexDoc.getString("uid");
+                return findByIdAsync(indexedUid).thenApply(found -> found.filter(user -> email.equals(user.getEmail())));
+            }
+            return legacyLookup ? findByEmailLegacyAsync(email) : CompletableFuture.completedFuture(Optional.<User>empty());
+        });
+    }
+
+    /**
+     * Stops index misses from querying the users collection, once every account is known to be indexed.
+     */
+    public void disableLegacyLookup() {
+        legacyLookup = false;
+    }
+
+    /**
+     * Fallback for accounts created before the email index existed: query by field once and
+     * backfill the index entry so later lookups take the single-get path.
+     */
+    private CompletableFuture<Optional<User>> findByEmailLegacyAsync(String email) {
+        Query query = firestore.collection("users").whereEqualTo("email", email).limit(1);
+        return FirestoreFutures.toCompletable(query.get()).thenApply(querySnapshot -> {
+            if (!querySnapshot.isEmpty()) {
+                QueryDocumentSnapshot doc = querySnapshot.getDocuments().get(0);
+                cache(doc.getId(), doc.getData());
+                FirestoreFutures.toCompletable(getEmailIndexDocument(email).create(emailIndexEntry(doc.getId())))
+                        .whenComplete((result, ex) -> {
+                            if (ex == null) {
+                                log.info("Backfilled email index for user: {}", doc.getId());
+                            }
+                        });
+                return Optional.of(new User(doc.getData(), doc.getId()));
+            }
+            return Optional.empty();
+        });
+    }
+
+    /**
+     * One page of user IDs in document-ID order, for jobs that walk every account.
+     * Pass the last ID of the previous page as {@code afterUid}, or null for the first page.
+     */
+    public CompletableFuture<List<String>> findUidPageAsync(String afterUid, int limit) {
+        Query query = firestore.collection("users")
+                .select(FieldPath.documentId())
+                .orderBy(FieldPath.documentId())
+                .limit(limit);
+        if (afterUid != null) {
+            query = query.startAfter(afterUid);
+        }
+        return FirestoreFutures.toCompletable(query.get()).thenApply(snapshot -> {
+            List<String> uids = new ArrayList<>();
+            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                uids.add(doc.getId());
+            }
+            return uids;
+        });
+    }
+
+    /**
+     * Claims the email index entry of every user on one page (document-ID order) that has none yet.
+     * Entries are only ever created, so re-running is harmless; an address already claimed by another
+     * account is left alone and logged. Resolves to the page's user IDs.
+     */
+    public CompletableFuture<List<String>> backfillEmailIndexPageAsync(String afterUid, int limit) {
+        Query query = firestore.collection("users")
+                .select("email")
+                .orderBy(FieldPath.documentId())
+                .limit(limit);
+        if (afterUid != null) {
+            query = query.startAfter(afterUid);
+        }
+        return FirestoreFutures.toCompletable(query.get()).thenCompose(snapshot -> {
+            List<String> uids = new ArrayList<>();
+            List<CompletableFuture<Void>> claims = new ArrayList<>();
+            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                uids.add(doc.getId());
+                String email = doc.getString("email");
+                if (email == null || email.isEmpty() || email.indexOf('/') >= 0) {
+                    continue;
+                }
+                DocumentReference emailRef = getEmailIndex().document(email);
+                claims.add(FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+                    DocumentSnapshot indexDoc = transaction.get(emailRef).get();
+                    if (!indexDoc.exists()) {
+                        transaction.create(emailRef, emailIndexEntry(doc.getId()));
+                    } else if (!doc.getId().equals(indexDoc.getString("uid"))) {
+                        log.warn("Email index entry for user {} already claimed by {}", doc.getId(), indexDoc.getString("uid"));
+                    }
+                    return null;
+                })));
+            }
+            return CompletableFuture.allOf(claims.toArray(new CompletableFuture[0])).thenApply(ignored -> uids);
+        });
+    }
+
+    /**
+     * Deletes the user document and releases its email index entry in one transaction.
+     */
+    public CompletableFuture<Void> deleteAsync(String userId) {
+        invalidate(userId);
+        DocumentReference userRef = getDocument(userId);
+        return FirestoreFutures.toCompletable(firestore.runTransaction(transaction -> {
+            DocumentSnapshot userDoc = transaction.get(userRef).get();
+            String email = userDoc.exists() ? userDoc.getString("email") : null;
+            if (email != null && !email.isEmpty() && email.indexOf('/') < 0) {
+                DocumentReference emailRef = getEmailIndex().document(email);
+                DocumentSnapshot indexDoc = transaction.get(emailRef).get();
+                // Only release the entry if it still points at this account
+                if (indexDoc.exists() && userId.equals(indexDoc.getString("uid"))) {
+                    transaction.delete(emailRef);
+                }
+            }
+            transaction.delete(userRef);
+            return null;
+        })).thenAccept(result -> {
+            invalidate(userId);
+            log.info("User deleted from Firestore: {}", userId);
+        });
+    }
+
+    // ─── Blocking API ────────────────────────────────────────────────────────
+
     public User save(User user) throws ExecutionException, InterruptedException {
-        getDocument(user.getUid()).set(user.toMap()).get();
-        log.info("User saved: {}", user.getUid());
-        return user;
+        return saveAsync(user).get();
+    }
+
+    public boolean create(User user) throws ExecutionException, InterruptedException {
+        return createAsync(user).get();
     }
 
     public Optional<User> findById(String userId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot doc = getDocument(userId).get().get();
-        if (doc.exists()) {
-            return Optional.of(new User(doc.getData(), doc.getId()));
-        }
-        return Optional.empty();
+        return findByIdAsync(userId).get();
     }
 
     public User update(String userId, java.util.Map<String, Object> updates)
             throws ExecutionException, InterruptedException {
-        getDocument(userId).update(updates).get();
-        log.info("User updated: {}", userId);
-        return findById(userId).orElseThrow();
+        return updateAsync(userId, updates).get();
     }
 
     public Optional<User> findByEmail(String email) throws ExecutionException, InterruptedException {
-        Query query = firestore.collection("users").whereEqualTo("email", email).limit(1);
-        QuerySnapshot querySnapshot = query.get().get();
-        if (!querySnapshot.isEmpty()) {
-            QueryDocumentSnapshot doc = querySnapshot.getDocuments().get(0);
-            return Optional.of(new User(doc.getData(), doc.getId()));
-        }
-        return Optional.empty();
+        return findByEmailAsync(email).get();
+    }
+
+    public List<String> findUidPage(String afterUid, int limit) throws ExecutionException, InterruptedException {
+        return findUidPageAsync(afterUid, limit).get();
     }
 
     public void delete(String userId) throws ExecutionException, InterruptedException {
-        getDocument(userId).delete().get();
-        log.info("User deleted from Firestore: {}", userId);
+        deleteAsync(userId).get();
     }
 }
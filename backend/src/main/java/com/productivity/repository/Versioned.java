@@ -0,0 +1,20 @@
+package com.productivity.repository;
+
+import com.google.cloud.Timestamp;
+
+/**
+ * A document's value together with the update time it was read at, for writes that must not overwrite
+ * a change made after the read (see {@code Precondition.updatedAt}).
+ */
+public final class Versioned<T> {
+    private final T value;
+    private final Timestamp updateTime;
+
+    public Versioned(T value, Timestamp updateTime) {
+        this.value = value;
+        this.updateTime = updateTime;
+    }
+
+    public T getValue() { return value; }
+    public Timestamp getUpdateTime() { return updateTime; }
+}
@@ -0,0 +1,141 @@
+package com.productivity.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.productivity.config.AppProperties;
+import com.productivity.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-email and per-IP limits for the unauthenticated endpoints that cost a BCrypt round or an email.
+ * Each key holds a sliding-window counter packed into a single {@link AtomicLong}, updated by CAS, so
+ * checks never block; the counters live in a bounded Caffeine map (concurrent, striped internally)
+ * that forgets idle keys. Attempts over a limit are rejected without being counted.
+ */
+@Service
+public class AuthRateLimiter {
+
+    private static final int MAX_COUNT = 0xFFFF;
+
+    private final AppProperties.AuthRateLimit config;
+    private final Cache<String, SlidingWindow> windows;
+
+    public AuthRateLimiter(AppProperties appProperties, MeterRegistry meterRegistry) {
+        this.config = appProperties.getAuthRateLimit();
+        int longestWindow = Math.max(config.getLoginWindowSeconds(), config.getEmailSendWindowSeconds());
+        this.windows = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(config.getMaximumTrackedKeys())
+                // A counter idle for two windows has decayed to zero
+                .expireAfterAccess(Duration.ofSeconds(2L * longestWindow))
+                .recordStats()
+                .<String, SlidingWindow>build(), "auth-rate-limits");
+    }
+
+    /**
+     * Counts a login attempt against the email and the client IP, or throws 429 if either is over its limit.
+     *
+     * @return the attempts recorded for the email in the current window, including this one
+     */
+    public int acquireLogin(String email, String ip) {
+        long windowMillis = config.getLoginWindowSeconds() * 1000L;
+        acquire("login-ip:" + ip, windowMillis, config.getMaxLoginAttemptsPerIp());
+        if (email == null) {
+            return 0;
+        }
+        return acquire("login:" + email, windowMillis, config.getMaxLoginAttemptsPerEmail());
+    }
+
+    /**
+     * Clears the email's failed attempts after a successful login.
+     */
+    public void loginSucceeded(String email) {
+        if (email != null) {
+            windows.invalidate("login:" + email);
+        }
+    }
+
+    public boolean isLoginLimitReached(int attempts) {
+        return attempts >= config.getMaxLoginAttemptsPerEmail();
+    }
+
+    public Duration getLockoutDuration() {
+        return Duration.ofMinutes(config.getLockoutMinutes());
+    }
+
+    /**
+     * Counts an email send (OTP, password reset) against the recipient and the client IP, or throws 429.
+     */
+    public void acquireEmailSend(String email, String ip) {
+        long windowMillis = config.getEmailSendWindowSeconds() * 1000L;
+        acquire("email-ip:" + ip, windowMillis, config.getMaxEmailSendsPerIp());
+        if (email != null) {
+            acquire("email:" + email, windowMillis, config.getMaxEmailSendsPerEmail());
+        }
+    }
+
+    private int acquire(String key, long windowMillis, int limit) {
+        SlidingWindow window = windows.get(key, k -> new SlidingWindow(windowMillis));
+        long now = System.currentTimeMillis();
+        int count = window.tryAcquire(now, limit);
+        if (count < 0) {
+            // The estimate decays continuously; the end of the current window is a safe upper bound
+            long retryAfterMillis = windowMillis - now % windowMillis;
+            throw new TooManyRequestsException("Too many attempts, please try again later",
+                    (int) Math.max(1, (retryAfterMillis + 999) / 1000));
+        }
+        return count;
+    }
+
+    /**
+     * Sliding-window counter: the previous fixed window's count, weighted by how much of it still overlaps
+     * the sliding window, plus the current window's count. State is one long laid out as
+     * [window index: 32 bits | previous count: 16 bits | current count: 16 bits].
+     */
+    static final class SlidingWindow {
+        private final long windowMillis;
+        private final AtomicLong state = new AtomicLong();
+
+        SlidingWindow(long windowMillis) {
+            this.windowMillis = windowMillis;
+        }
+
+        /**
+         * @return the estimated count including this attempt, or -1 if it would exceed {@code limit}
+         */
+        int tryAcquire(long nowMillis, int limit) {
+            long index = (nowMillis / windowMillis) & 0xFFFFFFFFL;
+            double previousWeight = 1.0 - (double) (nowMillis % windowMillis) / windowMillis;
+            while (true) {
+                long current = state.get();
+                long currentIndex = current >>> 32;
+                int previousCount;
+                int currentCount;
+                if (currentIndex == index) {
+                    previousCount = (int) ((current >>> 16) & MAX_COUNT);
+                    currentCount = (int) (current & MAX_COUNT);
+                } else if (currentIndex + 1 == index) {
+                    previousCount = (int) (current & MAX_COUNT);
+                    currentCount = 0;
+                } else {
+                    previousCount = 0;
+                    currentCount = 0;
+                }
+                double estimate = previousCount * previousWeight + currentCount + 1;
+                if (estimate > limit) {
+                    return -1;
+                }
+                long next = (index << 32)
+                        | ((long) previousCount << 16)
+                        | Math.min(currentCount + 1, MAX_COUNT);
+                if (state.compareAndSet(current, next)) {
+                    return (int) Math.ceil(estimate);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.productivity.service;
+
+import com.productivity.config.AppProperties;
+import com.productivity.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Claims the {@code emails/{email}} index entry for every account created before the index existed, when
+ * {@code app.email-index.backfill-on-startup} is set. Pages run one after another in the background.
+ * Once it completes, this instance stops falling back to the users query on index misses; other
+ * instances do so when {@code app.email-index.legacy-lookup} is turned off.
+ */
+@Component
+public class EmailIndexBackfillJob implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailIndexBackfillJob.class);
+
+    private final UserRepository userRepository;
+    private final AppProperties.EmailIndex config;
+
+    public EmailIndexBackfillJob(UserRepository userRepository, AppProperties appProperties) {
+        this.userRepository = userRepository;
+        this.config = appProperties.getEmailIndex();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!config.isBackfillOnStartup()) {
+            return;
+        }
+        log.info("Email index backfill started");
+        backfillPage(null, 0).whenComplete((users, ex) -> {
+            if (ex != null) {
+                log.error("Email index backfill failed: ", ex);
+            } else {
+                userRepository.disableLegacyLookup();
+                log.info("Email index backfill finished, {} users checked; app.email-index.legacy-lookup can be turned off", users);
+            }
+        });
+    }
+
+    private CompletableFuture<Integer> backfillPage(String afterUid, int processed) {
+        return userRepository.backfillEmailIndexPageAsync(afterUid, config.getBackfillPageSize()).thenCompose(uids -> {
+            if (uids.isEmpty()) {
+                return CompletableFuture.completedFuture(processed);
+            }
+            int total = processed + uids.size();
+            log.info("Email index backfill progress: {} users checked", total);
+            return backfillPage(uids.get(uids.size() - 1), total);
+        });
+    }
+}
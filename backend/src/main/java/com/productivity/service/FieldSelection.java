@@ -0,0 +1,81 @@
+package com.productivity.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A client-requested sparse fieldset ({@code ?fields=id,title,status}).
+ * Field names are the DTO property names, which match the Firestore document fields.
+ */
+public final class FieldSelection {
+
+    public static final FieldSelection ALL = new FieldSelection(null);
+
+    /** Jackson filter on DTOs that support sparse fieldsets; every property passes unless a selection applies. */
+    public static final String FILTER_ID = "fieldSelection";
+
+    /** Request attribute under which a controller publishes the selection for response serialization. */
+    public static final String REQUEST_ATTRIBUTE = FieldSelection.class.getName();
+
+    private final Set<String> fields; // null means every field
+
+    private FieldSelection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Parse a comma-separated field list, rejecting names outside {@code allowed}.
+     * A null or blank list selects everything.
+     */
+    public static FieldSelection parse(String fields, Set<String> allowed) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) continue;
+            if (!allowed.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            selected.add(name);
+        }
+        return selected.isEmpty() ? ALL : new FieldSelection(Collections.unmodifiableSet(selected));
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    /**
+     * The selected property names plus the always-present {@code id}, or null when every field is selected.
+     */
+    public Set<String> propertyNames() {
+        if (fields == null) {
+            return null;
+        }
+        Set<String> names = new LinkedHashSet<>(fields);
+        names.add("id");
+        return names;
+    }
+
+    /**
+     * Firestore field paths for a select() projection, or null to fetch whole documents.
+     * The document ID is always returned by Firestore and is not a projectable field.
+     */
+    public String[] toProjection(String... alwaysInclude) {
+        if (fields == null) {
+            return null;
+        }
+        Set<String> projection = new LinkedHashSet<>(fields);
+        projection.addAll(Arrays.asList(alwaysInclude));
+        projection.remove("id");
+        return projection.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,129 @@
+package com.productivity.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.productivity.config.AppProperties;
+import com.productivity.dto.HabitCorrelationDTO;
+import com.productivity.model.Habit;
+import com.productivity.model.HabitHistory;
+import com.productivity.repository.HabitLogRepository;
+import com.productivity.repository.HabitRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Co-completion analytics: for every pair of habits, how often both are completed on the same day
+ * compared with chance. Each habit's window is one bitset built from the month bitmaps, so a pair
+ * costs an AND and popcount per 64 days.
+ */
+@Service
+public class HabitCorrelationService {
+
+    public static final int MAX_DAYS = 5 * 366;
+
+    private final HabitRepository habitRepository;
+    private final HabitLogRepository habitLogRepository;
+
+    // Results per user, keyed by window length. A user's entry is dropped on their next completion
+    // (see invalidate); the TTL bounds staleness from completions handled by other instances.
+    private final Cache<String, Map<Integer, HabitCorrelationDTO>> resultsByUser;
+
+    public HabitCorrelationService(HabitRepository habitRepository, HabitLogRepository habitLogRepository,
+                                   AppProperties appProperties, MeterRegistry meterRegistry) {
+        this.habitRepository = habitRepository;
+        this.habitLogRepository = habitLogRepository;
+
+        AppProperties.Analytics config = appProperties.getAnalytics();
+        this.resultsByUser = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(config.getCacheMaximumSize())
+                .expireAfterWrite(Duration.ofSeconds(config.getCacheTtlSeconds()))
+                .recordStats()
+                .<String, Map<Integer, HabitCorrelationDTO>>build(), "habit-correlations");
+    }
+
+    public CompletableFuture<HabitCorrelationDTO> getCorrelations(String userId, int days) {
+        if (days < 2 || days > MAX_DAYS) {
+            throw new IllegalArgumentException("days must be between 2 and " + MAX_DAYS);
+        }
+        LocalDate today = LocalDate.now();
+        Map<Integer, HabitCorrelationDTO> cached = resultsByUser.get(userId, key -> new ConcurrentHashMap<>());
+        HabitCorrelationDTO hit = cached.get(days);
+        if (hit != null && hit.getEndDate().equals(today.toString())) {
+            return CompletableFuture.completedFuture(hit);
+        }
+
+        LocalDate from = today.minusDays(days - 1L);
+        return habitRepository.findAllAsync(userId, new String[]{"name", "createdAt"})
+                .thenCombine(habitLogRepository.findAllHistoriesAsync(userId, from, today),
+                        (habits, histories) -> compute(habits, histories, from, today))
+                .thenApply(result -> {
+                    // An invalidation while computing detaches this map, so a stale result is never served
+                    cached.put(days, result);
+                    return result;
+                });
+    }
+
+    /**
+     * Drops the user's cached results; called whenever one of their completions changes.
+     */
+    public void invalidate(String userId) {
+        resultsByUser.invalidate(userId);
+    }
+
+    private static HabitCorrelationDTO compute(List<Habit> habits, Map<String, HabitHistory> histories,
+                                               LocalDate from, LocalDate to) {
+        int days = (int) (to.toEpochDay() - from.toEpochDay() + 1);
+        int n = habits.size();
+        HabitHistory[] bitsets = new HabitHistory[n];
+        int[] completed = new int[n];
+        List<HabitCorrelationDTO.HabitRateDTO> rates = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Habit habit = habits.get(i);
+            bitsets[i] = histories.getOrDefault(habit.getId(), new HabitHistory(from, to));
+            completed[i] = bitsets[i].cardinality();
+            rates.add(new HabitCorrelationDTO.HabitRateDTO(habit.getId(), habit.getName(), completed[i],
+                    round((double) completed[i] / days)));
+        }
+
+        List<HabitCorrelationDTO.HabitPairDTO> pairs = new ArrayList<>();
+        for (int a = 0; a < n; a++) {
+            if (completed[a] == 0) continue;
+            for (int b = a + 1; b < n; b++) {
+                if (completed[b] == 0) continue;
+                int together = bitsets[a].andCardinality(bitsets[b]);
+                HabitCorrelationDTO.HabitPairDTO pair = new HabitCorrelationDTO.HabitPairDTO();
+                pair.setHabitA(habits.get(a).getId());
+                pair.setHabitB(habits.get(b).getId());
+                pair.setTogether(together);
+                pair.setLift(round((double) together * days / ((double) completed[a] * completed[b])));
+                pair.setProbBGivenA(round((double) together / completed[a]));
+                pair.setProbAGivenB(round((double) together / completed[b]));
+                pairs.add(pair);
+            }
+        }
+        pairs.sort(Comparator.comparingDouble(HabitCorrelationDTO.HabitPairDTO::getLift).reversed()
+                .thenComparing(Comparator.comparingInt(HabitCorrelationDTO.HabitPairDTO::getTogether).reversed()));
+
+        HabitCorrelationDTO dto = new HabitCorrelationDTO();
+        dto.setStartDate(from.toString());
+        dto.setEndDate(to.toString());
+        dto.setDays(days);
+        dto.setHabits(rates);
+        dto.setPairs(pairs);
+        return dto;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10_000) / 10_000.0;
+    }
+}
@@ -0,0 +1,100 @@
+package com.productivity.service;
+
+import com.productivity.dto.HabitIntelligenceDTO;
+import com.productivity.model.Habit;
+import com.productivity.model.HabitHistory;
+import com.productivity.model.HabitLog;
+import com.productivity.model.HabitSchedule;
+import com.productivity.model.HabitStats;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dashboard intelligence. The metrics are read off the user's rolling {@link HabitStats}, which
+ * completions keep current, so serving them needs no logs; logs are only scanned once, to seed the aggregates.
+ */
+@Component
+public class HabitIntelligenceEngine {
+
+    /**
+     * Builds aggregates from scratch out of the habits and their logs for the trailing window.
+     */
+    public HabitStats seed(List<Habit> habits, Map<String, List<HabitLog>> logsByHabit, LocalDate today) {
+        long todayEpochDay = today.toEpochDay();
+        LocalDate first = today.minusDays(HabitStats.WINDOW - 1);
+        HabitStats stats = new HabitStats(todayEpochDay);
+
+        for (Habit habit : habits) {
+            stats.getHabits().put(habit.getId(), new HabitStats.HabitState(habit));
+            List<HabitLog> logs = logsByHabit.get(habit.getId());
+            if (logs == null) continue;
+            HabitHistory history = HabitHistory.of(logs, first, today);
+            for (long day = first.toEpochDay(); day <= todayEpochDay; day++) {
+                if (history.isCompleted(day)) {
+                    stats.record(day, 1);
+                }
+            }
+        }
+        return stats;
+    }
+
+    public HabitIntelligenceDTO compute(HabitStats stats, LocalDate today) {
+        HabitIntelligenceDTO intel = new HabitIntelligenceDTO();
+        if (stats.getHabits().isEmpty()) return intel;
+
+        stats.rollTo(today.toEpochDay());
+
+        // Weight of each weekday inside the 30-day window (a day i days ago weighs 30 - i), so a
+        // weekday schedule's expected weight is just the sum over its due weekdays
+        double[] weekdayWeight = new double[7];
+        for (int i = 0; i < HabitStats.WINDOW; i++) {
+            weekdayWeight[today.minusDays(i).getDayOfWeek().getValue() - 1] += HabitStats.WINDOW - i;
+        }
+        double fullWeight = HabitStats.WINDOW * (HabitStats.WINDOW + 1) / 2.0;
+
+        double expectedWeight = 0;
+        int weeklyExpected = 0;
+        int riskCount = 0;
+        int maxStreak = 0;
+        for (HabitStats.HabitState h : stats.getHabits().values()) {
+            HabitSchedule schedule = HabitSchedule.of(h.getFrequency());
+            if (schedule.isQuota()) {
+                expectedWeight += fullWeight * schedule.getWeeklyQuota() / HabitStats.WEEK;
+            } else {
+                for (int wd = 0; wd < 7; wd++) {
+                    if ((schedule.getWeekdayMask() & (1 << wd)) != 0) expectedWeight += weekdayWeight[wd];
+                }
+            }
+            weeklyExpected += schedule.expectedPerWeek();
+
+            // At risk: a live streak whose schedule has already been missed
+            if (h.getCurrentStreak() > 0 && !schedule.isStreakIntact(h.getLastCompletedDate(), h.getPeriodStart(),
+                    h.getPeriodCompletions(), today)) {
+                riskCount++;
+            }
+            maxStreak = Math.max(maxStreak, h.getCurrentStreak());
+        }
+
+        // 1. Consistency Score (last 30 days weighted, relative to what the schedules asked for)
+        intel.setConsistencyScore(percent(stats.getWeightedSum(), expectedWeight));
+
+        // 2. Risk Detection
+        intel.setRiskCount(riskCount);
+
+        // 3. Longest Streak
+        intel.setLongestStreak(maxStreak);
+
+        // 4. Weekly Completion Rate
+        intel.setWeeklyCompletionRate(percent(stats.getWeekSum(), weeklyExpected));
+
+        return intel;
+    }
+
+    // Off-schedule completions can push the ratio past 100%, which is capped
+    private static int percent(double actual, double expected) {
+        return expected > 0 ? (int) Math.min(100, Math.round(actual * 100.0 / expected)) : 0;
+    }
+}
@@ -0,0 +1,71 @@
+package com.productivity.service;
+
+import com.productivity.config.AppProperties;
+import com.productivity.repository.HabitLogRepository;
+import com.productivity.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Moves every user's legacy per-day habit logs into monthly bitmap documents when
+ * {@code app.habit-logs.migrate-on-startup} is set. Users are processed one at a time in the
+ * background, so startup is not delayed; users not yet reached are migrated on first access anyway.
+ */
+@Component
+public class HabitLogMigrationJob implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(HabitLogMigrationJob.class);
+
+    private final UserRepository userRepository;
+    private final HabitLogRepository habitLogRepository;
+    private final AppProperties.HabitLogs config;
+
+    public HabitLogMigrationJob(UserRepository userRepository, HabitLogRepository habitLogRepository,
+                                AppProperties appProperties) {
+        this.userRepository = userRepository;
+        this.habitLogRepository = habitLogRepository;
+        this.config = appProperties.getHabitLogs();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!config.isMigrateOnStartup()) {
+            return;
+        }
+        log.info("Habit log migration started");
+        migratePage(null, 0).whenComplete((migratedUsers, ex) -> {
+            if (ex != null) {
+                log.error("Habit log migration failed: ", ex);
+            } else {
+                log.info("Habit log migration finished, {} users checked", migratedUsers);
+            }
+        });
+    }
+
+    private CompletableFuture<Integer> migratePage(String afterUid, int processed) {
+        return userRepository.findUidPageAsync(afterUid, config.getMigrationPageSize()).thenCompose(uids -> {
+            if (uids.isEmpty()) {
+                return CompletableFuture.completedFuture(processed);
+            }
+            return migrateUsers(uids).thenCompose(ignored -> {
+                int total = processed + uids.size();
+                log.info("Habit log migration progress: {} users checked", total);
+                return migratePage(uids.get(uids.size() - 1), total);
+            });
+        });
+    }
+
+    private CompletableFuture<Void> migrateUsers(List<String> uids) {
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (String uid : uids) {
+            chain = chain.thenCompose(ignored -> habitLogRepository.ensureMigratedAsync(uid));
+        }
+        return chain;
+    }
+}
@@ -0,0 +1,145 @@
+package com.productivity.service;
+
+import com.productivity.config.AppProperties;
+import com.productivity.model.HabitLog;
+import com.productivity.repository.HabitLogRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces rapid progress taps: increments for the same habit and day that arrive within the configured
+ * window are summed and written as one atomic increment. Every caller in the window completes with the
+ * day's progress after that write and the window's combined delta, so each can tell whether the write
+ * crossed the goal.
+ */
+@Component
+public class HabitProgressCoalescer {
+
+    private final HabitLogRepository habitLogRepository;
+    private final long windowMillis;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor();
+    private volatile boolean shuttingDown;
+
+    public HabitProgressCoalescer(HabitLogRepository habitLogRepository, AppProperties appProperties) {
+        this.habitLogRepository = habitLogRepository;
+        this.windowMillis = appProperties.getHabitLogs().getProgressCoalesceMillis();
+    }
+
+    public CompletableFuture<Increment> add(String userId, String habitId, String date, long delta) {
+        String key = userId + "/" + habitId + "/" + date;
+        while (true) {
+            if (shuttingDown) {
+                // Nothing flushes windows any more, so the delta is written on its own
+                return habitLogRepository.incrementProgressAsync(userId, habitId, date, delta)
+                        .thenApply(log -> new Increment(log, delta));
+            }
+            Pending fresh = new Pending(userId, habitId, date);
+            Pending current = pending.putIfAbsent(key, fresh);
+            if (current == null) {
+                current = fresh;
+                try {
+                    flushExecutor.schedule(() -> flush(key, fresh), windowMillis, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // Shutdown began after the check above: write out whatever joined the window, then retry
+                    flush(key, fresh);
+                    continue;
+                }
+            }
+            // A window that is already flushing rejects the delta; the next loop opens a new one
+            if (current.add(delta)) {
+                return current.result;
+            }
+        }
+    }
+
+    private void flush(String key, Pending window) {
+        pending.remove(key, window);
+        // The scheduled flush and the shutdown drain may both reach a window; only the first writes it
+        if (!window.close()) {
+            return;
+        }
+        long delta = window.delta();
+        habitLogRepository.incrementProgressAsync(window.userId, window.habitId, window.date, delta)
+                .whenComplete((log, error) -> {
+                    if (error != null) {
+                        window.result.completeExceptionally(error);
+                    } else {
+                        window.result.complete(new Increment(log, delta));
+                    }
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Scheduled flushes are dropped; the drain below writes every open window exactly once
+        shuttingDown = true;
+        flushExecutor.shutdownNow();
+        pending.forEach(this::flush);
+    }
+
+    /**
+     * The day's log after a window's write, and the sum of the deltas the write applied.
+     */
+    public static final class Increment {
+        private final HabitLog log;
+        private final long delta;
+
+        Increment(HabitLog log, long delta) {
+            this.log = log;
+            this.delta = delta;
+        }
+
+        public HabitLog getLog() { return log; }
+        public long getDelta() { return delta; }
+
+        /**
+         * The day's progress just before the write.
+         */
+        public long previousValue() {
+            return log.getValue() - delta;
+        }
+    }
+
+    private static final class Pending {
+        final String userId;
+        final String habitId;
+        final String date;
+        final CompletableFuture<Increment> result = new CompletableFuture<>();
+        private long delta;
+        private boolean closed;
+
+        Pending(String userId, String habitId, String date) {
+            this.userId = userId;
+            this.habitId = habitId;
+            this.date = date;
+        }
+
+        synchronized boolean add(long amount) {
+            if (closed) return false;
+            delta += amount;
+            return true;
+        }
+
+        /**
+         * Stops the window accepting deltas; returns false if it was already closed.
+         */
+        synchronized boolean close() {
+            if (closed) return false;
+            closed = true;
+            return true;
+        }
+
+        synchronized long delta() {
+            return delta;
+        }
+    }
+}
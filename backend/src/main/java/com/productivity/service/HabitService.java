@@ -1,245 +1,569 @@
 package com.productivity.service;
 
 import com.google.cloud.Timestamp;
+import com.productivity.config.AppProperties;
+import com.productivity.dto.HabitCorrelationDTO;
 import com.productivity.dto.HabitDTO;
+import com.productivity.dto.HabitHeatmapDTO;
 import com.productivity.dto.HabitLogDTO;
+import com.productivity.dto.HabitProgressDTO;
 import com.productivity.exception.ResourceNotFoundException;
+import com.productivity.exception.ServiceUnavailableException;
 import com.productivity.model.Habit;
+import com.productivity.model.HabitHistory;
 import com.productivity.model.HabitLog;
+import com.productivity.model.HabitSchedule;
+import com.productivity.model.HabitStats;
 import com.productivity.repository.HabitLogRepository;
 import com.productivity.repository.HabitRepository;
+import com.productivity.repository.HabitStatsRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.HashMap;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import com.productivity.dto.HabitDashboardDTO;
 import com.productivity.dto.HabitIntelligenceDTO;
+import com.productivity.dto.HabitIntelligenceSnapshotDTO;
 
 @Service
 public class HabitService {
 
     private static final Logger log = LoggerFactory.getLogger(HabitService.class);
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+    private static final int MAX_HEATMAP_DAYS = 5 * 366;
+    private static final int MIGRATION_RETRY_AFTER_SECONDS = 5;
 
     private final HabitRepository habitRepository;
     private final HabitLogRepository habitLogRepository;
+    private final HabitStatsRepository habitStatsRepository;
+    private final HabitIntelligenceEngine intelligenceEngine;
+    private final HabitProgressCoalescer progressCoalescer;
+    private final HabitCorrelationService correlationService;
+    private final IntelligenceSnapshotService snapshotService;
+    private final AppProperties.Dashboard dashboardConfig;
 
-    public HabitService(HabitRepository habitRepository, HabitLogRepository habitLogRepository) {
+    public HabitService(HabitRepository habitRepository, HabitLogRepository habitLogRepository,
+                        HabitStatsRepository habitStatsRepository, HabitIntelligenceEngine intelligenceEngine,
+                        HabitProgressCoalescer progressCoalescer, HabitCorrelationService correlationService,
+                        IntelligenceSnapshotService snapshotService, AppProperties appProperties) {
         this.habitRepository = habitRepository;
         this.habitLogRepository = habitLogRepository;
+        this.habitStatsRepository = habitStatsRepository;
+        this.intelligenceEngine = intelligenceEngine;
+        this.progressCoalescer = progressCoalescer;
+        this.correlationService = correlationService;
+        this.snapshotService = snapshotService;
+        this.dashboardConfig = appProperties.getDashboard();
     }
 
-    public HabitDTO createHabit(String userId, HabitDTO dto) throws ExecutionException, InterruptedException {
+    public CompletableFuture<HabitDTO> createHabit(String userId, HabitDTO dto) {
         Habit habit = new Habit();
         habit.setName(dto.getName());
         habit.setDescription(dto.getDescription());
         habit.setCategory(dto.getCategory());
-        habit.setFrequency(dto.getFrequency());
+        habit.setFrequency(validFrequency(dto.getFrequency()));
         habit.setGoalType(dto.getGoalType());
-        habit.setGoalValue(dto.getGoalValue());
+        habit.setGoalValue(dto.getGoalValue() != null ? dto.getGoalValue() : 0);
         habit.setMotivation(dto.getMotivation());
         habit.setCurrentStreak(0);
         habit.setLongestStreak(0);
+        habit.setRunLengths(new HashMap<>());
         habit.setCreatedAt(Timestamp.now());
 
-        Habit saved = habitRepository.save(userId, habit);
-        return toDTO(saved);
+        return habitRepository.saveAsync(userId, habit)
+                .thenCompose(saved -> habitStatsRepository.updateAsync(userId, stats ->
+                                stats.getHabits().put(saved.getId(), new HabitStats.HabitState(saved)))
+                        .thenApply(ignored -> toDTO(saved)))
+                .whenComplete((result, error) -> correlationService.invalidate(userId));
     }
 
-    public List<HabitDTO> getHabits(String userId) throws ExecutionException, InterruptedException {
-        return habitRepository.findAll(userId).stream()
-                .map(this::toDTO).collect(Collectors.toList());
+    public static final Set<String> HABIT_FIELDS = Set.of("id", "name", "description", "category", "frequency",
+            "goalType", "goalValue", "motivation", "currentStreak", "longestStreak", "lastCompletedDate", "createdAt");
+
+    public CompletableFuture<List<HabitDTO>> getHabits(String userId) {
+        return getHabits(userId, FieldSelection.ALL);
     }
 
-    public HabitDTO getHabit(String userId, String habitId) throws ExecutionException, InterruptedException {
-        Habit habit = habitRepository.findById(userId, habitId)
-                .orElseThrow(() -> new ResourceNotFoundException("Habit", habitId));
-        return toDTO(habit);
+    /**
+     * Lists habits with only the selected fields fetched from Firestore and mapped to the DTO.
+     */
+    public CompletableFuture<List<HabitDTO>> getHabits(String userId, FieldSelection fields) {
+        return habitRepository.findAllAsync(userId, fields.toProjection())
+                .thenApply(habits -> habits.stream().map(h -> toDTO(h, fields)).collect(Collectors.toList()));
     }
 
-    public HabitDTO updateHabit(String userId, String habitId, HabitDTO dto) throws ExecutionException, InterruptedException {
-        Habit existing = habitRepository.findById(userId, habitId)
-                .orElseThrow(() -> new ResourceNotFoundException("Habit", habitId));
+    public CompletableFuture<HabitDTO> getHabit(String userId, String habitId) {
+        return findHabit(userId, habitId).thenApply(this::toDTO);
+    }
 
-        if (dto.getName() != null) existing.setName(dto.getName());
-        if (dto.getDescription() != null) existing.setDescription(dto.getDescription());
-        if (dto.getCategory() != null) existing.setCategory(dto.getCategory());
-        if (dto.getFrequency() != null) existing.setFrequency(dto.getFrequency());
-        if (dto.getGoalType() != null) existing.setGoalType(dto.getGoalType());
-        if (dto.getGoalValue() > 0) existing.setGoalValue(dto.getGoalValue());
-        if (dto.getMotivation() != null) existing.setMotivation(dto.getMotivation());
+    public CompletableFuture<HabitDTO> updateHabit(String userId, String habitId, HabitDTO dto) {
+        return findHabit(userId, habitId).thenCompose(existing -> {
+            if (dto.getName() != null) existing.setName(dto.getName());
+            if (dto.getDescription() != null) existing.setDescription(dto.getDescription());
+            if (dto.getCategory() != null) existing.setCategory(dto.getCategory());
+            if (dto.getFrequency() != null) {
+                String frequency = validFrequency(dto.getFrequency());
+                // Runs depend on the schedule; the counts are re-seeded by the next edit
+                if (!frequency.equals(existing.getFrequency())) existing.setRunLengths(null);
+                existing.setFrequency(frequency);
+            }
+            if (dto.getGoalType() != null) existing.setGoalType(dto.getGoalType());
+            if (dto.getGoalValue() != null && dto.getGoalValue() > 0) existing.setGoalValue(dto.getGoalValue());
+            if (dto.getMotivation() != null) existing.setMotivation(dto.getMotivation());
 
-        Habit saved = habitRepository.save(userId, existing);
-        return toDTO(saved);
+            return habitRepository.saveAsync(userId, existing);
+        }).thenCompose(saved -> {
+            if (dto.getFrequency() == null) {
+                return CompletableFuture.completedFuture(saved);
+            }
+            return habitStatsRepository.updateAsync(userId, stats ->
+                    stats.getHabits().put(habitId, new HabitStats.HabitState(saved))).thenApply(ignored -> saved);
+        }).thenApply(this::toDTO);
     }
 
-    public void deleteHabit(String userId, String habitId) throws ExecutionException, InterruptedException {
-        habitRepository.findById(userId, habitId)
-                .orElseThrow(() -> new ResourceNotFoundException("Habit", habitId));
-        habitRepository.delete(userId, habitId);
+    /**
+     * Deletes a habit and takes its completions in the trailing window back out of the user's aggregates.
+     * The delete and the aggregates update commit in one transaction, so a failure cannot leave stats
+     * counting a habit that no longer exists.
+     */
+    public CompletableFuture<Void> deleteHabit(String userId, String habitId) {
+        LocalDate today = LocalDate.now();
+        String windowStart = today.minusDays(HabitStats.WINDOW - 1).format(DATE_FORMAT);
+        String windowEnd = today.format(DATE_FORMAT);
+
+        return habitLogRepository.ensureMigratedAsync(userId).thenCompose(migrated ->
+                habitRepository.deleteInTransactionAsync(userId, habitId, (transaction, habit) -> {
+            // Reads come first in a transaction: the aggregates, then the habit's recent logs
+            Optional<HabitStats> stats = habitStatsRepository.find(transaction, userId);
+            if (stats.isPresent()) {
+                List<HabitLog> recentLogs = habitLogRepository.findByDateRange(transaction, userId, habitId,
+                        windowStart, windowEnd);
+                HabitStats updated = stats.get();
+                updated.rollTo(today.toEpochDay());
+                for (HabitLog recent : recentLogs) {
+                    updated.record(LocalDate.parse(recent.getDate(), DATE_FORMAT).toEpochDay(), -1);
+                }
+                updated.getHabits().remove(habitId);
+                habitStatsRepository.save(transaction, userId, updated);
+            }
+            return true;
+        })).thenAccept(deleted -> deleted.orElseThrow(() -> new ResourceNotFoundException("Habit", habitId)))
+                .whenComplete((result, error) -> correlationService.invalidate(userId));
     }
 
     /**
      * Mark a habit as completed for today. Handles streak logic:
-     * - If last completed was yesterday → increment streak
      * - If last completed was today → already done, return
-     * - Otherwise → reset streak to 1 (missed day)
+     * - Otherwise the streak is extended or restarted according to the habit's {@link HabitSchedule}
+     *
+     * The habit read, the log entry, the streak fields and the user's intelligence aggregates commit
+     * in one transaction, so two fast taps cannot both count towards the streak.
      */
-    public HabitDTO completeHabit(String userId, String habitId) throws ExecutionException, InterruptedException {
-        Habit habit = habitRepository.findById(userId, habitId)
-                .orElseThrow(() -> new ResourceNotFoundException("Habit", habitId));
+    public CompletableFuture<HabitDTO> completeHabit(String userId, String habitId) {
+        LocalDate today = LocalDate.now();
+        String todayStr = today.format(DATE_FORMAT);
+
+        // Legacy daily logs must be folded into the month documents before any month is written
+        return habitLogRepository.ensureMigratedAsync(userId).thenCompose(migrated ->
+                habitRepository.updateInTransactionAsync(userId, habitId, (transaction, habit) -> {
+            // Check if already completed today
+            if (todayStr.equals(habit.getLastCompletedDate())) {
+                log.info("Habit {} already completed today for user {}", habitId, userId);
+                return false;
+            }
+
+            // Reads come first in a transaction: the aggregates, then the log's month document
+            Optional<HabitStats> stats = habitStatsRepository.find(transaction, userId);
+
+            // Stage the log entry alongside the habit update
+            habitLogRepository.save(transaction, userId, habitId, completionLog(todayStr));
+
+            // Streak rules depend on the habit's schedule (daily, specific weekdays or a weekly quota)
+            HabitSchedule.of(habit.getFrequency()).applyCompletion(habit, today);
+
+            habit.setLastCompletedDate(todayStr);
+
+            // Unseeded aggregates are skipped; the seed will count this completion
+            if (stats.isPresent()) {
+                HabitStats updated = stats.get();
+                updated.rollTo(today.toEpochDay());
+                updated.record(today.toEpochDay(), 1);
+                updated.getHabits().put(habitId, new HabitStats.HabitState(habit));
+                habitStatsRepository.save(transaction, userId, updated);
+            }
+            return true;
+        })).thenApply(found -> toDTO(found.orElseThrow(() -> new ResourceNotFoundException("Habit", habitId))))
+                .whenComplete((result, error) -> correlationService.invalidate(userId));
+    }
+
+    /**
+     * Completes several habits for today in one transaction: the habits and their month documents are
+     * each read with a single getAll, and all logs, streak fields and aggregates commit together.
+     * Habits already completed today are returned unchanged. Nothing is written if any habit is missing.
+     */
+    public CompletableFuture<List<HabitDTO>> completeHabits(String userId, List<String> habitIds) {
+        LocalDate today = LocalDate.now();
+        String todayStr = today.format(DATE_FORMAT);
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(habitIds));
+
+        return habitLogRepository.ensureMigratedAsync(userId).thenCompose(migrated ->
+                habitRepository.updateAllInTransactionAsync(userId, ids, (transaction, habits) -> {
+            if (habits.size() < ids.size()) {
+                return List.of();
+            }
+            List<Habit> pending = habits.values().stream()
+                    .filter(habit -> !todayStr.equals(habit.getLastCompletedDate()))
+                    .collect(Collectors.toList());
+            if (pending.isEmpty()) {
+                return pending;
+            }
+
+            // Reads first: the aggregates, then every log's month document
+            Optional<HabitStats> stats = habitStatsRepository.find(transaction, userId);
+            Map<String, HabitLog> logs = new LinkedHashMap<>();
+            for (Habit habit : pending) {
+                logs.put(habit.getId(), completionLog(todayStr));
+            }
+            habitLogRepository.saveAll(transaction, userId, logs);
 
-        String today = LocalDate.now().format(DATE_FORMAT);
+            for (Habit habit : pending) {
+                HabitSchedule.of(habit.getFrequency()).applyCompletion(habit, today);
+                habit.setLastCompletedDate(todayStr);
+            }
 
-        // Check if already completed today
-        if (today.equals(habit.getLastCompletedDate())) {
-            log.info("Habit {} already completed today for user {}", habitId, userId);
+            if (stats.isPresent()) {
+                HabitStats updated = stats.get();
+                updated.rollTo(today.toEpochDay());
+                updated.record(today.toEpochDay(), pending.size());
+                for (Habit habit : pending) {
+                    updated.getHabits().put(habit.getId(), new HabitStats.HabitState(habit));
+                }
+                habitStatsRepository.save(transaction, userId, updated);
+            }
+            return pending;
+        })).thenApply(habits -> ids.stream().map(id -> {
+            Habit habit = habits.get(id);
+            if (habit == null) {
+                throw new ResourceNotFoundException("Habit", id);
+            }
             return toDTO(habit);
+        }).collect(Collectors.toList())).whenComplete((result, error) -> correlationService.invalidate(userId));
+    }
+
+    /**
+     * Completes or uncompletes any day up to today, so a forgotten day can be logged after the fact.
+     * Only the streak run around that day is re-read to fix the streak fields (see {@link IncrementalStreaks});
+     * the log, habit and aggregates commit in one transaction.
+     */
+    public CompletableFuture<HabitDTO> setCompletion(String userId, String habitId, String date, boolean completed) {
+        LocalDate today = LocalDate.now();
+        LocalDate day = parseDate(date);
+        if (day.isAfter(today)) {
+            throw new IllegalArgumentException("Cannot log a future date");
         }
 
-        // Save the log entry
-        HabitLog logEntry = new HabitLog();
-        logEntry.setDate(today);
-        logEntry.setCompleted(true);
-        logEntry.setCompletedAt(Timestamp.now());
-        habitLogRepository.save(userId, habitId, logEntry);
-
-        // Calculate streak
-        if (habit.getLastCompletedDate() != null) {
-            LocalDate lastDate = LocalDate.parse(habit.getLastCompletedDate(), DATE_FORMAT);
-            long daysBetween = ChronoUnit.DAYS.between(lastDate, LocalDate.now());
-
-            if (daysBetween == 1) {
-                // Consecutive day — increment streak
-                habit.setCurrentStreak(habit.getCurrentStreak() + 1);
-            } else {
-                // Missed day(s) — reset streak
-                habit.setCurrentStreak(1);
+        // The session reads month documents only, so legacy daily logs must have been folded in first
+        return habitLogRepository.ensureMigratedAsync(userId).thenCompose(migrated ->
+                habitRepository.updateInTransactionAsync(userId, habitId, (transaction, habit) -> {
+            LocalDate created = habit.getCreatedAt() != null
+                    ? habit.getCreatedAt().toDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate()
+                    : day;
+            if (day.isBefore(created)) {
+                throw new IllegalArgumentException("Cannot log a date before the habit was created");
+            }
+
+            // Reads first: the aggregates, then the month documents around the day
+            Optional<HabitStats> stats = habitStatsRepository.find(transaction, userId);
+            HabitLogRepository.LogSession logs = habitLogRepository.openSession(transaction, userId, habitId);
+            if (!IncrementalStreaks.apply(habit, logs, day, completed, created, today)) {
+                return false;
             }
-        } else {
-            // First completion
-            habit.setCurrentStreak(1);
+            logs.flush();
+
+            if (stats.isPresent()) {
+                HabitStats updated = stats.get();
+                updated.rollTo(today.toEpochDay());
+                updated.record(day.toEpochDay(), completed ? 1 : -1);
+                updated.getHabits().put(habitId, new HabitStats.HabitState(habit));
+                habitStatsRepository.save(transaction, userId, updated);
+            }
+            return true;
+        })).thenApply(found -> toDTO(found.orElseThrow(() -> new ResourceNotFoundException("Habit", habitId))))
+                .whenComplete((result, error) -> correlationService.invalidate(userId));
+    }
+
+    /**
+     * Adds to a day's progress on a count or duration goal (a negative amount corrects an over-count).
+     * Taps within the coalescing window share one atomic increment; when the total crosses the goal the
+     * day is completed (or uncompleted) through {@link #setCompletion}, which keeps streaks and aggregates current.
+     */
+    public CompletableFuture<HabitProgressDTO> addProgress(String userId, String habitId, String date, long amount) {
+        LocalDate today = LocalDate.now();
+        String day = date != null ? date : today.format(DATE_FORMAT);
+        if (parseDate(day).isAfter(today)) {
+            throw new IllegalArgumentException("Cannot log a future date");
+        }
+        if (amount == 0) {
+            throw new IllegalArgumentException("Amount must not be zero");
         }
 
-        // Update longest streak
-        if (habit.getCurrentStreak() > habit.getLongestStreak()) {
-            habit.setLongestStreak(habit.getCurrentStreak());
+        return findHabit(userId, habitId).thenCompose(habit -> {
+            if (habit.getGoalValue() <= 0 || habit.getGoalType() == null || "yesno".equals(habit.getGoalType())) {
+                throw new IllegalArgumentException("Habit has no count or duration goal");
+            }
+            return progressCoalescer.add(userId, habitId, day, amount).thenCompose(increment -> {
+                HabitLog logEntry = increment.getLog();
+                HabitProgressDTO progress = new HabitProgressDTO();
+                progress.setDate(day);
+                progress.setValue(logEntry.getValue());
+                progress.setGoalValue(habit.getGoalValue());
+                Boolean completed = completionAfterProgress(logEntry.isCompleted(), increment.previousValue(),
+                        logEntry.getValue(), habit.getGoalValue());
+                if (completed == null) {
+                    progress.setCompleted(logEntry.isCompleted());
+                    return CompletableFuture.completedFuture(progress);
+                }
+                progress.setCompleted(completed);
+                return setCompletion(userId, habitId, day, completed).thenApply(updated -> {
+                    progress.setHabit(updated);
+                    return progress;
+                });
+            });
+        });
+    }
+
+    /**
+     * The completion a progress write implies, or null to leave the day as it is. Progress only completes
+     * a day when it crosses the goal upwards, and only uncompletes one when it drops back below the goal,
+     * so taps short of the goal never undo a day the user completed by hand.
+     */
+    static Boolean completionAfterProgress(boolean completed, long previousValue, long value, long goal) {
+        if (!completed && previousValue < goal && value >= goal) {
+            return true;
+        }
+        if (completed && previousValue >= goal && value < goal) {
+            return false;
         }
+        return null;
+    }
 
-        habit.setLastCompletedDate(today);
-        Habit saved = habitRepository.save(userId, habit);
-        return toDTO(saved);
+    private static HabitLog completionLog(String date) {
+        HabitLog logEntry = new HabitLog();
+        logEntry.setDate(date);
+        logEntry.setCompleted(true);
+        logEntry.setCompletedAt(Timestamp.now());
+        return logEntry;
     }
 
-    public List<HabitLogDTO> getHabitLogs(String userId, String habitId, String startDate, String endDate)
-            throws ExecutionException, InterruptedException {
-        habitRepository.findById(userId, habitId)
-                .orElseThrow(() -> new ResourceNotFoundException("Habit", habitId));
+    public CompletableFuture<List<HabitLogDTO>> getHabitLogs(String userId, String habitId, String startDate, String endDate) {
+        return findHabit(userId, habitId)
+                .thenCompose(habit -> habitLogRepository.findByDateRangeAsync(userId, habitId, startDate, endDate))
+                .thenApply(logs -> logs.stream().map(this::toLogDTO).collect(Collectors.toList()));
+    }
 
-        return habitLogRepository.findByDateRange(userId, habitId, startDate, endDate)
-                .stream().map(this::toLogDTO).collect(Collectors.toList());
+    /**
+     * Heatmap of one habit: a base64 completion bitmap over the range.
+     */
+    public CompletableFuture<HabitHeatmapDTO> getHeatmap(String userId, String habitId, String startDate, String endDate) {
+        LocalDate from = parseDate(startDate);
+        LocalDate to = parseDate(endDate);
+        checkHeatmapRange(from, to);
+        return findHabit(userId, habitId)
+                .thenCompose(habit -> habitLogRepository.findHistoryAsync(userId, habitId, from, to))
+                .thenApply(history -> toHeatmap(from, to, List.of(habitId), Map.of(habitId, history), false));
     }
 
-    public HabitDashboardDTO getDashboard(String userId) throws ExecutionException, InterruptedException {
-        List<HabitDTO> habits = getHabits(userId);
-        
-        String endDate = LocalDate.now().format(DATE_FORMAT);
-        String startDate = LocalDate.now().minusDays(30).format(DATE_FORMAT);
-        
-        Map<String, List<HabitLogDTO>> logs = new HashMap<>();
-        for (HabitDTO h : habits) {
-            logs.put(h.getId(), getHabitLogs(userId, h.getId(), startDate, endDate));
-        }
-        
-        HabitIntelligenceDTO intelligence = computeIntelligence(habits, logs);
-        
-        return new HabitDashboardDTO(habits, logs, intelligence);
+    /**
+     * Heatmap of several habits (all of the user's when {@code habitIds} is empty) from one
+     * collection-group query, optionally with a per-day intensity (habits completed that day).
+     */
+    public CompletableFuture<HabitHeatmapDTO> getHeatmap(String userId, List<String> habitIds, String startDate,
+                                                         String endDate, boolean intensity) {
+        LocalDate from = parseDate(startDate);
+        LocalDate to = parseDate(endDate);
+        checkHeatmapRange(from, to);
+        CompletableFuture<List<String>> ids = habitIds != null && !habitIds.isEmpty()
+                ? CompletableFuture.completedFuture(habitIds)
+                : habitRepository.findAllAsync(userId, new String[]{"createdAt"})
+                        .thenApply(habits -> habits.stream().map(Habit::getId).collect(Collectors.toList()));
+        return ids.thenCombine(habitLogRepository.findAllHistoriesAsync(userId, from, to),
+                (selected, histories) -> toHeatmap(from, to, selected, histories, intensity));
     }
 
-    private HabitIntelligenceDTO computeIntelligence(List<HabitDTO> habits, Map<String, List<HabitLogDTO>> logsMap) {
-        HabitIntelligenceDTO intel = new HabitIntelligenceDTO();
-        if (habits.isEmpty()) return intel;
-        
-        LocalDate today = LocalDate.now();
-        
-        // 1. Consistency Score (last 30 days weighted)
-        double weightedCompletion = 0;
-        double totalWeight = 0;
-        
-        for (int i = 0; i < 30; i++) {
-            LocalDate date = today.minusDays(i);
-            String dateStr = date.format(DATE_FORMAT);
-            double weight = (30.0 - i) / 30.0;
-            totalWeight += weight * habits.size();
-            
-            for (HabitDTO h : habits) {
-                List<HabitLogDTO> hLogs = logsMap.get(h.getId());
-                if (hLogs != null && hLogs.stream().anyMatch(l -> l.getDate().equals(dateStr) && l.isCompleted())) {
-                    weightedCompletion += weight;
-                }
-            }
+    private static HabitHeatmapDTO toHeatmap(LocalDate from, LocalDate to, List<String> habitIds,
+                                             Map<String, HabitHistory> histories, boolean withIntensity) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        List<HabitHistory> selected = new ArrayList<>();
+        List<HabitHeatmapDTO.HabitBitmapDTO> bitmaps = new ArrayList<>();
+        for (String habitId : habitIds) {
+            HabitHistory history = histories.getOrDefault(habitId, new HabitHistory(from, to));
+            selected.add(history);
+            bitmaps.add(new HabitHeatmapDTO.HabitBitmapDTO(habitId, history.cardinality(),
+                    encoder.encodeToString(history.toByteArray())));
         }
-        int consistency = totalWeight > 0 ? (int) Math.round((weightedCompletion / totalWeight) * 100) : 0;
-        intel.setConsistencyScore(consistency);
-        
-        // 2. Risk Detection
-        int riskCount = 0;
-        String todayStr = today.format(DATE_FORMAT);
-        String yesterdayStr = today.minusDays(1).format(DATE_FORMAT);
-        
-        for (HabitDTO h : habits) {
-            if ("daily".equals(h.getFrequency()) || h.getFrequency() == null) {
-                if (h.getCurrentStreak() > 0 && !todayStr.equals(h.getLastCompletedDate()) && !yesterdayStr.equals(h.getLastCompletedDate())) {
-                    riskCount++;
+
+        HabitHeatmapDTO dto = new HabitHeatmapDTO();
+        dto.setStartDate(from.format(DATE_FORMAT));
+        dto.setDays((int) (to.toEpochDay() - from.toEpochDay() + 1));
+        dto.setHabits(bitmaps);
+        if (withIntensity) {
+            byte[] intensity = new byte[dto.getDays()];
+            for (int i = 0; i < intensity.length; i++) {
+                long day = from.toEpochDay() + i;
+                int count = 0;
+                for (HabitHistory history : selected) {
+                    if (history.isCompleted(day)) count++;
                 }
+                intensity[i] = (byte) Math.min(count, 255);
             }
+            dto.setIntensity(encoder.encodeToString(intensity));
         }
-        intel.setRiskCount(riskCount);
-        
-        // 3. Longest Streak
-        int maxStreak = habits.stream().mapToInt(HabitDTO::getCurrentStreak).max().orElse(0);
-        intel.setLongestStreak(maxStreak);
-        
-        // 4. Weekly Completion Rate
-        int weeklyCompleted = 0;
-        int weeklyExpected = habits.size() * 7;
-        for (int i = 0; i < 7; i++) {
-            String dateStr = today.minusDays(i).format(DATE_FORMAT);
-            for (HabitDTO h : habits) {
-                List<HabitLogDTO> hLogs = logsMap.get(h.getId());
-                if (hLogs != null && hLogs.stream().anyMatch(l -> l.getDate().equals(dateStr) && l.isCompleted())) {
-                    weeklyCompleted++;
-                }
-            }
+        return dto;
+    }
+
+    private static LocalDate parseDate(String date) {
+        try {
+            return LocalDate.parse(date, DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + date);
         }
-        int weeklyRate = weeklyExpected > 0 ? (int) Math.round((weeklyCompleted * 100.0) / weeklyExpected) : 0;
-        intel.setWeeklyCompletionRate(weeklyRate);
-        
-        return intel;
+    }
+
+    private static void checkHeatmapRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("endDate must not be before startDate");
+        }
+        if (to.toEpochDay() - from.toEpochDay() + 1 > MAX_HEATMAP_DAYS) {
+            throw new IllegalArgumentException("Heatmap range is limited to " + MAX_HEATMAP_DAYS + " days");
+        }
+    }
+
+    /**
+     * Co-completion analytics over the trailing {@code days}, cached until the user's next completion.
+     */
+    public CompletableFuture<HabitCorrelationDTO> getCorrelations(String userId, int days) {
+        return correlationService.getCorrelations(userId, days);
+    }
+
+    /**
+     * Dashboard intelligence served from the user's rolling aggregates: one document read, no logs
+     * (apart from a one-time seed for users who have no aggregates yet).
+     */
+    public CompletableFuture<HabitIntelligenceDTO> getIntelligence(String userId) {
+        LocalDate today = LocalDate.now();
+        String windowStart = today.minusDays(HabitStats.WINDOW - 1).format(DATE_FORMAT);
+        String windowEnd = today.format(DATE_FORMAT);
+        return habitLogRepository.ensureMigratedAsync(userId)
+                .thenCompose(ignored -> habitStatsRepository.getOrSeedAsync(userId, transaction -> intelligenceEngine.seed(
+                        habitRepository.findAll(transaction, userId),
+                        habitLogRepository.findAllByDateRange(transaction, userId, windowStart, windowEnd),
+                        today)))
+                .thenApply(stats -> {
+                    HabitIntelligenceDTO intelligence = intelligenceEngine.compute(stats, today);
+                    snapshotService.record(userId, today, intelligence);
+                    return intelligence;
+                });
+    }
+
+    /**
+     * Daily intelligence snapshots in [startDate, endDate] for trend charts; days without a dashboard read have none.
+     */
+    public CompletableFuture<List<HabitIntelligenceSnapshotDTO>> getIntelligenceHistory(String userId, String startDate,
+                                                                                     String endDate) {
+        return snapshotService.getHistory(userId, parseDate(startDate), parseDate(endDate));
+    }
+
+    public CompletableFuture<HabitDashboardDTO> getDashboard(String userId) {
+        LocalDate today = LocalDate.now();
+        LocalDate start = today.minusDays(30);
+
+        // The legacy-log migration runs once up front, outside the dashboard timeout: a request that cannot
+        // wait for it gets 503 with Retry-After while it carries on in the background
+        CompletableFuture<Void> migration = habitLogRepository.ensureMigratedAsync(userId).copy()
+                .orTimeout(dashboardConfig.getMigrationWaitMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(error -> {
+                    if (error instanceof TimeoutException) {
+                        throw new ServiceUnavailableException("Your habit history is being upgraded, please retry shortly",
+                                MIGRATION_RETRY_AFTER_SECONDS);
+                    }
+                    throw error instanceof CompletionException ce ? ce : new CompletionException(error);
+                });
+
+        // Habits, logs and intelligence are then independent reads, issued together
+        return migration.thenCompose(migrated -> {
+            CompletableFuture<HabitIntelligenceDTO> intelligenceFuture = getIntelligence(userId);
+            return getHabits(userId)
+                    .thenCombine(fetchLogs(userId, start, today), (habits, logsByHabit) -> {
+                        Map<String, List<HabitLogDTO>> logs = new HashMap<>();
+                        for (HabitDTO h : habits) {
+                            logs.put(h.getId(), logsByHabit.getOrDefault(h.getId(), List.of()).stream()
+                                    .map(this::toLogDTO).collect(Collectors.toList()));
+                        }
+                        return new HabitDashboardDTO(habits, logs, null);
+                    })
+                    .thenCombine(intelligenceFuture, (dashboard, intelligence) -> {
+                        dashboard.setIntelligence(intelligence);
+                        return dashboard;
+                    })
+                    .orTimeout(dashboardConfig.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Fetches the log range of every habit with one collection-group query.
+     */
+    private CompletableFuture<Map<String, List<HabitLog>>> fetchLogs(String userId, LocalDate start, LocalDate end) {
+        return habitLogRepository.findAllByDateRangeAsync(userId, start.format(DATE_FORMAT), end.format(DATE_FORMAT));
+    }
+
+    private static String validFrequency(String frequency) {
+        if (frequency != null) {
+            HabitSchedule.parse(frequency);
+        }
+        return frequency;
+    }
+
+    private CompletableFuture<Habit> findHabit(String userId, String habitId) {
+        return habitRepository.findByIdAsync(userId, habitId)
+                .thenApply(found -> found.orElseThrow(() -> new ResourceNotFoundException("Habit", habitId)));
     }
 
     private HabitDTO toDTO(Habit habit) {
+        return toDTO(habit, FieldSelection.ALL);
+    }
+
+    private HabitDTO toDTO(Habit habit, FieldSelection fields) {
         HabitDTO dto = new HabitDTO();
         dto.setId(habit.getId());
-        dto.setName(habit.getName());
-        dto.setDescription(habit.getDescription());
-        dto.setCategory(habit.getCategory());
-        dto.setFrequency(habit.getFrequency());
-        dto.setGoalType(habit.getGoalType());
-        dto.setGoalValue(habit.getGoalValue());
-        dto.setMotivation(habit.getMotivation());
-        dto.setCurrentStreak(habit.getCurrentStreak());
-        dto.setLongestStreak(habit.getLongestStreak());
-        dto.setLastCompletedDate(habit.getLastCompletedDate());
-        if (habit.getCreatedAt() != null) {
+        if (fields.includes("name")) dto.setName(habit.getName());
+        if (fields.includes("description")) dto.setDescription(habit.getDescription());
+        if (fields.includes("category")) dto.setCategory(habit.getCategory());
+        if (fields.includes("frequency")) dto.setFrequency(habit.getFrequency());
+        if (fields.includes("goalType")) dto.setGoalType(habit.getGoalType());
+        if (fields.includes("goalValue")) dto.setGoalValue(habit.getGoalValue());
+        if (fields.includes("motivation")) dto.setMotivation(habit.getMotivation());
+        if (fields.includes("currentStreak")) dto.setCurrentStreak(habit.getCurrentStreak());
+        if (fields.includes("longestStreak")) dto.setLongestStreak(habit.getLongestStreak());
+        if (fields.includes("lastCompletedDate")) dto.setLastCompletedDate(habit.getLastCompletedDate());
+        if (fields.includes("createdAt") && habit.getCreatedAt() != null) {
             dto.setCreatedAt(habit.getCreatedAt().toDate().toInstant().toString());
         }
         return dto;
@@ -249,6 +573,7 @@ public class HabitService {
         HabitLogDTO dto = new HabitLogDTO();
         dto.setDate(log.getDate());
         dto.setCompleted(log.isCompleted());
+        dto.setValue(log.getValue());
         if (log.getCompletedAt() != null) {
             dto.setCompletedAt(log.getCompletedAt().toDate().toInstant().toString());
         }
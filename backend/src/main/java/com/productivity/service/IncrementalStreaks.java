@@ -0,0 +1,202 @@
+package com.productivity.service;
+
+import com.google.cloud.Timestamp;
+import com.productivity.model.Habit;
+import com.productivity.model.HabitSchedule;
+import com.productivity.repository.HabitLogRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Re-derives a habit's streak fields after a single day is completed or uncompleted, without replaying
+ * the whole history. Streak runs are separated by a missed due day (weekday schedules) or by a week whose
+ * quota was not met (quota schedules), so an edit can only grow, merge or split the run it falls in.
+ * The window examined is that run, found by walking outwards from the edited day; the longest streak comes
+ * from the habit's run-length counts, updated with the window's runs, so no edit reads the whole history.
+ * The results match replaying every completion through {@link HabitSchedule#applyCompletion}.
+ */
+final class IncrementalStreaks {
+
+    private IncrementalStreaks() {}
+
+    /**
+     * Applies the edit to {@code logs} and updates the habit's streak fields. {@code floor} is the first day
+     * the habit existed. Returns false (and changes nothing) when the day already had the requested state.
+     */
+    static boolean apply(Habit habit, HabitLogRepository.LogSession logs, LocalDate day, boolean completed,
+                         LocalDate floor, LocalDate today) throws ExecutionException, InterruptedException {
+        if (logs.isCompleted(day) == completed) {
+            return false;
+        }
+        HabitSchedule schedule = HabitSchedule.of(habit.getFrequency());
+
+        // The window is bounded with the day counted as completed, so it covers both halves of a split run
+        logs.set(day, true, null);
+        LocalDate from;
+        LocalDate to;
+        List<Integer> runsWithDay;
+        List<Integer> runsWithoutDay;
+        if (schedule.isQuota()) {
+            LocalDate firstWeek = HabitSchedule.weekStart(floor);
+            LocalDate lastWeek = HabitSchedule.weekStart(today);
+            from = HabitSchedule.weekStart(day);
+            while (from.isAfter(firstWeek) && weekMet(logs, schedule, from.minusWeeks(1), null)) {
+                from = from.minusWeeks(1);
+            }
+            to = HabitSchedule.weekStart(day);
+            while (to.isBefore(lastWeek) && weekMet(logs, schedule, to.plusWeeks(1), null)) {
+                to = to.plusWeeks(1);
+            }
+            runsWithDay = weekRuns(logs, schedule, from, to, null);
+            runsWithoutDay = weekRuns(logs, schedule, from, to, day);
+        } else {
+            from = day;
+            while (from.isAfter(floor) && !missed(logs, schedule, from.minusDays(1), null)) {
+                from = from.minusDays(1);
+            }
+            to = day;
+            while (to.isBefore(today) && !missed(logs, schedule, to.plusDays(1), null)) {
+                to = to.plusDays(1);
+            }
+            runsWithDay = dayRuns(logs, schedule, from, to, null);
+            runsWithoutDay = dayRuns(logs, schedule, from, to, day);
+        }
+        logs.set(day, completed, completed && day.equals(today) ? Timestamp.now() : null);
+
+        String previousLast = habit.getLastCompletedDate();
+        LocalDate last = previousLast != null ? LocalDate.parse(previousLast) : null;
+        if (completed && (last == null || day.isAfter(last))) {
+            last = day;
+        } else if (!completed && day.equals(last)) {
+            last = logs.lastCompletedBefore(day, floor).orElse(null);
+        }
+        boolean lastChanged = !Objects.equals(previousLast, last != null ? last.toString() : null);
+        habit.setLastCompletedDate(last != null ? last.toString() : null);
+
+        // The current run only needs re-reading when the edit touched it
+        if (last == null) {
+            habit.setCurrentStreak(0);
+            if (schedule.isQuota()) {
+                habit.setPeriodStart(null);
+                habit.setPeriodCompletions(0);
+            }
+        } else if (schedule.isQuota()) {
+            LocalDate period = HabitSchedule.weekStart(last);
+            if (lastChanged || !period.isBefore(from.minusWeeks(1)) && !period.isAfter(to.plusWeeks(1))) {
+                int periodCompletions = weekCount(logs, period, null);
+                // A week counts once its quota is met; until then the streak is the run that ended the week before
+                LocalDate runEnd = periodCompletions >= schedule.getWeeklyQuota() ? period : period.minusWeeks(1);
+                habit.setCurrentStreak(weekRunEndingAt(logs, schedule, runEnd, HabitSchedule.weekStart(floor)));
+                habit.setPeriodStart(period.toString());
+                habit.setPeriodCompletions(periodCompletions);
+            }
+        } else if (lastChanged || !last.isBefore(from) && !last.isAfter(to)) {
+            habit.setCurrentStreak(dayRunEndingAt(logs, schedule, last, floor));
+        }
+
+        // The window is bounded by misses, so its runs are whole runs and every other run is unchanged: swapping
+        // them in the run-length counts keeps the longest streak exact even when the edit split the longest run
+        if (habit.getRunLengths() == null) {
+            // Habits stored before the counts existed are seeded from their whole history, once
+            logs.loadRange(floor, today);
+            habit.setRunLengths(new HashMap<>());
+            List<Integer> runs = schedule.isQuota()
+                    ? weekRuns(logs, schedule, HabitSchedule.weekStart(floor), HabitSchedule.weekStart(today), null)
+                    : dayRuns(logs, schedule, floor, today, null);
+            runs.forEach(run -> habit.countRun(run, 1));
+        } else {
+            (completed ? runsWithoutDay : runsWithDay).forEach(run -> habit.countRun(run, -1));
+            (completed ? runsWithDay : runsWithoutDay).forEach(run -> habit.countRun(run, 1));
+        }
+        habit.setLongestStreak(Math.max(habit.longestRun(), habit.getCurrentStreak()));
+        return true;
+    }
+
+    private static boolean completed(HabitLogRepository.LogSession logs, LocalDate day, LocalDate excluded)
+            throws ExecutionException, InterruptedException {
+        return !day.equals(excluded) && logs.isCompleted(day);
+    }
+
+    private static boolean missed(HabitLogRepository.LogSession logs, HabitSchedule schedule, LocalDate day,
+                                  LocalDate excluded) throws ExecutionException, InterruptedException {
+        return schedule.isDue(day) && !completed(logs, day, excluded);
+    }
+
+    /**
+     * Lengths of the runs of completed due days between missed due days in [from, to].
+     */
+    private static List<Integer> dayRuns(HabitLogRepository.LogSession logs, HabitSchedule schedule, LocalDate from,
+                                         LocalDate to, LocalDate excluded) throws ExecutionException, InterruptedException {
+        List<Integer> runs = new ArrayList<>();
+        int run = 0;
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            if (!schedule.isDue(d)) continue;
+            if (completed(logs, d, excluded)) {
+                run++;
+            } else if (run > 0) {
+                runs.add(run);
+                run = 0;
+            }
+        }
+        if (run > 0) runs.add(run);
+        return runs;
+    }
+
+    private static int dayRunEndingAt(HabitLogRepository.LogSession logs, HabitSchedule schedule, LocalDate end,
+                                      LocalDate floor) throws ExecutionException, InterruptedException {
+        int run = 0;
+        for (LocalDate d = end; !d.isBefore(floor); d = d.minusDays(1)) {
+            if (!schedule.isDue(d)) continue;
+            if (!logs.isCompleted(d)) break;
+            run++;
+        }
+        return run;
+    }
+
+    private static int weekCount(HabitLogRepository.LogSession logs, LocalDate weekStart, LocalDate excluded)
+            throws ExecutionException, InterruptedException {
+        int count = 0;
+        for (int i = 0; i < 7; i++) {
+            if (completed(logs, weekStart.plusDays(i), excluded)) count++;
+        }
+        return count;
+    }
+
+    private static boolean weekMet(HabitLogRepository.LogSession logs, HabitSchedule schedule, LocalDate weekStart,
+                                   LocalDate excluded) throws ExecutionException, InterruptedException {
+        return weekCount(logs, weekStart, excluded) >= schedule.getWeeklyQuota();
+    }
+
+    /**
+     * Lengths of the runs of consecutive met weeks among the weeks starting in [fromWeek, toWeek].
+     */
+    private static List<Integer> weekRuns(HabitLogRepository.LogSession logs, HabitSchedule schedule, LocalDate fromWeek,
+                                          LocalDate toWeek, LocalDate excluded) throws ExecutionException, InterruptedException {
+        List<Integer> runs = new ArrayList<>();
+        int run = 0;
+        for (LocalDate w = fromWeek; !w.isAfter(toWeek); w = w.plusWeeks(1)) {
+            if (weekMet(logs, schedule, w, excluded)) {
+                run++;
+            } else if (run > 0) {
+                runs.add(run);
+                run = 0;
+            }
+        }
+        if (run > 0) runs.add(run);
+        return runs;
+    }
+
+    private static int weekRunEndingAt(HabitLogRepository.LogSession logs, HabitSchedule schedule, LocalDate endWeek,
+                                       LocalDate firstWeek) throws ExecutionException, InterruptedException {
+        int run = 0;
+        for (LocalDate w = endWeek; !w.isBefore(firstWeek) && weekMet(logs, schedule, w, null); w = w.minusWeeks(1)) {
+            run++;
+        }
+        return run;
+    }
+}
@@ -0,0 +1,82 @@
+package com.productivity.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.productivity.config.AppProperties;
+import com.productivity.dto.HabitIntelligenceDTO;
+import com.productivity.dto.HabitIntelligenceSnapshotDTO;
+import com.productivity.model.IntelligenceSnapshot;
+import com.productivity.repository.IntelligenceSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps one intelligence snapshot per user per day for trend charts. Snapshots are written lazily
+ * from intelligence reads: the first read of the day writes one, and later reads only write again
+ * when the values changed, so the stored day ends up close to its end-of-day state.
+ */
+@Service
+public class IntelligenceSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(IntelligenceSnapshotService.class);
+    public static final int MAX_DAYS = 5 * 366;
+
+    private final IntelligenceSnapshotRepository snapshotRepository;
+
+    // Last snapshot written per user, so unchanged reads cost no write
+    private final Cache<String, IntelligenceSnapshot> lastWritten;
+
+    public IntelligenceSnapshotService(IntelligenceSnapshotRepository snapshotRepository, AppProperties appProperties) {
+        this.snapshotRepository = snapshotRepository;
+        this.lastWritten = Caffeine.newBuilder()
+                .maximumSize(appProperties.getAnalytics().getCacheMaximumSize())
+                .expireAfterWrite(Duration.ofDays(1))
+                .build();
+    }
+
+    /**
+     * Records today's intelligence if it differs from what was last written. Fire-and-forget:
+     * a failed write is logged and retried on the next read.
+     */
+    public void record(String userId, LocalDate today, HabitIntelligenceDTO intelligence) {
+        IntelligenceSnapshot snapshot = new IntelligenceSnapshot(today, intelligence.getConsistencyScore(),
+                intelligence.getRiskCount(), intelligence.getLongestStreak(), intelligence.getWeeklyCompletionRate());
+        if (snapshot.sameAs(lastWritten.getIfPresent(userId))) {
+            return;
+        }
+        lastWritten.put(userId, snapshot);
+        snapshotRepository.saveAsync(userId, snapshot).exceptionally(error -> {
+            lastWritten.invalidate(userId);
+            log.warn("Failed to save intelligence snapshot for user {}: {}", userId, error.getMessage());
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<HabitIntelligenceSnapshotDTO>> getHistory(String userId, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("endDate must not be before startDate");
+        }
+        if (to.toEpochDay() - from.toEpochDay() + 1 > MAX_DAYS) {
+            throw new IllegalArgumentException("Intelligence history is limited to " + MAX_DAYS + " days");
+        }
+        return snapshotRepository.findRangeAsync(userId, from, to)
+                .thenApply(snapshots -> snapshots.stream().map(this::toDTO).collect(Collectors.toList()));
+    }
+
+    private HabitIntelligenceSnapshotDTO toDTO(IntelligenceSnapshot snapshot) {
+        HabitIntelligenceSnapshotDTO dto = new HabitIntelligenceSnapshotDTO();
+        dto.setDate(snapshot.getDate());
+        dto.setConsistencyScore(snapshot.getConsistencyScore());
+        dto.setRiskCount(snapshot.getRiskCount());
+        dto.setLongestStreak(snapshot.getLongestStreak());
+        dto.setWeeklyCompletionRate(snapshot.getWeeklyCompletionRate());
+        return dto;
+    }
+}
@@ -1,89 +1,188 @@
 package com.productivity.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtService {
 
+    public static final String FAMILY_CLAIM = "fid";
+
+    // What a token may be used for: only access tokens authenticate API requests
+    public static final String TYPE_CLAIM = "typ";
+    public static final String TYPE_ACCESS = "access";
+    public static final String TYPE_REFRESH = "refresh";
+    public static final String TYPE_RESET = "reset";
+
+    private final long accessTokenExpiration;
+    private final long refreshTokenExpiration;
+
+    // Built once: the HMAC key and the (immutable, thread-safe) parser
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+
+    // Claims of tokens that already passed signature verification, keyed by the token's SHA-256 digest
+    // (so raw tokens are not kept in memory) and evicted when the token expires
+    private final Cache<ByteBuffer, Claims> verifiedTokens;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     // In production, these should be in application.properties/yml
-    @Value("${jwt.secret:verysecretkeythatmustbeatleast256bitslongforsecuritypurposes}")
-    private String secretKey;
-    
-    @Value("${jwt.access-token-expiration:900000}") // 15 mins
-    private long accessTokenExpiration;
-    
-    @Value("${jwt.refresh-token-expiration:604800000}") // 7 days
-    private long refreshTokenExpiration;
-
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+    public JwtService(@Value("${jwt.secret:verysecretkeythatmustbeatleast256bitslongforsecuritypurposes}") String secretKey,
+                      @Value("${jwt.access-token-expiration:900000}") long accessTokenExpiration, // 15 mins
+                      @Value("${jwt.refresh-token-expiration:604800000}") long refreshTokenExpiration, // 7 days
+                      @Value("${jwt.verified-cache-size:10000}") long verifiedCacheSize,
+                      MeterRegistry meterRegistry) {
+        this.accessTokenExpiration = accessTokenExpiration;
+        this.refreshTokenExpiration = refreshTokenExpiration;
+        this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verifiedTokens = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<ByteBuffer, Claims>() {
+                    @Override
+                    public long expireAfterCreate(ByteBuffer key, Claims claims, long currentTime) {
+                        long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .<ByteBuffer, Claims>build(), "verified-jwts");
     }
 
     public String generateAccessToken(String uid, String role) {
-        return generateToken(uid, role, accessTokenExpiration);
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(TYPE_CLAIM, TYPE_ACCESS);
+        if (role != null) {
+            claims.put("role", role);
+        }
+        return generateToken(uid, claims, accessTokenExpiration);
+    }
+
+    /**
+     * A short-lived token allowing one password reset for {@code email}; it cannot authenticate requests.
+     */
+    public String generateResetToken(String email) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(TYPE_CLAIM, TYPE_RESET);
+        return generateToken(email, claims, accessTokenExpiration);
     }
-    
+
+    /**
+     * A refresh token starting a new rotation family (a fresh login).
+     */
     public String generateRefreshToken(String uid) {
-        return generateToken(uid, null, refreshTokenExpiration);
+        return generateRefreshToken(uid, UUID.randomUUID().toString());
     }
 
-    private String generateToken(String uid, String role, long expiration) {
+    /**
+     * A refresh token with its own ID ({@code jti}) in the given rotation family ({@code fid}).
+     */
+    public String generateRefreshToken(String uid, String familyId) {
         Map<String, Object> claims = new HashMap<>();
-        if (role != null) {
-            claims.put("role", role);
-        }
+        claims.put(TYPE_CLAIM, TYPE_REFRESH);
+        claims.put(FAMILY_CLAIM, familyId);
+        return generateToken(uid, claims, refreshTokenExpiration);
+    }
+
+    public long getRefreshTokenExpiration() {
+        return refreshTokenExpiration;
+    }
+
+    private String generateToken(String uid, Map<String, Object> claims, long expiration) {
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(uid)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public boolean isTokenValid(String token) {
-        try {
-            return !isTokenExpired(token);
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+    /**
+     * Verifies a token once and returns its claims, or empty if the token is malformed, forged or expired.
+     * Repeat calls for the same token are served from the verified-token cache.
+     */
+    public Optional<Claims> parse(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
         }
+        ByteBuffer key = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+        Claims claims = verifiedTokens.getIfPresent(key);
+        if (claims == null) {
+            try {
+                claims = parser.parseClaimsJws(token).getBody();
+            } catch (JwtException | IllegalArgumentException e) {
+                return Optional.empty();
+            }
+            if (claims.getExpiration() == null) {
+                return Optional.of(claims);
+            }
+            verifiedTokens.put(key, claims);
+        }
+        // Cache eviction at expiry is lazy, so the expiry is checked on every hit
+        if (claims.getExpiration() != null && claims.getExpiration().before(new Date())) {
+            return Optional.empty();
+        }
+        return Optional.of(claims);
     }
 
-    public String extractUid(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Whether verified claims belong to a token of the given type.
+     */
+    public static boolean isType(Claims claims, String type) {
+        return type.equals(claims.get(TYPE_CLAIM));
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean isTokenValid(String token) {
+        return parse(token).isPresent();
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public String extractUid(String token) {
+        return parse(token).map(Claims::getSubject).orElse(null);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public String extractRole(String token) {
+        return parse(token).map(claims -> claims.get("role", String.class)).orElse(null);
     }
 }
@@ -1,5 +1,7 @@
 package com.productivity.service;
 
+import com.productivity.config.AppProperties;
+import com.productivity.repository.OtpStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,39 +12,39 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 @Service
 public class OtpService {
 
     private static final Logger log = LoggerFactory.getLogger(OtpService.class);
     private static final int OTP_LENGTH = 6;
-    private static final int OTP_EXPIRATION_MINUTES = 5;
+    private static final SecureRandom RANDOM = new SecureRandom();
     
     private final EmailService emailService;
     private final EmailTemplateService emailTemplateService;
     
-    // In-memory store for now (ConcurrentHashMap). Replace with Redis in production.
-    // Key: email, Value: OtpData
-    private final Map<String, OtpData> otpStore = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService cleanupExecutor = Executors.newSingleThreadScheduledExecutor();
+    // Key: email. In memory for a single instance, Redis when several instances share the load (app.otp.store)
+    private final OtpStore otpStore;
+    private final AppProperties.Otp config;
 
-    public OtpService(EmailService emailService, EmailTemplateService emailTemplateService) {
+    public OtpService(EmailService emailService, EmailTemplateService emailTemplateService, OtpStore otpStore,
+                      AppProperties appProperties) {
         this.emailService = emailService;
         this.emailTemplateService = emailTemplateService;
-        // Periodic cleanup every minute
-        cleanupExecutor.scheduleAtFixedRate(this::removeExpiredOtps, 1, 1, TimeUnit.MINUTES);
+        this.otpStore = otpStore;
+        this.config = appProperties.getOtp();
+    }
+
+    public int getTtlSeconds() {
+        return config.getTtlSeconds();
     }
 
     public String generateOtp(String email) {
         String otp = generateNumericOtp();
-        long expiryTime = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(OTP_EXPIRATION_MINUTES);
-        otpStore.put(email, new OtpData(otp, expiryTime));
+        otpStore.save(email, otp, Duration.ofSeconds(config.getTtlSeconds()));
         
         // Send via EmailService
         String subject = "Your Verification Code: " + otp;
@@ -57,41 +59,20 @@ public class OtpService {
         return otp;
     }
 
+    /**
+     * Checks a code; a match consumes it (one-time), and too many wrong guesses discard it.
+     */
     public boolean validateOtp(String email, String otp) {
-        OtpData data = otpStore.get(email);
-        if (data == null) return false;
-        
-        if (System.currentTimeMillis() > data.expiryTime) {
-            otpStore.remove(email);
-            return false;
+        if (email == null) return false;
+        OtpStore.CheckResult result = otpStore.check(email, otp, config.getMaxAttempts());
+        if (result == OtpStore.CheckResult.ATTEMPTS_EXHAUSTED) {
+            log.warn("OTP for {} discarded after {} wrong attempts", email, config.getMaxAttempts());
         }
-        
-        if (data.otp.equals(otp)) {
-            otpStore.remove(email); // OTP acts as one-time
-            return true;
-        }
-        
-        return false;
+        return result == OtpStore.CheckResult.MATCH;
     }
     
     private String generateNumericOtp() {
-        SecureRandom random = new SecureRandom();
-        int num = random.nextInt(1000000); // 0 to 999999
-        return String.format("%06d", num);
-    }
-    
-    private void removeExpiredOtps() {
-        long now = System.currentTimeMillis();
-        otpStore.entrySet().removeIf(entry -> now > entry.getValue().expiryTime);
-    }
-
-    private static class OtpData {
-        final String otp;
-        final long expiryTime;
-
-        OtpData(String otp, long expiryTime) {
-            this.otp = otp;
-            this.expiryTime = expiryTime;
-        }
+        int num = RANDOM.nextInt(1000000); // 0 to 999999
+        return String.format("%0" + OTP_LENGTH + "d", num);
     }
 }
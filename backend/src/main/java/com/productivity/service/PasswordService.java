@@ -1,23 +1,164 @@
 package com.productivity.service;
 
+import com.productivity.config.AppProperties;
+import com.productivity.exception.ServiceUnavailableException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt hashing on a dedicated bounded pool, so a burst of logins cannot occupy every core and stall
+ * other requests. Work beyond the pool's queue is rejected immediately with 503 instead of piling up.
+ * The work factor is calibrated at startup, off the pool, to the highest cost that stays within the target latency;
+ * hashes made with a different cost are upgraded on the next successful login.
+ */
 @Service
 public class PasswordService {
 
-    private final PasswordEncoder passwordEncoder;
+    private static final Logger log = LoggerFactory.getLogger(PasswordService.class);
+    private static final int RETRY_AFTER_SECONDS = 2;
+
+    private final AppProperties.PasswordHashing config;
+    private final ThreadPoolExecutor executor;
+    private volatile BCryptPasswordEncoder encoder;
+    private volatile int cost;
+    private volatile boolean calibrated;
 
-    public PasswordService() {
-        this.passwordEncoder = new BCryptPasswordEncoder();
+    public PasswordService(AppProperties appProperties) {
+        this.config = appProperties.getPasswordHashing();
+        int threads = config.getThreads() > 0
+                ? config.getThreads()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.cost = config.getMinCost();
+        this.encoder = new BCryptPasswordEncoder(cost);
+        // Calibration runs on its own thread, so it never takes a hashing slot from sign-ins;
+        // the minimum cost serves until it swaps in the calibrated encoder
+        Thread calibration = new Thread(this::calibrate, "password-calibration");
+        calibration.setDaemon(true);
+        calibration.start();
     }
 
     public String hashPassword(String rawPassword) {
-        return passwordEncoder.encode(rawPassword);
+        BCryptPasswordEncoder current = encoder;
+        return run(() -> current.encode(rawPassword));
     }
 
     public boolean checkPassword(String rawPassword, String encodedPassword) {
-        return passwordEncoder.matches(rawPassword, encodedPassword);
+        if (rawPassword == null || !isBcrypt(encodedPassword)) {
+            return false;
+        }
+        BCryptPasswordEncoder current = encoder;
+        return run(() -> current.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Whether a stored hash was made with a work factor other than the calibrated one.
+     * Always false until calibration has finished.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return calibrated && isBcrypt(encodedPassword) && costOf(encodedPassword) != cost;
+    }
+
+    /**
+     * Re-hashes a just-verified password at the current cost in the background. Best effort:
+     * if the pool is saturated the upgrade is skipped and retried on a later login.
+     */
+    public CompletableFuture<String> rehashAsync(String rawPassword) {
+        BCryptPasswordEncoder current = encoder;
+        try {
+            return CompletableFuture.supplyAsync(() -> current.encode(rawPassword), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * A placeholder hash that never matches any password, for accounts that sign in through a provider.
+     */
+    public String unusableHash() {
+        return "!";
+    }
+
+    private <T> T run(Supplier<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task::get);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Too many sign-in requests, please retry shortly", RETRY_AFTER_SECONDS);
+        }
+        try {
+            return future.get(config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceUnavailableException("Too many sign-in requests, please retry shortly", RETRY_AFTER_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Picks the highest cost in [minCost, maxCost] whose hash time stays within the target. Each step
+     * doubles the work, so the search stops as soon as doubling would overshoot.
+     */
+    private void calibrate() {
+        int cost = config.getMinCost();
+        long millis = timeHash(cost);
+        while (cost < config.getMaxCost() && millis * 2 <= config.getTargetMillis()) {
+            cost++;
+            millis = timeHash(cost);
+        }
+        this.encoder = new BCryptPasswordEncoder(cost);
+        this.cost = cost;
+        this.calibrated = true;
+        log.info("BCrypt cost calibrated to {} (~{} ms per hash, target {} ms)", cost, millis, config.getTargetMillis());
+    }
+
+    private static long timeHash(int cost) {
+        BCryptPasswordEncoder candidate = new BCryptPasswordEncoder(cost);
+        candidate.encode("calibration"); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            candidate.encode("calibration");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(best);
+    }
+
+    private static boolean isBcrypt(String encodedPassword) {
+        return encodedPassword != null && encodedPassword.length() == 60 && encodedPassword.startsWith("$2");
+    }
+
+    // "$2a$10$..." → 10
+    private static int costOf(String encodedPassword) {
+        return Integer.parseInt(encodedPassword.substring(4, 6));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
     }
 }
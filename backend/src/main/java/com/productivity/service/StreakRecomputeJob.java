@@ -0,0 +1,346 @@
+package com.productivity.service;
+
+import com.productivity.config.AppProperties;
+import com.productivity.dto.StreakRecomputeStatusDTO;
+import com.productivity.exception.ConflictException;
+import com.productivity.model.Habit;
+import com.productivity.model.HabitLog;
+import com.productivity.model.HabitSchedule;
+import com.productivity.model.HabitStats;
+import com.productivity.repository.FirestoreFutures;
+import com.productivity.repository.HabitLogRepository;
+import com.productivity.repository.HabitRepository;
+import com.productivity.repository.HabitStatsRepository;
+import com.productivity.repository.UserRepository;
+import com.productivity.repository.Versioned;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Admin job that rebuilds every habit's streak fields from its logs and writes back the ones that drifted.
+ *
+ * Users are walked in ID-ordered pages on a dedicated driver thread. Reads are non-blocking: up to
+ * {@code parallelism} users are in flight at once, and each habit's replay runs on a fixed pool of that
+ * size once its logs arrive. A user's corrections commit as one batched write guarded by the update times
+ * the habits and aggregates were read at, so anything changed since the scan makes the batch fail and is
+ * skipped rather than overwritten; batches are paced to {@code writes-per-second}. A dry run does everything
+ * except the writes. Only one run at a time; the latest run's progress stays available until the next one starts.
+ */
+@Service
+public class StreakRecomputeJob {
+
+    private static final Logger log = LoggerFactory.getLogger(StreakRecomputeJob.class);
+    private static final int BATCH_LIMIT = 500;
+    private static final String HISTORY_START = "1970-01-01";
+
+    private final UserRepository userRepository;
+    private final HabitRepository habitRepository;
+    private final HabitLogRepository habitLogRepository;
+    private final HabitStatsRepository habitStatsRepository;
+    private final AppProperties.StreakRecompute config;
+
+    private final AtomicReference<Run> current = new AtomicReference<>();
+
+    public StreakRecomputeJob(UserRepository userRepository, HabitRepository habitRepository,
+                              HabitLogRepository habitLogRepository, HabitStatsRepository habitStatsRepository,
+                              AppProperties appProperties) {
+        this.userRepository = userRepository;
+        this.habitRepository = habitRepository;
+        this.habitLogRepository = habitLogRepository;
+        this.habitStatsRepository = habitStatsRepository;
+        this.config = appProperties.getStreakRecompute();
+    }
+
+    public StreakRecomputeStatusDTO start(boolean dryRun) {
+        Run previous = current.get();
+        Run run = new Run(dryRun);
+        if ((previous != null && previous.running) || !current.compareAndSet(previous, run)) {
+            throw new ConflictException("A streak recompute job is already running");
+        }
+
+        int parallelism = Math.max(1, config.getParallelism());
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "streak-recompute-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread driver = new Thread(() -> {
+            try {
+                execute(run, workers, parallelism);
+                log.info("Streak recompute {} finished: {} users, {} habits drifted, {} corrected",
+                        run.id, run.usersScanned, run.habitsDrifted, run.habitsCorrected);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+                run.error = e.getMessage();
+                log.error("Streak recompute {} failed: ", run.id, e);
+            } finally {
+                run.finishedAt = Instant.now();
+                run.running = false;
+                workers.shutdown();
+            }
+        }, "streak-recompute-driver");
+        driver.setDaemon(true);
+        driver.start();
+        log.info("Streak recompute {} started (dryRun={})", run.id, dryRun);
+        return run.toDTO();
+    }
+
+    public Optional<StreakRecomputeStatusDTO> getStatus() {
+        return Optional.ofNullable(current.get()).map(Run::toDTO);
+    }
+
+    // Runs on the driver thread, the only one that waits on futures
+    private void execute(Run run, ExecutorService workers, int parallelism)
+            throws ExecutionException, InterruptedException {
+        Semaphore inFlight = new Semaphore(parallelism);
+        String afterUid = null;
+        while (true) {
+            List<String> uids = userRepository.findUidPageAsync(afterUid, config.getPageSize()).get();
+            if (uids.isEmpty()) break;
+
+            List<CompletableFuture<List<Correction>>> scans = new ArrayList<>(uids.size());
+            for (String uid : uids) {
+                inFlight.acquire();
+                scans.add(recomputeUser(run, uid, workers).whenComplete((result, error) -> inFlight.release()));
+            }
+            CompletableFuture.allOf(scans.toArray(new CompletableFuture[0])).get();
+            run.usersScanned.addAndGet(uids.size());
+
+            if (!run.dryRun) {
+                List<List<Correction>> byUser = new ArrayList<>();
+                for (CompletableFuture<List<Correction>> scan : scans) {
+                    if (!scan.join().isEmpty()) byUser.add(scan.join());
+                }
+                write(run, byUser);
+            }
+            log.info("Streak recompute {} progress: {} users, {} habits drifted",
+                    run.id, run.usersScanned, run.habitsDrifted);
+            afterUid = uids.get(uids.size() - 1);
+        }
+    }
+
+    /**
+     * Replays one user's logs; resolves to the habits whose stored streak fields differ, with the expected values.
+     * A user whose reads fail is counted and skipped.
+     */
+    private CompletableFuture<List<Correction>> recomputeUser(Run run, String uid, ExecutorService workers) {
+        String today = LocalDate.now().toString();
+        return habitRepository.findAllVersionedAsync(uid).thenCompose(habits -> {
+            List<CompletableFuture<Correction>> checks = new ArrayList<>(habits.size());
+            for (Versioned<Habit> stored : habits) {
+                checks.add(habitLogRepository.findByDateRangeAsync(uid, stored.getValue().getId(), HISTORY_START, today)
+                        .thenApplyAsync(logs -> check(run, uid, stored, logs), workers));
+            }
+            return CompletableFuture.allOf(checks.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+                List<Correction> drifted = new ArrayList<>();
+                for (CompletableFuture<Correction> check : checks) {
+                    if (check.join() != null) drifted.add(check.join());
+                }
+                return drifted;
+            });
+        }).exceptionally(e -> {
+            run.usersFailed.incrementAndGet();
+            log.warn("Streak recompute {} skipped user {}: {}", run.id, uid, e.getMessage());
+            return List.of();
+        });
+    }
+
+    private Correction check(Run run, String uid, Versioned<Habit> stored, List<HabitLog> logs) {
+        Habit expected = replay(uid, stored.getValue(), logs);
+        run.habitsScanned.incrementAndGet();
+        if (sameStreakFields(stored.getValue(), expected)) {
+            return null;
+        }
+        run.habitsDrifted.incrementAndGet();
+        run.recordDiff(stored.getValue(), expected, config.getMaxReportedDiffs());
+        return new Correction(stored, expected);
+    }
+
+    /**
+     * Rebuilds the streak fields by feeding every completion, oldest first, through the same
+     * schedule rules completeHabit applies.
+     */
+    static Habit replay(String uid, Habit stored, List<HabitLog> logs) {
+        Habit expected = new Habit();
+        expected.setId(stored.getId());
+        expected.setUserId(uid);
+        expected.setFrequency(stored.getFrequency());
+        expected.setRunLengths(new HashMap<>());
+        HabitSchedule schedule = HabitSchedule.of(stored.getFrequency());
+        for (HabitLog entry : logs) {
+            if (!entry.isCompleted()) continue;
+            schedule.applyCompletion(expected, LocalDate.parse(entry.getDate()));
+            expected.setLastCompletedDate(entry.getDate());
+        }
+        return expected;
+    }
+
+    private static boolean sameStreakFields(Habit a, Habit b) {
+        return a.getCurrentStreak() == b.getCurrentStreak()
+                && a.getLongestStreak() == b.getLongestStreak()
+                && Objects.equals(a.getLastCompletedDate(), b.getLastCompletedDate())
+                && Objects.equals(a.getPeriodStart(), b.getPeriodStart())
+                && a.getPeriodCompletions() == b.getPeriodCompletions()
+                && Objects.equals(a.getRunLengths(), b.getRunLengths());
+    }
+
+    /**
+     * Commits each user's corrections as batched writes, launching batches together until a second's worth
+     * of writes is in flight, then waiting for them and pacing to {@code writes-per-second}.
+     */
+    private void write(Run run, List<List<Correction>> byUser) throws ExecutionException, InterruptedException {
+        int writesPerSecond = Math.max(1, config.getWritesPerSecond());
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        int pendingWrites = 0;
+        long began = System.nanoTime();
+        for (List<Correction> corrections : byUser) {
+            // One slot of each batch is kept for the aggregates
+            for (int start = 0; start < corrections.size(); start += BATCH_LIMIT - 1) {
+                List<Correction> batch = corrections.subList(start, Math.min(start + BATCH_LIMIT - 1, corrections.size()));
+                pending.add(correct(run, batch));
+                pendingWrites += batch.size();
+                if (pendingWrites >= writesPerSecond) {
+                    await(pending, pendingWrites, writesPerSecond, began);
+                    pending.clear();
+                    pendingWrites = 0;
+                    began = System.nanoTime();
+                }
+            }
+        }
+        await(pending, pendingWrites, writesPerSecond, began);
+    }
+
+    private static void await(List<CompletableFuture<Void>> pending, int writes, int writesPerSecond, long began)
+            throws ExecutionException, InterruptedException {
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).get();
+        long minimumMillis = writes * 1000L / writesPerSecond;
+        long elapsedMillis = (System.nanoTime() - began) / 1_000_000;
+        if (elapsedMillis < minimumMillis) {
+            Thread.sleep(minimumMillis - elapsedMillis);
+        }
+    }
+
+    /**
+     * Writes one user's corrections, and the intelligence aggregates' mirror of them, in a single batch. Every
+     * write is guarded by the update time of the document it replaces: if a habit was completed or deleted, or
+     * the aggregates changed, since they were read, nothing is written and the corrections are skipped, not failed.
+     */
+    private CompletableFuture<Void> correct(Run run, List<Correction> corrections) {
+        String uid = corrections.get(0).expected.getUserId();
+        List<Versioned<Habit>> updates = new ArrayList<>(corrections.size());
+        for (Correction correction : corrections) {
+            updates.add(new Versioned<>(correction.expected, correction.stored.getUpdateTime()));
+        }
+        return habitStatsRepository.findVersionedAsync(uid).thenCompose(stats ->
+                habitRepository.updateStreaksIfUnchangedAsync(uid, updates, batch -> {
+                    if (stats.isEmpty()) return;
+                    HabitStats updated = stats.get().getValue();
+                    boolean mirrored = false;
+                    for (Correction correction : corrections) {
+                        if (updated.getHabits().containsKey(correction.expected.getId())) {
+                            updated.getHabits().put(correction.expected.getId(), new HabitStats.HabitState(correction.expected));
+                            mirrored = true;
+                        }
+                    }
+                    if (mirrored) {
+                        habitStatsRepository.saveIfUnchanged(batch, uid, updated, stats.get().getUpdateTime());
+                    }
+                })).handle((result, ex) -> {
+            if (ex == null) {
+                run.habitsCorrected.addAndGet(corrections.size());
+            } else {
+                run.habitsSkipped.addAndGet(corrections.size());
+                boolean changed = FirestoreFutures.hasStatus(ex, Status.Code.FAILED_PRECONDITION)
+                        || FirestoreFutures.hasStatus(ex, Status.Code.NOT_FOUND);
+                log.info("Streak recompute {} skipped {} habits of user {}: {}", run.id, corrections.size(), uid,
+                        changed ? "changed or deleted since scan" : ex.getMessage());
+            }
+            return null;
+        });
+    }
+
+    private static final class Correction {
+        final Versioned<Habit> stored;
+        final Habit expected;
+
+        Correction(Versioned<Habit> stored, Habit expected) {
+            this.stored = stored;
+            this.expected = expected;
+        }
+    }
+
+    private static final class Run {
+        final String id = UUID.randomUUID().toString();
+        final boolean dryRun;
+        final Instant startedAt = Instant.now();
+        final AtomicLong usersScanned = new AtomicLong();
+        final AtomicLong usersFailed = new AtomicLong();
+        final AtomicLong habitsScanned = new AtomicLong();
+        final AtomicLong habitsDrifted = new AtomicLong();
+        final AtomicLong habitsCorrected = new AtomicLong();
+        final AtomicLong habitsSkipped = new AtomicLong();
+        final List<StreakRecomputeStatusDTO.StreakDiffDTO> diffs = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean running = true;
+        volatile Instant finishedAt;
+        volatile String error;
+
+        Run(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        void recordDiff(Habit stored, Habit expected, int limit) {
+            if (diffs.size() >= limit) return;
+            StreakRecomputeStatusDTO.StreakDiffDTO diff = new StreakRecomputeStatusDTO.StreakDiffDTO();
+            diff.setUserId(expected.getUserId());
+            diff.setHabitId(stored.getId());
+            diff.setCurrentStreak(stored.getCurrentStreak());
+            diff.setExpectedCurrentStreak(expected.getCurrentStreak());
+            diff.setLongestStreak(stored.getLongestStreak());
+            diff.setExpectedLongestStreak(expected.getLongestStreak());
+            diff.setLastCompletedDate(stored.getLastCompletedDate());
+            diff.setExpectedLastCompletedDate(expected.getLastCompletedDate());
+            diffs.add(diff);
+        }
+
+        StreakRecomputeStatusDTO toDTO() {
+            StreakRecomputeStatusDTO dto = new StreakRecomputeStatusDTO();
+            dto.setJobId(id);
+            dto.setState(running ? "running" : error != null ? "failed" : "completed");
+            dto.setDryRun(dryRun);
+            dto.setUsersScanned(usersScanned.get());
+            dto.setUsersFailed(usersFailed.get());
+            dto.setHabitsScanned(habitsScanned.get());
+            dto.setHabitsDrifted(habitsDrifted.get());
+            dto.setHabitsCorrected(habitsCorrected.get());
+            dto.setHabitsSkipped(habitsSkipped.get());
+            dto.setStartedAt(startedAt.toString());
+            if (finishedAt != null) dto.setFinishedAt(finishedAt.toString());
+            dto.setError(error);
+            synchronized (diffs) {
+                dto.setDiffs(new ArrayList<>(diffs));
+            }
+            return dto;
+        }
+    }
+}
@@ -3,8 +3,12 @@ package com.productivity.service;
 import com.google.cloud.Timestamp;
 import com.productivity.dto.SubtaskDTO;
 import com.productivity.dto.TaskDTO;
+import com.productivity.dto.TaskStatsDTO;
 import com.productivity.exception.ResourceNotFoundException;
 import com.productivity.model.Task;
+import com.productivity.model.TaskCounts;
+import com.productivity.repository.CursorPage;
+import com.productivity.repository.TaskCounterRepository;
 import com.productivity.repository.TaskRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,7 +22,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,12 +31,14 @@ public class TaskService {
 
     private static final Logger log = LoggerFactory.getLogger(TaskService.class);
     private final TaskRepository taskRepository;
+    private final TaskCounterRepository taskCounterRepository;
 
-    public TaskService(TaskRepository taskRepository) {
+    public TaskService(TaskRepository taskRepository, TaskCounterRepository taskCounterRepository) {
         this.taskRepository = taskRepository;
+        this.taskCounterRepository = taskCounterRepository;
     }
 
-    public TaskDTO createTask(String userId, TaskDTO dto) throws ExecutionException, InterruptedException {
+    public CompletableFuture<TaskDTO> createTask(String userId, TaskDTO dto) {
         Task task = new Task();
         task.setTitle(dto.getTitle());
         task.setDescription(dto.getDescription());
@@ -59,92 +66,136 @@ public class TaskService {
             task.setExternalLinks(dto.getExternalLinks());
         }
 
-        Task saved = taskRepository.save(userId, task);
-        return toDTO(saved);
+        return taskRepository.saveAsync(userId, task).thenApply(this::toDTO);
     }
 
-    public TaskDTO getTask(String userId, String taskId) throws ExecutionException, InterruptedException {
-        Task task = taskRepository.findById(userId, taskId)
-                .orElseThrow(() -> new ResourceNotFoundException("Task", taskId));
-        return toDTO(task);
+    public CompletableFuture<TaskDTO> getTask(String userId, String taskId) {
+        return taskRepository.findByIdAsync(userId, taskId).thenApply(found -> toDTO(found
+                .orElseThrow(() -> new ResourceNotFoundException("Task", taskId))));
     }
 
-    public List<TaskDTO> getTasks(String userId, String status, String priority, String sortBy,
-                                   String sortDirection, int page, int size) throws ExecutionException, InterruptedException {
-        List<Task> tasks = taskRepository.findAll(userId, status, priority, sortBy, sortDirection, page, size);
-        return tasks.stream().map(this::toDTO).collect(Collectors.toList());
-    }
+    public static final Set<String> TASK_FIELDS = Set.of("id", "title", "description", "priority", "status",
+            "deadline", "subtasks", "externalLinks", "createdAt", "updatedAt");
+
+    // Scalar fields a list can be ordered (and keyset-paged) by
+    public static final Set<String> SORT_FIELDS = Set.of("title", "description", "priority", "status",
+            "deadline", "createdAt", "updatedAt");
 
-    public long getTaskCount(String userId) throws ExecutionException, InterruptedException {
-        return taskRepository.count(userId);
+    public CompletableFuture<List<TaskDTO>> getTasks(String userId, String status, String priority, String sortBy,
+                                                     String sortDirection, int page, int size, FieldSelection fields) {
+        String sortField = sortFieldOf(sortBy);
+        return taskRepository.findAllAsync(userId, status, priority, sortField, sortDirection, page, size,
+                        fields.toProjection(sortField))
+                .thenApply(tasks -> tasks.stream().map(t -> toDTO(t, fields)).collect(Collectors.toList()));
     }
 
-    public TaskDTO updateTask(String userId, String taskId, TaskDTO dto) throws ExecutionException, InterruptedException {
-        Task existing = taskRepository.findById(userId, taskId)
-                .orElseThrow(() -> new ResourceNotFoundException("Task", taskId));
+    public CompletableFuture<CursorPage<TaskDTO>> getTaskPage(String userId, String status, String priority, String sortBy,
+                                                              String sortDirection, String after, String before, int size,
+                                                              FieldSelection fields) {
+        // The sort field is always projected because the page cursors are built from it
+        String sortField = sortFieldOf(sortBy);
+        return taskRepository.findPageAsync(userId, status, priority, sortField, sortDirection, after, before, size,
+                        fields.toProjection(sortField))
+                .thenApply(page -> page.map(t -> toDTO(t, fields)));
+    }
 
-        if (dto.getTitle() != null) existing.setTitle(dto.getTitle());
-        if (dto.getDescription() != null) existing.setDescription(dto.getDescription());
-        if (dto.getPriority() != null) existing.setPriority(dto.getPriority());
-        if (dto.getStatus() != null) existing.setStatus(dto.getStatus());
-        if (dto.getDeadline() != null) {
-            existing.setDeadline(Timestamp.ofTimeSecondsAndNanos(
-                    Instant.parse(dto.getDeadline()).getEpochSecond(), 0));
+    private static String sortFieldOf(String sortBy) {
+        if (sortBy == null) {
+            return "createdAt";
         }
-
-        if (dto.getSubtasks() != null) {
-            existing.setSubtasks(dto.getSubtasks().stream().map(s -> {
-                Map<String, Object> map = new HashMap<>();
-                map.put("id", s.getId());
-                map.put("title", s.getTitle());
-                map.put("completed", s.isCompleted());
-                return map;
-            }).collect(Collectors.toList()));
+        if (!SORT_FIELDS.contains(sortBy)) {
+            throw new IllegalArgumentException("Unsupported sortBy: " + sortBy);
         }
+        return sortBy;
+    }
 
-        if (dto.getExternalLinks() != null) {
-            existing.setExternalLinks(dto.getExternalLinks());
-        }
+    public CompletableFuture<Long> getTaskCount(String userId) {
+        return taskCounterRepository.getCountsAsync(userId).thenApply(TaskCounts::getTotal);
+    }
 
-        existing.setUpdatedAt(Timestamp.now());
+    public CompletableFuture<TaskStatsDTO> getTaskStats(String userId) {
+        return taskCounterRepository.getCountsAsync(userId).thenApply(counts -> {
+            TaskStatsDTO dto = new TaskStatsDTO();
+            dto.setTotal(counts.getTotal());
+            dto.setTodo(counts.getTodo());
+            dto.setInProgress(counts.getInProgress());
+            dto.setDone(counts.getDone());
+            dto.setOverdueCandidates(counts.getOverdueCandidates());
+            return dto;
+        });
+    }
 
-        Task saved = taskRepository.save(userId, existing);
-        return toDTO(saved);
+    public CompletableFuture<TaskDTO> updateTask(String userId, String taskId, TaskDTO dto) {
+        return taskRepository.findByIdAsync(userId, taskId).thenCompose(found -> {
+            Task existing = found.orElseThrow(() -> new ResourceNotFoundException("Task", taskId));
+
+            if (dto.getTitle() != null) existing.setTitle(dto.getTitle());
+            if (dto.getDescription() != null) existing.setDescription(dto.getDescription());
+            if (dto.getPriority() != null) existing.setPriority(dto.getPriority());
+            if (dto.getStatus() != null) existing.setStatus(dto.getStatus());
+            if (dto.getDeadline() != null) {
+                existing.setDeadline(Timestamp.ofTimeSecondsAndNanos(
+                        Instant.parse(dto.getDeadline()).getEpochSecond(), 0));
+            }
+
+            if (dto.getSubtasks() != null) {
+                existing.setSubtasks(dto.getSubtasks().stream().map(s -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("id", s.getId());
+                    map.put("title", s.getTitle());
+                    map.put("completed", s.isCompleted());
+                    return map;
+                }).collect(Collectors.toList()));
+            }
+
+            if (dto.getExternalLinks() != null) {
+                existing.setExternalLinks(dto.getExternalLinks());
+            }
+
+            existing.setUpdatedAt(Timestamp.now());
+
+            return taskRepository.saveAsync(userId, existing);
+        }).thenApply(this::toDTO);
     }
 
-    public void deleteTask(String userId, String taskId) throws ExecutionException, InterruptedException {
-        taskRepository.findById(userId, taskId)
-                .orElseThrow(() -> new ResourceNotFoundException("Task", taskId));
-        taskRepository.delete(userId, taskId);
+    public CompletableFuture<Void> deleteTask(String userId, String taskId) {
+        return taskRepository.findByIdAsync(userId, taskId).thenCompose(found -> {
+            found.orElseThrow(() -> new ResourceNotFoundException("Task", taskId));
+            return taskRepository.deleteAsync(userId, taskId);
+        });
     }
 
-    public List<TaskDTO> getOverdueTasks(String userId) throws ExecutionException, InterruptedException {
-        return taskRepository.findOverdue(userId, Timestamp.now())
-                .stream().map(this::toDTO).collect(Collectors.toList());
+    public CompletableFuture<List<TaskDTO>> getOverdueTasks(String userId) {
+        return taskRepository.findOverdueAsync(userId, Timestamp.now())
+                .thenApply(tasks -> tasks.stream().map(this::toDTO).collect(Collectors.toList()));
     }
 
-    public List<TaskDTO> getTodayTasks(String userId) throws ExecutionException, InterruptedException {
+    public CompletableFuture<List<TaskDTO>> getTodayTasks(String userId) {
         LocalDate today = LocalDate.now(ZoneOffset.UTC);
         Timestamp startOfDay = Timestamp.ofTimeSecondsAndNanos(
                 today.atStartOfDay(ZoneOffset.UTC).toEpochSecond(), 0);
         Timestamp endOfDay = Timestamp.ofTimeSecondsAndNanos(
                 today.plusDays(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond(), 0);
-        return taskRepository.findByDeadlineRange(userId, startOfDay, endOfDay)
-                .stream().map(this::toDTO).collect(Collectors.toList());
+        return taskRepository.findByDeadlineRangeAsync(userId, startOfDay, endOfDay)
+                .thenApply(tasks -> tasks.stream().map(this::toDTO).collect(Collectors.toList()));
     }
 
     private TaskDTO toDTO(Task task) {
+        return toDTO(task, FieldSelection.ALL);
+    }
+
+    private TaskDTO toDTO(Task task, FieldSelection fields) {
         TaskDTO dto = new TaskDTO();
         dto.setId(task.getId());
-        dto.setTitle(task.getTitle());
-        dto.setDescription(task.getDescription());
-        dto.setPriority(task.getPriority());
-        dto.setStatus(task.getStatus());
-        if (task.getDeadline() != null) {
+        if (fields.includes("title")) dto.setTitle(task.getTitle());
+        if (fields.includes("description")) dto.setDescription(task.getDescription());
+        if (fields.includes("priority")) dto.setPriority(task.getPriority());
+        if (fields.includes("status")) dto.setStatus(task.getStatus());
+        if (fields.includes("deadline") && task.getDeadline() != null) {
             dto.setDeadline(task.getDeadline().toDate().toInstant().toString());
         }
 
-        if (task.getSubtasks() != null) {
+        if (fields.includes("subtasks") && task.getSubtasks() != null) {
             dto.setSubtasks(task.getSubtasks().stream().map(s -> {
                 SubtaskDTO sub = new SubtaskDTO();
                 sub.setId((String) s.get("id"));
@@ -154,14 +205,14 @@ public class TaskService {
             }).collect(Collectors.toList()));
         }
 
-        if (task.getExternalLinks() != null) {
+        if (fields.includes("externalLinks") && task.getExternalLinks() != null) {
             dto.setExternalLinks(task.getExternalLinks());
         }
 
-        if (task.getCreatedAt() != null) {
+        if (fields.includes("createdAt") && task.getCreatedAt() != null) {
             dto.setCreatedAt(task.getCreatedAt().toDate().toInstant().toString());
         }
-        if (task.getUpdatedAt() != null) {
+        if (fields.includes("updatedAt") && task.getUpdatedAt() != null) {
             dto.setUpdatedAt(task.getUpdatedAt().toDate().toInstant().toString());
         }
         return dto;
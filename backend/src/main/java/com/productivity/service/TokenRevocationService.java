@@ -0,0 +1,123 @@
+package com.productivity.service;
+
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.productivity.config.AppProperties;
+import com.productivity.repository.RevokedTokenRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revocation list for refresh tokens and their rotation families, held in memory so a valid refresh
+ * costs no Firestore read. A Bloom filter answers "definitely not revoked" for almost every check;
+ * its positives are confirmed against the exact set. Both are rebuilt from Firestore at startup and
+ * kept in sync with other instances through a snapshot listener; expired entries are pruned hourly.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+    public static final String KIND_TOKEN = "token";
+    public static final String KIND_FAMILY = "family";
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final AppProperties.TokenRevocation config;
+
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private final Object filterLock = new Object();
+    private volatile BloomFilter<CharSequence> filter;
+    private volatile boolean loaded;
+
+    private final ListenerRegistration listener;
+    private final ScheduledExecutorService pruneExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, AppProperties appProperties) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.config = appProperties.getTokenRevocation();
+        this.filter = newFilter();
+        this.listener = revokedTokenRepository.listenActive(this::add, () -> {
+            loaded = true;
+            log.info("Token revocation list loaded: {} entries", revoked.size());
+        });
+        pruneExecutor.scheduleAtFixedRate(this::prune, 1, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Whether a token ID or family ID is revoked. Until the startup snapshot has arrived,
+     * checks that miss in memory fall back to a Firestore read.
+     */
+    public boolean isRevoked(String id) throws ExecutionException, InterruptedException {
+        if (filter.mightContain(id)) {
+            Instant expiresAt = revoked.get(id);
+            if (expiresAt != null && expiresAt.isAfter(Instant.now())) {
+                return true;
+            }
+        }
+        return !loaded && revokedTokenRepository.isRevoked(id);
+    }
+
+    /**
+     * Revokes an ID until {@code expiresAt}: effective on this instance immediately, persisted before returning.
+     */
+    public void revoke(String id, String kind, Instant expiresAt) throws ExecutionException, InterruptedException {
+        add(id, expiresAt);
+        revokedTokenRepository.save(id, kind, expiresAt);
+    }
+
+    /**
+     * Marks a single-use token ID as spent. Atomic across instances: returns true for exactly one caller,
+     * false if the ID had already been used or revoked. Costs one create write and no read: an ID spent
+     * elsewhere is caught by the in-memory list or by the write's precondition.
+     */
+    public boolean consume(String id, Instant expiresAt) throws ExecutionException, InterruptedException {
+        if (loaded && isRevoked(id)) {
+            return false;
+        }
+        boolean first = revokedTokenRepository.createIfAbsent(id, KIND_TOKEN, expiresAt);
+        add(id, expiresAt);
+        return first;
+    }
+
+    private void add(String id, Instant expiresAt) {
+        synchronized (filterLock) {
+            revoked.merge(id, expiresAt, (a, b) -> a.isAfter(b) ? a : b);
+            filter.put(id);
+        }
+    }
+
+    /**
+     * Drops expired entries and rebuilds the Bloom filter, which cannot delete, from what is left.
+     */
+    private void prune() {
+        Instant now = Instant.now();
+        synchronized (filterLock) {
+            revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+            BloomFilter<CharSequence> rebuilt = newFilter();
+            revoked.keySet().forEach(rebuilt::put);
+            filter = rebuilt;
+        }
+    }
+
+    private BloomFilter<CharSequence> newFilter() {
+        int expected = Math.max(config.getExpectedRevocations(), revoked.size() * 2);
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expected, config.getFalsePositiveRate());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        listener.remove();
+        pruneExecutor.shutdown();
+    }
+}
@@ -2,6 +2,7 @@ package com.productivity.service;
 
 import com.google.cloud.Timestamp;
 import com.productivity.dto.UserDTO;
+import com.productivity.exception.ConflictException;
 import com.productivity.exception.ResourceNotFoundException;
 import com.productivity.model.User;
 import com.productivity.repository.UserRepository;
@@ -10,9 +11,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @Service
@@ -27,38 +30,6 @@ public class UserService {
         this.emailService = emailService;
     }
 
-    public UserDTO createOrUpdateUser(String uid, String email, String displayName, String photoURL)
-            throws ExecutionException, InterruptedException {
-        String normalizedEmail = email != null ? email.toLowerCase().trim() : null;
-        User user = userRepository.findById(uid).orElse(null);
-
-        if (user == null) {
-            user = new User();
-            user.setUid(uid);
-            user.setEmail(normalizedEmail);
-            user.setDisplayName(displayName);
-            user.setPhotoURL(photoURL);
-            user.setRole("user");
-            user.setOnboarded(false);
-            user.setVerified(false); // Default to false for new enterprise auth
-            user.setCreatedAt(Timestamp.now());
-            user.setUpdatedAt(Timestamp.now());
-            userRepository.save(user);
-            log.info("New user created: {}", uid);
-        } else {
-            Map<String, Object> updates = new HashMap<>();
-            if (normalizedEmail != null) updates.put("email", normalizedEmail);
-            if (displayName != null) updates.put("displayName", displayName);
-            if (photoURL != null) updates.put("photoURL", photoURL);
-            updates.put("updatedAt", Timestamp.now());
-            userRepository.update(uid, updates);
-            user = userRepository.findById(uid).orElseThrow();
-            log.info("User updated: {}", uid);
-        }
-
-        return toDTO(user);
-    }
-    
     // New method for enterprise signup
     public User createUser(String email, String passwordHash, String displayName) 
             throws ExecutionException, InterruptedException {
@@ -76,7 +47,10 @@ public class UserService {
         user.setCreatedAt(Timestamp.now());
         user.setUpdatedAt(Timestamp.now());
         
-        userRepository.save(user);
+        // Claims the email atomically; a concurrent signup for the same address loses here
+        if (!userRepository.create(user)) {
+            throw new ConflictException("Email already in use");
+        }
         log.info("Enterprise user created: {}", uid);
         return user;
     }
@@ -97,27 +71,34 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User", uid));
     }
 
-    public UserDTO completeOnboarding(String uid, String bio) throws ExecutionException, InterruptedException {
+    public CompletableFuture<UserDTO> getUserAsync(String uid) {
+        return userRepository.findByIdAsync(uid)
+                .thenApply(found -> toDTO(found.orElseThrow(() -> new ResourceNotFoundException("User", uid))));
+    }
+
+    public CompletableFuture<UserDTO> completeOnboarding(String uid, String bio) {
         Map<String, Object> updates = new HashMap<>();
         updates.put("bio", bio);
         updates.put("onboarded", true);
         updates.put("updatedAt", Timestamp.now());
         
-        User user = userRepository.update(uid, updates);
-        log.info("Onboarding completed for user: {}", uid);
-        return toDTO(user);
+        return userRepository.updateAsync(uid, updates).thenApply(user -> {
+            log.info("Onboarding completed for user: {}", uid);
+            return toDTO(user);
+        });
     }
 
-    public UserDTO updateProfile(String uid, String displayName, String bio, String photoURL) throws ExecutionException, InterruptedException {
+    public CompletableFuture<UserDTO> updateProfile(String uid, String displayName, String bio, String photoURL) {
         Map<String, Object> updates = new HashMap<>();
         if (displayName != null) updates.put("displayName", displayName);
         if (bio != null) updates.put("bio", bio);
         if (photoURL != null) updates.put("photoURL", photoURL);
         updates.put("updatedAt", Timestamp.now());
         
-        User user = userRepository.update(uid, updates);
-        log.info("Profile updated for user: {}", uid);
-        return toDTO(user);
+        return userRepository.updateAsync(uid, updates).thenApply(user -> {
+            log.info("Profile updated for user: {}", uid);
+            return toDTO(user);
+        });
     }
     
     public void verifyUser(String uid) throws ExecutionException, InterruptedException {
@@ -135,6 +116,13 @@ public class UserService {
         userRepository.update(uid, updates);
     }
     
+    public void lockAccount(String uid, int loginAttempts, Instant lockedUntil) throws ExecutionException, InterruptedException {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("loginAttempts", loginAttempts);
+        updates.put("lockedUntil", Timestamp.ofTimeSecondsAndNanos(lockedUntil.getEpochSecond(), lockedUntil.getNano()));
+        userRepository.update(uid, updates);
+    }
+    
     public void updatePassword(String uid, String newPasswordHash) throws ExecutionException, InterruptedException {
         Map<String, Object> updates = new HashMap<>();
         updates.put("passwordHash", newPasswordHash);
@@ -142,24 +130,35 @@ public class UserService {
         userRepository.update(uid, updates);
     }
 
-    public void deleteUser(String uid) throws ExecutionException, InterruptedException {
-        User user = userRepository.findById(uid).orElse(null);
-        String email = user != null ? user.getEmail() : null;
-        String displayName = user != null ? user.getDisplayName() : null;
-
-        userRepository.delete(uid);
-        log.info("Account permanently deleted for user: {}", uid);
-
-        if (email != null) {
-            emailService.sendSimpleMessage(
-                email,
-                "Your Productiv Account Has Been Deleted",
-                "Hi " + (displayName != null ? displayName : "there") + ",<br><br>" +
-                "Your Productiv account has been permanently deleted and all associated data has been removed.<br><br>" +
-                "If you did not request this deletion, please contact our support immediately.<br><br>" +
-                "The Productiv Team"
-            );
-        }
+    /**
+     * Swaps in a re-hashed password only if the stored hash is still the one that was verified,
+     * so a password change made meanwhile is never overwritten. Resolves to whether it was swapped.
+     */
+    public CompletableFuture<Boolean> upgradePasswordHashAsync(String uid, String verifiedHash, String upgradedHash) {
+        return userRepository.replacePasswordHashAsync(uid, verifiedHash, upgradedHash);
+    }
+
+    public CompletableFuture<Void> deleteUser(String uid) {
+        return userRepository.findByIdAsync(uid).thenCompose(found -> {
+            User user = found.orElse(null);
+            String email = user != null ? user.getEmail() : null;
+            String displayName = user != null ? user.getDisplayName() : null;
+
+            return userRepository.deleteAsync(uid).thenRun(() -> {
+                log.info("Account permanently deleted for user: {}", uid);
+
+                if (email != null) {
+                    emailService.sendSimpleMessage(
+                        email,
+                        "Your Productiv Account Has Been Deleted",
+                        "Hi " + (displayName != null ? displayName : "there") + ",<br><br>" +
+                        "Your Productiv account has been permanently deleted and all associated data has been removed.<br><br>" +
+                        "If you did not request this deletion, please contact our support immediately.<br><br>" +
+                        "The Productiv Team"
+                    );
+                }
+            });
+        });
     }
 
     public UserDTO toDTO(User user) {
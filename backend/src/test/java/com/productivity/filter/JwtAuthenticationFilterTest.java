@@ -0,0 +1,55 @@
+package com.productivity.filter;
+
+import com.productivity.service.JwtService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JwtAuthenticationFilterTest {
+
+    private final JwtService jwtService = new JwtService("testsecretkeythatisdefinitelylongerthan256bits",
+            900000L, 604800000L, 100, new SimpleMeterRegistry());
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    void accessTokenAuthenticatesWithItsRole() throws Exception {
+        Authentication authentication = authenticate(jwtService.generateAccessToken("uid-1", "admin"));
+
+        assertEquals("uid-1", authentication.getPrincipal());
+        assertEquals(List.of("ROLE_ADMIN"),
+                authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+    }
+
+    @Test
+    void refreshTokenDoesNotAuthenticate() throws Exception {
+        assertNull(authenticate(jwtService.generateRefreshToken("uid-1")));
+    }
+
+    @Test
+    void resetTokenDoesNotAuthenticate() throws Exception {
+        assertNull(authenticate(jwtService.generateResetToken("user@example.com")));
+    }
+}
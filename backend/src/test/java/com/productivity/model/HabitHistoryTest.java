@@ -0,0 +1,133 @@
+package com.productivity.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HabitHistoryTest {
+
+    private static final LocalDate FIRST = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void rangeCountsMatchABitSetAcrossWordBoundaries() {
+        Random random = new Random(7);
+        int days = 200;
+        HabitHistory history = new HabitHistory(FIRST, FIRST.plusDays(days - 1));
+        BitSet expected = new BitSet();
+        for (int i = 0; i < days; i++) {
+            if (random.nextBoolean()) {
+                history.set(FIRST.toEpochDay() + i);
+                expected.set(i);
+            }
+        }
+
+        long first = FIRST.toEpochDay();
+        for (int from = 0; from < days; from++) {
+            for (int to = from; to < days; to++) {
+                assertEquals(expected.get(from, to + 1).cardinality(), history.count(first + from, first + to),
+                        "count [" + from + ", " + to + "]");
+            }
+        }
+        assertEquals(expected.cardinality(), history.cardinality());
+    }
+
+    @Test
+    void wordEdgesAreCountedOnce() {
+        HabitHistory history = new HabitHistory(FIRST, FIRST.plusDays(127));
+        long first = FIRST.toEpochDay();
+        for (long day : new long[] {0, 63, 64, 127}) {
+            history.set(first + day);
+        }
+
+        assertEquals(1, history.count(first + 63, first + 63));
+        assertEquals(2, history.count(first + 63, first + 64));
+        assertEquals(2, history.count(first, first + 63));
+        assertEquals(2, history.count(first + 64, first + 127));
+        assertEquals(4, history.count(first, first + 127));
+    }
+
+    @Test
+    void queriesAreClampedToTheSpan() {
+        HabitHistory history = new HabitHistory(FIRST, FIRST.plusDays(9));
+        long first = FIRST.toEpochDay();
+        history.set(first);
+        history.set(first + 9);
+
+        assertEquals(2, history.count(first - 100, first + 100));
+        assertEquals(0, history.count(first + 10, first + 20));
+        assertEquals(0, history.count(first + 5, first + 4));
+        assertFalse(history.anyCompleted(first - 10, first - 1));
+        assertTrue(history.anyCompleted(first + 9, first + 30));
+    }
+
+    @Test
+    void daysOutsideTheSpanAreIgnored() {
+        HabitHistory history = new HabitHistory(FIRST, FIRST.plusDays(9));
+        long first = FIRST.toEpochDay();
+
+        history.set(first - 1);
+        history.set(first + 10);
+
+        assertEquals(0, history.cardinality());
+        assertFalse(history.isCompleted(first - 1));
+        assertFalse(history.isCompleted(first + 10));
+    }
+
+    @Test
+    void ofSetsOnlyCompletedLogs() {
+        HabitLog completed = new HabitLog();
+        completed.setDate("2024-01-03");
+        completed.setCompleted(true);
+        HabitLog cleared = new HabitLog();
+        cleared.setDate("2024-01-04");
+        cleared.setCompleted(false);
+
+        HabitHistory history = HabitHistory.of(List.of(completed, cleared), FIRST, FIRST.plusDays(6));
+
+        assertEquals(1, history.cardinality());
+        assertTrue(history.isCompleted(LocalDate.of(2024, 1, 3).toEpochDay()));
+    }
+
+    @Test
+    void andCardinalityCountsSharedDays() {
+        HabitHistory a = new HabitHistory(FIRST, FIRST.plusDays(99));
+        HabitHistory b = new HabitHistory(FIRST, FIRST.plusDays(99));
+        long first = FIRST.toEpochDay();
+        a.set(first);
+        a.set(first + 70);
+        a.set(first + 99);
+        b.set(first + 70);
+        b.set(first + 99);
+        b.set(first + 1);
+
+        assertEquals(2, a.andCardinality(b));
+        assertThrows(IllegalArgumentException.class,
+                () -> a.andCardinality(new HabitHistory(FIRST, FIRST.plusDays(98))));
+    }
+
+    @Test
+    void byteArrayUsesTheBitSetLayoutSizedToTheSpan() {
+        int days = 75;
+        HabitHistory history = new HabitHistory(FIRST, FIRST.plusDays(days - 1));
+        BitSet expected = new BitSet();
+        for (int day : new int[] {0, 7, 8, 63, 64, 74}) {
+            history.set(FIRST.toEpochDay() + day);
+            expected.set(day);
+        }
+
+        byte[] bytes = history.toByteArray();
+
+        assertEquals(10, bytes.length);
+        assertArrayEquals(Arrays.copyOf(expected.toByteArray(), 10), bytes);
+    }
+}
@@ -0,0 +1,134 @@
+package com.productivity.model;
+
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HabitLogMonthTest {
+
+    private static HabitLog log(String date, boolean completed) {
+        HabitLog log = new HabitLog();
+        log.setDate(date);
+        log.setCompleted(completed);
+        return log;
+    }
+
+    private static HabitLogMonth month(String month, int... days) {
+        HabitLogMonth logMonth = new HabitLogMonth("user-1", "habit-1", YearMonth.parse(month));
+        for (int day : days) {
+            logMonth.apply(log(YearMonth.parse(month).atDay(day).toString(), true));
+        }
+        return logMonth;
+    }
+
+    @Test
+    void firstAndLastDayOfMonthMapToTheOuterBits() {
+        HabitLogMonth january = month("2024-01", 1, 31);
+
+        assertEquals(1L | 1L << 30, january.getCompletedDays());
+        assertTrue(january.isCompleted(1));
+        assertTrue(january.isCompleted(31));
+        assertFalse(january.isCompleted(2));
+        assertFalse(january.isCompleted(30));
+    }
+
+    @Test
+    void uncompletingClearsTheBitAndTheCompletionTime() {
+        HabitLogMonth march = month("2024-03");
+        HabitLog completed = log("2024-03-31", true);
+        completed.setCompletedAt(Timestamp.ofTimeSecondsAndNanos(
+                LocalDate.of(2024, 3, 31).atTime(8, 30).toEpochSecond(ZoneOffset.UTC), 0));
+        march.apply(completed);
+        assertEquals(Long.valueOf(30L * 86400 + 8 * 3600 + 30 * 60), march.getCompletedAt().get("31"));
+
+        march.apply(log("2024-03-31", false));
+
+        assertFalse(march.isCompleted(31));
+        assertEquals(0, march.getCompletedDays());
+        assertNull(march.getCompletedAt().get("31"));
+    }
+
+    @Test
+    void lastCompletedDayBeforeIsStrict() {
+        HabitLogMonth january = month("2024-01", 1, 15, 31);
+
+        assertEquals(0, january.lastCompletedDayBefore(1));
+        assertEquals(1, january.lastCompletedDayBefore(2));
+        assertEquals(1, january.lastCompletedDayBefore(15));
+        assertEquals(15, january.lastCompletedDayBefore(16));
+        assertEquals(15, january.lastCompletedDayBefore(31));
+        assertEquals(31, january.lastCompletedDayBefore(32));
+        assertEquals(0, month("2024-01").lastCompletedDayBefore(32));
+    }
+
+    @Test
+    void toLogsClampsTheRangeToTheMonth() {
+        HabitLogMonth february = month("2024-02", 1, 2, 28, 29);
+
+        assertEquals(List.of("2024-02-01", "2024-02-02", "2024-02-28", "2024-02-29"),
+                dates(february.toLogs(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31))));
+        assertEquals(List.of("2024-02-02", "2024-02-28"),
+                dates(february.toLogs(LocalDate.of(2024, 2, 2), LocalDate.of(2024, 2, 28))));
+        assertEquals(List.of("2024-02-29"),
+                dates(february.toLogs(LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 5))));
+    }
+
+    @Test
+    void toLogsRestoresCompletionTimeAndProgress() {
+        HabitLogMonth month = month("2024-05");
+        HabitLog completed = log("2024-05-01", true);
+        Timestamp completedAt = Timestamp.ofTimeSecondsAndNanos(
+                LocalDate.of(2024, 5, 1).atStartOfDay(ZoneOffset.UTC).toEpochSecond(), 0);
+        completed.setCompletedAt(completedAt);
+        month.apply(completed);
+        month.getProgress().put("1", 12L);
+
+        HabitLog restored = month.toLogs(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 1)).get(0);
+
+        assertEquals("2024-05-01", restored.getDate());
+        assertEquals("habit-1", restored.getHabitId());
+        assertTrue(restored.isCompleted());
+        assertEquals(completedAt.getSeconds(), restored.getCompletedAt().getSeconds());
+        assertEquals(12L, restored.getValue());
+    }
+
+    @Test
+    void copyIntoSetsEveryCompletedDay() {
+        HabitLogMonth december = month("2023-12", 1, 17, 31);
+        HabitHistory history = new HabitHistory(LocalDate.of(2023, 12, 1), LocalDate.of(2024, 1, 31));
+
+        december.copyInto(history);
+
+        assertEquals(3, history.cardinality());
+        assertTrue(history.isCompleted(LocalDate.of(2023, 12, 1).toEpochDay()));
+        assertTrue(history.isCompleted(LocalDate.of(2023, 12, 17).toEpochDay()));
+        assertTrue(history.isCompleted(LocalDate.of(2023, 12, 31).toEpochDay()));
+    }
+
+    @Test
+    void mapRoundTripKeepsBitmapAndTimes() {
+        HabitLogMonth original = month("2024-01", 1, 31);
+        original.getCompletedAt().put("31", 42L);
+        original.getProgress().put("1", 3L);
+
+        HabitLogMonth copy = new HabitLogMonth(original.toMap(), "2024-01");
+
+        assertEquals(original.getCompletedDays(), copy.getCompletedDays());
+        assertEquals(original.getCompletedAt(), copy.getCompletedAt());
+        assertEquals(original.getProgress(), copy.getProgress());
+        assertEquals("2024-01", HabitLogMonth.monthOf("2024-01-31"));
+    }
+
+    private static List<String> dates(List<HabitLog> logs) {
+        return logs.stream().map(HabitLog::getDate).toList();
+    }
+}
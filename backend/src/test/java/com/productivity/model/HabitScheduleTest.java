@@ -0,0 +1,200 @@
+package com.productivity.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HabitScheduleTest {
+
+    // 2024-01-01 is a Monday
+    private static LocalDate jan(int day) {
+        return LocalDate.of(2024, 1, day);
+    }
+
+    private static void complete(HabitSchedule schedule, Habit habit, LocalDate day) {
+        schedule.applyCompletion(habit, day);
+        habit.setLastCompletedDate(day.toString());
+    }
+
+    @Test
+    void parsesWeekdayAndQuotaFrequencies() {
+        assertSame(HabitSchedule.DAILY, HabitSchedule.parse("daily"));
+        assertSame(HabitSchedule.DAILY, HabitSchedule.parse("custom"));
+        assertEquals(0b10101, HabitSchedule.parse("weekdays:mon,wed,fri").getWeekdayMask());
+        assertEquals(0b1100001, HabitSchedule.parse(" Weekdays: Monday, SAT ,sun ").getWeekdayMask());
+        assertEquals(0b1100000, HabitSchedule.parse("custom:sat,sun").getWeekdayMask());
+        assertEquals(1, HabitSchedule.parse("weekly").getWeeklyQuota());
+        assertEquals(7, HabitSchedule.parse("weekly:7").getWeeklyQuota());
+        assertEquals(3, HabitSchedule.parse("weekly:3").expectedPerWeek());
+        assertEquals(3, HabitSchedule.parse("weekdays:mon,wed,fri").expectedPerWeek());
+    }
+
+    @Test
+    void rejectsInvalidFrequencies() {
+        for (String frequency : new String[] {"weekly:0", "weekly:8", "weekly:x", "weekdays:funday",
+                "weekdays:mo", "weekdays:", "hourly"}) {
+            assertThrows(IllegalArgumentException.class, () -> HabitSchedule.parse(frequency), frequency);
+        }
+    }
+
+    @Test
+    void lenientLookupFallsBackToDaily() {
+        assertSame(HabitSchedule.DAILY, HabitSchedule.of(null));
+        assertSame(HabitSchedule.DAILY, HabitSchedule.of(" "));
+        assertSame(HabitSchedule.DAILY, HabitSchedule.of("every other tuesday"));
+        assertTrue(HabitSchedule.of("WEEKLY:2").isQuota());
+    }
+
+    @Test
+    void dueDaysAndWeekStarts() {
+        HabitSchedule schedule = HabitSchedule.parse("weekdays:mon,wed,fri");
+
+        assertTrue(schedule.isDue(jan(1)));
+        assertFalse(schedule.isDue(jan(2)));
+        assertFalse(schedule.isDue(jan(7)));
+        assertEquals(jan(5), schedule.previousDueDay(jan(8)));
+        assertEquals(jan(1), schedule.previousDueDay(jan(3)));
+        assertEquals(jan(1), HabitSchedule.weekStart(jan(1)));
+        assertEquals(jan(1), HabitSchedule.weekStart(jan(7)));
+        assertEquals(jan(8), HabitSchedule.weekStart(jan(8)));
+        assertTrue(HabitSchedule.parse("weekly:2").isDue(jan(2)));
+    }
+
+    @Test
+    void weekdayStreakCountsDueDaysAndBreaksOnAMissedOne() {
+        HabitSchedule schedule = HabitSchedule.parse("weekdays:mon,wed,fri");
+        Habit habit = new Habit();
+
+        complete(schedule, habit, jan(1));
+        complete(schedule, habit, jan(3));
+        complete(schedule, habit, jan(5));
+        complete(schedule, habit, jan(8));
+        assertEquals(4, habit.getCurrentStreak());
+
+        // Wednesday the 10th was missed
+        complete(schedule, habit, jan(12));
+        assertEquals(1, habit.getCurrentStreak());
+        assertEquals(4, habit.getLongestStreak());
+    }
+
+    @Test
+    void offScheduleCompletionNeitherExtendsNorMasksAStreak() {
+        HabitSchedule schedule = HabitSchedule.parse("weekdays:mon,wed,fri");
+        Habit habit = new Habit();
+
+        complete(schedule, habit, jan(1));
+        complete(schedule, habit, jan(2));
+        assertEquals(1, habit.getCurrentStreak());
+        complete(schedule, habit, jan(3));
+        assertEquals(2, habit.getCurrentStreak());
+
+        // Friday the 5th was missed; a Saturday completion must not hide it
+        complete(schedule, habit, jan(6));
+        assertEquals(0, habit.getCurrentStreak());
+        complete(schedule, habit, jan(8));
+        assertEquals(1, habit.getCurrentStreak());
+        assertEquals(2, habit.getLongestStreak());
+    }
+
+    @Test
+    void quotaStreakCountsWeeksOnceTheQuotaIsReached() {
+        HabitSchedule schedule = HabitSchedule.parse("weekly:2");
+        Habit habit = new Habit();
+
+        complete(schedule, habit, jan(1));
+        assertEquals(0, habit.getCurrentStreak());
+        assertEquals("2024-01-01", habit.getPeriodStart());
+        complete(schedule, habit, jan(2));
+        assertEquals(1, habit.getCurrentStreak());
+        complete(schedule, habit, jan(3));
+        assertEquals(1, habit.getCurrentStreak());
+        assertEquals(3, habit.getPeriodCompletions());
+
+        complete(schedule, habit, jan(8));
+        assertEquals(1, habit.getCurrentStreak());
+        complete(schedule, habit, jan(11));
+        assertEquals(2, habit.getCurrentStreak());
+
+        // The week of the 15th was skipped
+        complete(schedule, habit, jan(22));
+        assertEquals(0, habit.getCurrentStreak());
+        assertEquals("2024-01-22", habit.getPeriodStart());
+        assertEquals(1, habit.getPeriodCompletions());
+        complete(schedule, habit, jan(23));
+        assertEquals(1, habit.getCurrentStreak());
+        assertEquals(2, habit.getLongestStreak());
+    }
+
+    @Test
+    void completionsKeepTheRunLengthCounts() {
+        HabitSchedule schedule = HabitSchedule.parse("weekdays:mon,wed,fri");
+        Habit habit = new Habit();
+        habit.setRunLengths(new HashMap<>());
+
+        complete(schedule, habit, jan(1));
+        complete(schedule, habit, jan(3));
+        assertEquals(Map.of("2", 1), habit.getRunLengths());
+
+        // A missed Friday ends the run; the new one starts at 1
+        complete(schedule, habit, jan(8));
+        assertEquals(Map.of("2", 1, "1", 1), habit.getRunLengths());
+
+        // Wednesday the 10th was missed too; Friday starts another run, which Monday extends
+        complete(schedule, habit, jan(12));
+        complete(schedule, habit, jan(15));
+        assertEquals(Map.of("2", 2, "1", 1), habit.getRunLengths());
+        assertEquals(2, habit.longestRun());
+    }
+
+    @Test
+    void restartedQuotaRunIsCountedSeparately() {
+        HabitSchedule schedule = HabitSchedule.parse("weekly");
+        Habit habit = new Habit();
+        habit.setRunLengths(new HashMap<>());
+
+        complete(schedule, habit, jan(1));
+        // The week of the 8th was skipped, so the run restarts at the same length it had
+        complete(schedule, habit, jan(15));
+
+        assertEquals(Map.of("1", 2), habit.getRunLengths());
+        assertEquals(1, habit.getCurrentStreak());
+    }
+
+    @Test
+    void weekdayStreakIsIntactUntilADueDayPasses() {
+        HabitSchedule daily = HabitSchedule.DAILY;
+        assertTrue(daily.isStreakIntact("2024-01-03", null, 0, jan(3)));
+        assertTrue(daily.isStreakIntact("2024-01-03", null, 0, jan(4)));
+        assertFalse(daily.isStreakIntact("2024-01-03", null, 0, jan(5)));
+        assertFalse(daily.isStreakIntact(null, null, 0, jan(5)));
+
+        // Friday's completion carries the streak over the weekend
+        HabitSchedule weekdays = HabitSchedule.parse("weekdays:mon,tue,wed,thu,fri");
+        assertTrue(weekdays.isStreakIntact("2024-01-05", null, 0, jan(8)));
+        assertFalse(weekdays.isStreakIntact("2024-01-05", null, 0, jan(9)));
+    }
+
+    @Test
+    void quotaStreakIsIntactWhileTheQuotaIsStillReachable() {
+        HabitSchedule schedule = HabitSchedule.parse("weekly:2");
+
+        // No completions yet this week: two days left on Saturday, one on Sunday
+        assertTrue(schedule.isStreakIntact(null, "2024-01-01", 0, jan(6)));
+        assertFalse(schedule.isStreakIntact(null, "2024-01-01", 0, jan(7)));
+        assertTrue(schedule.isStreakIntact(null, "2024-01-01", 1, jan(7)));
+        assertTrue(schedule.isStreakIntact(null, "2024-01-01", 2, jan(7)));
+
+        // Last week met, nothing yet this week
+        assertTrue(schedule.isStreakIntact(null, "2024-01-01", 2, jan(8)));
+        assertFalse(schedule.isStreakIntact(null, "2024-01-01", 1, jan(8)));
+        assertFalse(schedule.isStreakIntact(null, "2024-01-01", 2, jan(15)));
+    }
+}
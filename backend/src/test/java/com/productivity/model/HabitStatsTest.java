@@ -0,0 +1,158 @@
+package com.productivity.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HabitStatsTest {
+
+    private static final long DAY = 20_000;
+
+    @Test
+    void recordUpdatesEverySumForTheDaysAge() {
+        HabitStats stats = new HabitStats(DAY);
+
+        stats.record(DAY, 1);      // age 0
+        stats.record(DAY - 6, 2);  // age 6, last day of the week
+        stats.record(DAY - 7, 1);  // age 7, outside the week
+
+        assertEquals(4, stats.getWindowSum());
+        assertEquals(3, stats.getWeekSum());
+        assertEquals(30 + 2 * 24 + 23, stats.getWeightedSum());
+    }
+
+    @Test
+    void daysOutsideTheWindowAreIgnored() {
+        HabitStats stats = new HabitStats(DAY);
+
+        stats.record(DAY + 1, 1);
+        stats.record(DAY - HabitStats.WINDOW, 1);
+
+        assertEquals(0, stats.getWindowSum());
+        assertEquals(0, stats.getWeightedSum());
+    }
+
+    @Test
+    void negativeDeltaTakesACompletionBackOut() {
+        HabitStats stats = new HabitStats(DAY);
+        stats.record(DAY - 2, 1);
+        stats.record(DAY - 10, 1);
+
+        stats.record(DAY - 2, -1);
+
+        assertEquals(1, stats.getWindowSum());
+        assertEquals(0, stats.getWeekSum());
+        assertEquals(20, stats.getWeightedSum());
+    }
+
+    @Test
+    void rollingAgesCompletionsAndDropsThemAtTheWindowEdges() {
+        HabitStats stats = new HabitStats(DAY);
+        stats.record(DAY, 1);
+
+        stats.rollTo(DAY + 6);
+        assertEquals(1, stats.getWeekSum());
+        assertEquals(24, stats.getWeightedSum());
+
+        stats.rollTo(DAY + 7);
+        assertEquals(0, stats.getWeekSum());
+        assertEquals(1, stats.getWindowSum());
+
+        stats.rollTo(DAY + 29);
+        assertEquals(1, stats.getWindowSum());
+        assertEquals(1, stats.getWeightedSum());
+
+        stats.rollTo(DAY + 30);
+        assertEquals(0, stats.getWindowSum());
+        assertEquals(0, stats.getWeightedSum());
+    }
+
+    @Test
+    void rollingBackwardsOrInPlaceChangesNothing() {
+        HabitStats stats = new HabitStats(DAY);
+        stats.record(DAY - 3, 2);
+
+        stats.rollTo(DAY);
+        stats.rollTo(DAY - 5);
+
+        assertEquals(DAY, stats.getAnchorEpochDay());
+        assertEquals(2, stats.getWindowSum());
+        assertEquals(2 * 27, stats.getWeightedSum());
+    }
+
+    @Test
+    void longAbsenceClearsTheWholeRing() {
+        HabitStats stats = new HabitStats(DAY);
+        for (int age = 0; age < HabitStats.WINDOW; age++) {
+            stats.record(DAY - age, 1);
+        }
+
+        stats.rollTo(DAY + 365);
+        stats.record(DAY + 365, 1);
+
+        assertEquals(1, stats.getWindowSum());
+        assertEquals(1, stats.getWeekSum());
+        assertEquals(30, stats.getWeightedSum());
+    }
+
+    @Test
+    void incrementalSumsMatchARecountAfterRandomEdits() {
+        Random random = new Random(7);
+        Map<Long, Long> counts = new HashMap<>();
+        HabitStats stats = new HabitStats(DAY);
+        long today = DAY;
+
+        for (int step = 0; step < 2_000; step++) {
+            if (random.nextInt(5) == 0) {
+                today += random.nextInt(random.nextInt(10) == 0 ? 40 : 3);
+                stats.rollTo(today);
+            }
+            long day = today - random.nextInt(35);
+            long delta = counts.getOrDefault(day, 0L) > 0 && random.nextBoolean() ? -1 : 1;
+            stats.record(day, delta);
+            if (today - day < HabitStats.WINDOW) {
+                counts.merge(day, delta, Long::sum);
+            }
+
+            long windowSum = 0, weekSum = 0, weightedSum = 0;
+            for (Map.Entry<Long, Long> entry : counts.entrySet()) {
+                long age = today - entry.getKey();
+                if (age < 0 || age >= HabitStats.WINDOW) continue;
+                windowSum += entry.getValue();
+                if (age < HabitStats.WEEK) weekSum += entry.getValue();
+                weightedSum += (HabitStats.WINDOW - age) * entry.getValue();
+            }
+            assertEquals(windowSum, stats.getWindowSum(), "window sum at step " + step);
+            assertEquals(weekSum, stats.getWeekSum(), "week sum at step " + step);
+            assertEquals(weightedSum, stats.getWeightedSum(), "weighted sum at step " + step);
+        }
+    }
+
+    @Test
+    void roundTripsThroughTheDocumentMap() {
+        HabitStats stats = new HabitStats(DAY);
+        stats.record(DAY - 1, 3);
+        HabitStats.HabitState state = new HabitStats.HabitState();
+        state.setFrequency("weekly:3");
+        state.setCurrentStreak(4);
+        state.setPeriodStart("2024-09-02");
+        state.setPeriodCompletions(2);
+        stats.getHabits().put("habit-1", state);
+
+        HabitStats copy = new HabitStats(stats.toMap());
+        copy.rollTo(DAY + 1);
+        stats.rollTo(DAY + 1);
+
+        assertEquals(stats.getWindowSum(), copy.getWindowSum());
+        assertEquals(stats.getWeekSum(), copy.getWeekSum());
+        assertEquals(stats.getWeightedSum(), copy.getWeightedSum());
+        HabitStats.HabitState copied = copy.getHabits().get("habit-1");
+        assertEquals("weekly:3", copied.getFrequency());
+        assertEquals(4, copied.getCurrentStreak());
+        assertEquals(2, copied.getPeriodCompletions());
+    }
+}
@@ -0,0 +1,90 @@
+package com.productivity.model;
+
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskCountsTest {
+
+    private static Task task(String status, boolean withDeadline) {
+        Task task = new Task();
+        task.setStatus(status);
+        if (withDeadline) task.setDeadline(Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 0));
+        return task;
+    }
+
+    @Test
+    void taskContributesToItsStatusAndOverdueCandidates() {
+        TaskCounts todo = TaskCounts.of(task("todo", true));
+        assertEquals(1, todo.getTotal());
+        assertEquals(1, todo.getTodo());
+        assertEquals(0, todo.getDone());
+        assertEquals(1, todo.getOverdueCandidates());
+
+        TaskCounts inProgress = TaskCounts.of(task("in-progress", false));
+        assertEquals(1, inProgress.getInProgress());
+        assertEquals(0, inProgress.getOverdueCandidates());
+
+        // A finished task is never overdue, deadline or not
+        TaskCounts done = TaskCounts.of(task("done", true));
+        assertEquals(1, done.getDone());
+        assertEquals(0, done.getOverdueCandidates());
+    }
+
+    @Test
+    void missingTaskContributesNothing() {
+        assertTrue(TaskCounts.of(null).isZero());
+    }
+
+    @Test
+    void completingATaskMovesItBetweenCounters() {
+        TaskCounts delta = TaskCounts.of(task("done", true)).minus(TaskCounts.of(task("todo", true)));
+
+        assertEquals(0, delta.getTotal());
+        assertEquals(-1, delta.getTodo());
+        assertEquals(1, delta.getDone());
+        assertEquals(-1, delta.getOverdueCandidates());
+        assertFalse(delta.isZero());
+    }
+
+    @Test
+    void unchangedStatusAndDeadlineIsAZeroDelta() {
+        assertTrue(TaskCounts.of(task("in-progress", true)).minus(TaskCounts.of(task("in-progress", true))).isZero());
+    }
+
+    @Test
+    void creatingAndDeletingAreDeltasFromAndToNothing() {
+        TaskCounts created = TaskCounts.of(task("todo", false)).minus(TaskCounts.of(null));
+        TaskCounts deleted = TaskCounts.of(null).minus(TaskCounts.of(task("todo", false)));
+
+        assertEquals(1, created.getTotal());
+        assertEquals(-1, deleted.getTotal());
+        assertEquals(-1, deleted.getTodo());
+        assertTrue(created.plus(deleted).isZero());
+    }
+
+    @Test
+    void incrementMapOnlyTouchesChangedCounters() {
+        TaskCounts delta = TaskCounts.of(task("done", false)).minus(TaskCounts.of(task("in-progress", false)));
+
+        assertEquals(Set.of("inProgress", "done"), delta.toIncrementMap().keySet());
+        assertTrue(new TaskCounts().toIncrementMap().isEmpty());
+    }
+
+    @Test
+    void shardsSumThroughTheDocumentMap() {
+        TaskCounts shard = TaskCounts.of(task("todo", true)).plus(TaskCounts.of(task("done", false)));
+
+        TaskCounts copy = new TaskCounts(shard.toMap()).plus(new TaskCounts(shard.toMap()));
+
+        assertEquals(4, copy.getTotal());
+        assertEquals(2, copy.getTodo());
+        assertEquals(2, copy.getDone());
+        assertEquals(2, copy.getOverdueCandidates());
+    }
+}
@@ -0,0 +1,80 @@
+package com.productivity.repository;
+
+import com.productivity.repository.OtpStore.CheckResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryOtpStoreTest {
+
+    private static final String EMAIL = "user@example.com";
+
+    private final InMemoryOtpStore store = new InMemoryOtpStore();
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    void matchingCodeIsConsumedOnFirstUse() {
+        store.save(EMAIL, "123456", Duration.ofMinutes(5));
+
+        assertEquals(CheckResult.MATCH, store.check(EMAIL, "123456", 5));
+        assertEquals(CheckResult.ABSENT, store.check(EMAIL, "123456", 5));
+    }
+
+    @Test
+    void wrongGuessesAreCountedUntilTheCodeIsDiscarded() {
+        store.save(EMAIL, "123456", Duration.ofMinutes(5));
+
+        assertEquals(CheckResult.MISMATCH, store.check(EMAIL, "000000", 3));
+        assertEquals(CheckResult.MISMATCH, store.check(EMAIL, "111111", 3));
+        assertEquals(CheckResult.ATTEMPTS_EXHAUSTED, store.check(EMAIL, "222222", 3));
+        // The right code no longer helps once the attempts are used up
+        assertEquals(CheckResult.ABSENT, store.check(EMAIL, "123456", 3));
+    }
+
+    @Test
+    void codeExpiresAfterItsTtl() throws InterruptedException {
+        store.save(EMAIL, "123456", Duration.ofMillis(50));
+
+        Thread.sleep(150);
+
+        assertEquals(CheckResult.ABSENT, store.check(EMAIL, "123456", 5));
+    }
+
+    @Test
+    void savingReplacesTheEarlierCodeAndItsAttempts() throws InterruptedException {
+        store.save(EMAIL, "123456", Duration.ofMillis(100));
+        assertEquals(CheckResult.MISMATCH, store.check(EMAIL, "000000", 2));
+
+        store.save(EMAIL, "654321", Duration.ofMinutes(5));
+        // The earlier code's scheduled removal must not take the new code with it
+        Thread.sleep(200);
+
+        assertEquals(CheckResult.MISMATCH, store.check(EMAIL, "123456", 2));
+        assertEquals(CheckResult.ATTEMPTS_EXHAUSTED, store.check(EMAIL, "000000", 2));
+    }
+
+    @Test
+    void replacedCodeCanBeUsed() {
+        store.save(EMAIL, "123456", Duration.ofMinutes(5));
+        store.save(EMAIL, "654321", Duration.ofMinutes(5));
+
+        assertEquals(CheckResult.MISMATCH, store.check(EMAIL, "123456", 5));
+        assertEquals(CheckResult.MATCH, store.check(EMAIL, "654321", 5));
+    }
+
+    @Test
+    void unknownEmailOrMissingCodeIsAbsent() {
+        store.save(EMAIL, "123456", Duration.ofMinutes(5));
+
+        assertEquals(CheckResult.ABSENT, store.check("other@example.com", "123456", 5));
+        assertEquals(CheckResult.ABSENT, store.check(EMAIL, null, 5));
+        assertEquals(CheckResult.MATCH, store.check(EMAIL, "123456", 5));
+    }
+}
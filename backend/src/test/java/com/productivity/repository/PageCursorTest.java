@@ -0,0 +1,77 @@
+package com.productivity.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PageCursorTest {
+
+    private static PageCursor roundTrip(String sortField, Object value) {
+        DocumentSnapshot doc = mock(DocumentSnapshot.class);
+        when(doc.getId()).thenReturn("task-1");
+        when(doc.get(sortField)).thenReturn(value);
+        String token = PageCursor.of(doc, sortField, "desc").encode();
+        return PageCursor.decode(token, sortField, "DESC");
+    }
+
+    private static String token(String payload) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void nullValueRoundTrips() {
+        PageCursor cursor = roundTrip("deadline", null);
+
+        assertNull(cursor.getValue());
+        assertEquals("deadline", cursor.getSortField());
+        assertEquals("task-1", cursor.getDocumentId());
+    }
+
+    @Test
+    void supportedValueTypesRoundTrip() {
+        Timestamp timestamp = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 123_000_000);
+
+        assertEquals(timestamp, roundTrip("createdAt", timestamp).getValue());
+        assertEquals("line one\nline two: s:", roundTrip("title", "line one\nline two: s:").getValue());
+        assertEquals("", roundTrip("title", "").getValue());
+        assertEquals(3L, roundTrip("priority", 3L).getValue());
+        assertEquals(3L, roundTrip("priority", 3).getValue());
+        assertEquals(2.5, roundTrip("priority", 2.5).getValue());
+        assertEquals(true, roundTrip("status", true).getValue());
+    }
+
+    @Test
+    void unsupportedValueTypeIsAServerError() {
+        assertThrows(IllegalStateException.class, () -> roundTrip("title", List.of("a")));
+    }
+
+    @Test
+    void cursorForAnotherSortIsRejected() {
+        DocumentSnapshot doc = mock(DocumentSnapshot.class);
+        when(doc.getId()).thenReturn("task-1");
+        when(doc.get("title")).thenReturn("a");
+        String token = PageCursor.of(doc, "title", "asc").encode();
+
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token, "deadline", "asc"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token, "title", "desc"));
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        for (String token : new String[] {"%%%", token("title\nasc\ntask-1"), token("title\nasc\ntask-1\nx"),
+                token("title\nasc\ntask-1\nq:1"), token("title\nasc\ntask-1\nl:abc"),
+                token("title\nasc\ntask-1\nt:12")}) {
+            assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token, "title", "asc"), token);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.productivity.repository;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.productivity.repository.OtpStore.CheckResult;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the store's Lua scripts against an in-process Redis-protocol server.
+ */
+class RedisOtpStoreTest {
+
+    private static final String EMAIL = "user@example.com";
+    private static final String KEY = "otp:" + EMAIL;
+
+    private static RedisServer server;
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redis;
+    private RedisOtpStore store;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = RedisServer.newRedisServer();
+        server.start();
+    }
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        server.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
+                .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                .build();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()), clientConfig);
+        connectionFactory.afterPropertiesSet();
+        redis = new StringRedisTemplate(connectionFactory);
+        redis.delete(KEY);
+        store = new RedisOtpStore(redis);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void saveStoresTheCodeWithAFreshAttemptCountAndTtl() {
+        redis.opsForHash().put(KEY, "stale", "1");
+
+        store.save(EMAIL, "123456", Duration.ofMinutes(5));
+
+        Map<Object, Object> stored = redis.opsForHash().entries(KEY);
+        assertEquals(Map.of("code", "123456", "attempts", "0"), stored);
+        long ttl = redis.getExpire(KEY, TimeUnit.MILLISECONDS);
+        assertTrue(ttl > 0 && ttl <= Duration.ofMinutes(5).toMillis(), "ttl " + ttl);
+    }
+
+    @Test
+    void matchingCodeIsConsumedOnFirstUse() {
+        store.save(EMAIL, "123456", Duration.ofMinutes(5));
+
+        assertEquals(CheckResult.MATCH, store.check(EMAIL, "123456", 5));
+        assertFalse(Boolean.TRUE.equals(redis.hasKey(KEY)));
+        assertEquals(CheckResult.ABSENT, store.check(EMAIL, "123456", 5));
+    }
+
+    @Test
+    void wrongGuessesAreCountedUntilTheCodeIsDiscarded() {
+        store.save(EMAIL, "123456", Duration.ofMinutes(5));
+
+        assertEquals(CheckResult.MISMATCH, store.check(EMAIL, "000000", 3));
+        assertEquals("1", redis.opsForHash().get(KEY, "attempts"));
+        assertEquals(CheckResult.MISMATCH, store.check(EMAIL, "111111", 3));
+        assertEquals(CheckResult.ATTEMPTS_EXHAUSTED, store.check(EMAIL, "222222", 3));
+        assertEquals(CheckResult.ABSENT, store.check(EMAIL, "123456", 3));
+    }
+
+    @Test
+    void savingResetsTheAttemptCount() {
+        store.save(EMAIL, "123456", Duration.ofMinutes(5));
+        assertEquals(CheckResult.MISMATCH, store.check(EMAIL, "000000", 2));
+
+        store.save(EMAIL, "654321", Duration.ofMinutes(5));
+
+        assertEquals(CheckResult.MISMATCH, store.check(EMAIL, "123456", 2));
+        assertEquals(CheckResult.ATTEMPTS_EXHAUSTED, store.check(EMAIL, "000000", 2));
+    }
+
+    @Test
+    void codeExpiresAfterItsTtl() throws InterruptedException {
+        store.save(EMAIL, "123456", Duration.ofMillis(100));
+
+        Thread.sleep(300);
+
+        assertEquals(CheckResult.ABSENT, store.check(EMAIL, "123456", 5));
+    }
+
+    @Test
+    void unknownEmailOrMissingCodeIsAbsent() {
+        assertEquals(CheckResult.ABSENT, store.check(EMAIL, "123456", 5));
+        assertEquals(CheckResult.ABSENT, store.check(EMAIL, null, 5));
+    }
+}
@@ -0,0 +1,166 @@
+package com.productivity.repository;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.AggregateQuery;
+import com.google.cloud.firestore.AggregateQuerySnapshot;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.Transaction;
+import com.productivity.config.AppProperties;
+import com.productivity.model.TaskCounts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskCounterRepositoryTest {
+
+    private final Firestore firestore = mock(Firestore.class);
+    private final CollectionReference counters = mock(CollectionReference.class);
+    private final CollectionReference tasks = mock(CollectionReference.class);
+    private final Transaction transaction = mock(Transaction.class);
+    private TaskCounterRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        CollectionReference users = mock(CollectionReference.class);
+        DocumentReference user = mock(DocumentReference.class);
+        when(firestore.collection("users")).thenReturn(users);
+        when(users.document("user-1")).thenReturn(user);
+        when(user.collection("taskCounters")).thenReturn(counters);
+        when(user.collection("tasks")).thenReturn(tasks);
+        when(firestore.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<?> function = invocation.getArgument(0);
+            return ApiFutures.immediateFuture(function.updateCallback(transaction));
+        });
+
+        AppProperties appProperties = new AppProperties();
+        appProperties.getTaskCounters().setShards(2);
+        repository = new TaskCounterRepository(firestore, appProperties);
+    }
+
+    private static QueryDocumentSnapshot shard(String id, boolean seeded, TaskCounts counts) {
+        QueryDocumentSnapshot doc = mock(QueryDocumentSnapshot.class);
+        when(doc.getId()).thenReturn(id);
+        when(doc.getBoolean("seeded")).thenReturn(seeded ? Boolean.TRUE : null);
+        when(doc.getData()).thenReturn(counts.toMap());
+        when(doc.getReference()).thenReturn(mock(DocumentReference.class));
+        return doc;
+    }
+
+    private static QuerySnapshot snapshot(QueryDocumentSnapshot... docs) {
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocuments()).thenReturn(List.of(docs));
+        return snapshot;
+    }
+
+    private void givenCount(Query query, long count) {
+        AggregateQuery aggregate = mock(AggregateQuery.class);
+        AggregateQuerySnapshot result = mock(AggregateQuerySnapshot.class);
+        when(query.count()).thenReturn(aggregate);
+        when(result.getCount()).thenReturn(count);
+        when(transaction.get(aggregate)).thenReturn(ApiFutures.immediateFuture(result));
+    }
+
+    private static TaskCounts counts(long total, long todo, long done) {
+        TaskCounts counts = new TaskCounts();
+        counts.setTotal(total);
+        counts.setTodo(todo);
+        counts.setDone(done);
+        return counts;
+    }
+
+    @Test
+    void seededShardsAreSummedWithoutATransaction() throws Exception {
+        QuerySnapshot shards = snapshot(shard("0", true, counts(3, 2, 1)), shard("1", false, counts(-1, -1, 0)));
+        when(counters.get()).thenReturn(ApiFutures.immediateFuture(shards));
+
+        TaskCounts total = repository.getCountsAsync("user-1").get();
+
+        assertEquals(2, total.getTotal());
+        assertEquals(1, total.getTodo());
+        assertEquals(1, total.getDone());
+        verify(firestore, never()).runTransaction(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unseededUserIsCountedOnceAndTheShardsOverwritten() throws Exception {
+        // Increments arrived before the first read, and a stray document sits among the shards
+        QueryDocumentSnapshot early = shard("1", false, counts(1, 1, 0));
+        QueryDocumentSnapshot stray = shard("legacy", false, new TaskCounts());
+        QuerySnapshot shards = snapshot(early, stray);
+        DocumentReference earlyRef = early.getReference();
+        DocumentReference strayRef = stray.getReference();
+        when(counters.get()).thenReturn(ApiFutures.immediateFuture(shards));
+        when(transaction.get(counters)).thenReturn(ApiFutures.immediateFuture(shards));
+        DocumentReference shard0 = mock(DocumentReference.class);
+        DocumentReference shard1 = mock(DocumentReference.class);
+        when(counters.document("0")).thenReturn(shard0);
+        when(counters.document("1")).thenReturn(shard1);
+
+        Query todo = mock(Query.class);
+        Query inProgress = mock(Query.class);
+        Query done = mock(Query.class);
+        Query withDeadline = mock(Query.class);
+        Query doneWithDeadline = mock(Query.class);
+        when(tasks.whereEqualTo("status", "todo")).thenReturn(todo);
+        when(tasks.whereEqualTo("status", "in-progress")).thenReturn(inProgress);
+        when(tasks.whereEqualTo("status", "done")).thenReturn(done);
+        when(tasks.whereGreaterThanOrEqualTo("deadline", Timestamp.MIN_VALUE)).thenReturn(withDeadline);
+        when(done.whereGreaterThanOrEqualTo("deadline", Timestamp.MIN_VALUE)).thenReturn(doneWithDeadline);
+        givenCount(tasks, 5);
+        givenCount(todo, 2);
+        givenCount(inProgress, 1);
+        givenCount(done, 2);
+        givenCount(withDeadline, 3);
+        givenCount(doneWithDeadline, 1);
+
+        TaskCounts total = repository.getCountsAsync("user-1").get();
+
+        assertEquals(5, total.getTotal());
+        assertEquals(2, total.getTodo());
+        assertEquals(1, total.getInProgress());
+        assertEquals(2, total.getDone());
+        assertEquals(2, total.getOverdueCandidates());
+
+        ArgumentCaptor<Map<String, Object>> first = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<Map<String, Object>> second = ArgumentCaptor.forClass(Map.class);
+        verify(transaction).set(eq(shard0), first.capture());
+        verify(transaction).set(eq(shard1), second.capture());
+        assertEquals(Boolean.TRUE, first.getValue().get("seeded"));
+        assertEquals(5L, first.getValue().get("total"));
+        assertEquals(0L, second.getValue().get("total"));
+        verify(transaction).delete(strayRef);
+        verify(transaction, never()).delete(earlyRef);
+    }
+
+    @Test
+    void seedFoundAlreadyWrittenByAnotherRequestIsReused() throws Exception {
+        QuerySnapshot unseeded = snapshot(shard("0", false, counts(1, 1, 0)));
+        QuerySnapshot seeded = snapshot(shard("0", true, counts(4, 3, 1)));
+        when(counters.get()).thenReturn(ApiFutures.immediateFuture(unseeded));
+        when(transaction.get(counters)).thenReturn(ApiFutures.immediateFuture(seeded));
+
+        TaskCounts total = repository.getCountsAsync("user-1").get();
+
+        assertEquals(4, total.getTotal());
+        verify(transaction, never()).set(any(DocumentReference.class), anyMap());
+    }
+}
@@ -0,0 +1,122 @@
+package com.productivity.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthRateLimiterSlidingWindowTest {
+
+    private static final long WINDOW = 1000;
+
+    private static int accepted(AuthRateLimiter.SlidingWindow window, long now, int limit, int attempts) {
+        int accepted = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (window.tryAcquire(now, limit) > 0) accepted++;
+        }
+        return accepted;
+    }
+
+    @Test
+    void acceptsUpToTheLimitWithinOneWindow() {
+        AuthRateLimiter.SlidingWindow window = new AuthRateLimiter.SlidingWindow(WINDOW);
+
+        assertEquals(1, window.tryAcquire(0, 3));
+        assertEquals(2, window.tryAcquire(100, 3));
+        assertEquals(3, window.tryAcquire(999, 3));
+        assertEquals(-1, window.tryAcquire(999, 3));
+    }
+
+    @Test
+    void previousWindowCountsInFullAtTheBoundary() {
+        AuthRateLimiter.SlidingWindow window = new AuthRateLimiter.SlidingWindow(WINDOW);
+        assertEquals(3, accepted(window, 999, 3, 3));
+
+        // At the first instant of the next window the previous one still overlaps completely
+        assertEquals(-1, window.tryAcquire(1000, 3));
+    }
+
+    @Test
+    void previousWindowIsWeightedByItsRemainingOverlap() {
+        AuthRateLimiter.SlidingWindow window = new AuthRateLimiter.SlidingWindow(WINDOW);
+        assertEquals(3, accepted(window, 0, 3, 3));
+
+        // Halfway through: 3 * 0.5 + 1 = 2.5, reported rounded up
+        assertEquals(3, window.tryAcquire(1500, 3));
+        assertEquals(-1, window.tryAcquire(1500, 3));
+    }
+
+    @Test
+    void previousWindowHasAlmostNoWeightAtTheEndOfTheNext() {
+        AuthRateLimiter.SlidingWindow window = new AuthRateLimiter.SlidingWindow(WINDOW);
+        assertEquals(3, accepted(window, 0, 3, 3));
+
+        // 3 * 0.001 leaves room for two attempts, not three
+        assertEquals(2, accepted(window, 1999, 3, 5));
+    }
+
+    @Test
+    void windowsOlderThanThePreviousOneAreForgotten() {
+        AuthRateLimiter.SlidingWindow window = new AuthRateLimiter.SlidingWindow(WINDOW);
+        assertEquals(3, accepted(window, 999, 3, 5));
+
+        assertEquals(3, accepted(window, 2000, 3, 5));
+        assertEquals(3, accepted(window, 10_500, 3, 5));
+    }
+
+    @Test
+    void rejectedAttemptsAreNotCounted() {
+        AuthRateLimiter.SlidingWindow window = new AuthRateLimiter.SlidingWindow(WINDOW);
+        assertEquals(2, accepted(window, 0, 2, 10));
+
+        // Only the two accepted attempts carry over: 2 * 0.5 + 1 = 2
+        assertEquals(2, window.tryAcquire(1500, 2));
+    }
+
+    @Test
+    void countSaturatesWithoutCorruptingTheWindowIndex() {
+        AuthRateLimiter.SlidingWindow window = new AuthRateLimiter.SlidingWindow(WINDOW);
+        for (int i = 0; i < 70_000; i++) {
+            assertTrue(window.tryAcquire(0, Integer.MAX_VALUE) > 0);
+        }
+        assertEquals(0xFFFF + 1, window.tryAcquire(0, Integer.MAX_VALUE));
+
+        // The saturated count rolls over into the previous-window slot intact
+        assertEquals(0xFFFF + 1, window.tryAcquire(1000, Integer.MAX_VALUE));
+        assertEquals(-1, window.tryAcquire(1000, 0xFFFF));
+    }
+
+    @Test
+    void concurrentAttemptsNeverExceedTheLimit() throws Exception {
+        AuthRateLimiter.SlidingWindow window = new AuthRateLimiter.SlidingWindow(WINDOW);
+        int threads = 8;
+        int limit = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return accepted(window, 500, limit, 50);
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(limit, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.productivity.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.productivity.dto.HabitDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FieldSelectionTest {
+
+    private static final Set<String> ALLOWED = Set.of("id", "name", "frequency", "currentStreak");
+
+    @Test
+    void missingOrEmptyListSelectsEverything() {
+        assertSame(FieldSelection.ALL, FieldSelection.parse(null, ALLOWED));
+        assertSame(FieldSelection.ALL, FieldSelection.parse("  ", ALLOWED));
+        assertSame(FieldSelection.ALL, FieldSelection.parse(" , ,", ALLOWED));
+
+        assertTrue(FieldSelection.ALL.isAll());
+        assertTrue(FieldSelection.ALL.includes("anything"));
+        assertNull(FieldSelection.ALL.propertyNames());
+        assertNull(FieldSelection.ALL.toProjection("createdAt"));
+    }
+
+    @Test
+    void namesAreTrimmedAndDeduplicatedInOrder() {
+        FieldSelection selection = FieldSelection.parse(" name,currentStreak ,,name", ALLOWED);
+
+        assertFalse(selection.isAll());
+        assertTrue(selection.includes("name"));
+        assertTrue(selection.includes("currentStreak"));
+        assertFalse(selection.includes("frequency"));
+        assertEquals(List.of("name", "currentStreak", "id"), List.copyOf(selection.propertyNames()));
+    }
+
+    @Test
+    void unknownFieldIsRejected() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> FieldSelection.parse("name,password", ALLOWED));
+
+        assertEquals("Unknown field: password", error.getMessage());
+    }
+
+    @Test
+    void projectionDropsTheDocumentIdAndAddsRequiredFields() {
+        FieldSelection selection = FieldSelection.parse("id,name", ALLOWED);
+
+        assertArrayEquals(new String[] {"name"}, selection.toProjection());
+        assertArrayEquals(new String[] {"name", "createdAt"}, selection.toProjection("createdAt"));
+    }
+
+    @Test
+    void responseIsNarrowedToTheSelectedPropertiesAndId() throws Exception {
+        HabitDTO habit = new HabitDTO();
+        habit.setId("habit-1");
+        habit.setName("Read");
+        habit.setFrequency("daily");
+        habit.setCurrentStreak(3);
+        FieldSelection selection = FieldSelection.parse("name", ALLOWED);
+
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setFilterProvider(new SimpleFilterProvider().addFilter(FieldSelection.FILTER_ID,
+                SimpleBeanPropertyFilter.filterOutAllExcept(selection.propertyNames())));
+        JsonNode json = mapper.readTree(mapper.writeValueAsString(habit));
+
+        assertEquals(Set.of("id", "name"), Set.copyOf(fieldNames(json)));
+        assertEquals("Read", json.get("name").asText());
+    }
+
+    private static List<String> fieldNames(JsonNode json) {
+        List<String> names = new ArrayList<>();
+        json.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,129 @@
+package com.productivity.service;
+
+import com.productivity.config.AppProperties;
+import com.productivity.dto.HabitCorrelationDTO;
+import com.productivity.model.Habit;
+import com.productivity.model.HabitHistory;
+import com.productivity.repository.HabitLogRepository;
+import com.productivity.repository.HabitRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HabitCorrelationServiceTest {
+
+    private static final int DAYS = 10;
+
+    private final HabitRepository habitRepository = mock(HabitRepository.class);
+    private final HabitLogRepository habitLogRepository = mock(HabitLogRepository.class);
+    private final HabitCorrelationService service = new HabitCorrelationService(habitRepository, habitLogRepository,
+            new AppProperties(), new SimpleMeterRegistry());
+
+    private final LocalDate today = LocalDate.now();
+    private final LocalDate from = today.minusDays(DAYS - 1);
+
+    @BeforeEach
+    void setUp() {
+        // a: days 0-4, b: days 0-2 and 8, c: days 5-9, d: never
+        Map<String, HabitHistory> histories = Map.of(
+                "a", history(0, 1, 2, 3, 4),
+                "b", history(0, 1, 2, 8),
+                "c", history(5, 6, 7, 8, 9));
+        when(habitRepository.findAllAsync(eq("user-1"), any()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(habit("a"), habit("b"), habit("c"), habit("d"))));
+        when(habitLogRepository.findAllHistoriesAsync("user-1", from, today))
+                .thenReturn(CompletableFuture.completedFuture(histories));
+    }
+
+    private HabitHistory history(int... dayOffsets) {
+        HabitHistory history = new HabitHistory(from, today);
+        for (int offset : dayOffsets) {
+            history.set(from.toEpochDay() + offset);
+        }
+        return history;
+    }
+
+    private static Habit habit(String id) {
+        Habit habit = new Habit();
+        habit.setId(id);
+        habit.setName("Habit " + id);
+        return habit;
+    }
+
+    @Test
+    void ratesCountEachHabitsCompletedDays() throws Exception {
+        HabitCorrelationDTO result = service.getCorrelations("user-1", DAYS).get();
+
+        assertEquals(DAYS, result.getDays());
+        assertEquals(from.toString(), result.getStartDate());
+        assertEquals(today.toString(), result.getEndDate());
+        List<HabitCorrelationDTO.HabitRateDTO> rates = result.getHabits();
+        assertEquals(List.of(5, 4, 5, 0), rates.stream().map(HabitCorrelationDTO.HabitRateDTO::getCompleted).toList());
+        assertEquals(0.5, rates.get(0).getProbability());
+        assertEquals(0.4, rates.get(1).getProbability());
+        assertEquals(0.0, rates.get(3).getProbability());
+    }
+
+    @Test
+    void pairsCarryLiftAndConditionalProbabilitiesSortedByLift() throws Exception {
+        List<HabitCorrelationDTO.HabitPairDTO> pairs = service.getCorrelations("user-1", DAYS).get().getPairs();
+
+        // The never-completed habit pairs with nothing
+        assertEquals(3, pairs.size());
+
+        HabitCorrelationDTO.HabitPairDTO ab = pairs.get(0);
+        assertEquals("a", ab.getHabitA());
+        assertEquals("b", ab.getHabitB());
+        assertEquals(3, ab.getTogether());
+        assertEquals(1.5, ab.getLift());         // 3 * 10 / (5 * 4)
+        assertEquals(0.6, ab.getProbBGivenA());  // 3 / 5
+        assertEquals(0.75, ab.getProbAGivenB()); // 3 / 4
+
+        HabitCorrelationDTO.HabitPairDTO bc = pairs.get(1);
+        assertEquals("b", bc.getHabitA());
+        assertEquals("c", bc.getHabitB());
+        assertEquals(1, bc.getTogether());
+        assertEquals(0.5, bc.getLift());
+        assertEquals(0.25, bc.getProbBGivenA());
+        assertEquals(0.2, bc.getProbAGivenB());
+
+        HabitCorrelationDTO.HabitPairDTO ac = pairs.get(2);
+        assertEquals("a", ac.getHabitA());
+        assertEquals("c", ac.getHabitB());
+        assertEquals(0, ac.getTogether());
+        assertEquals(0.0, ac.getLift());
+    }
+
+    @Test
+    void resultIsCachedUntilInvalidated() throws Exception {
+        HabitCorrelationDTO first = service.getCorrelations("user-1", DAYS).get();
+        assertSame(first, service.getCorrelations("user-1", DAYS).get());
+        verify(habitLogRepository, times(1)).findAllHistoriesAsync("user-1", from, today);
+
+        service.invalidate("user-1");
+        service.getCorrelations("user-1", DAYS).get();
+        verify(habitLogRepository, times(2)).findAllHistoriesAsync("user-1", from, today);
+    }
+
+    @Test
+    void windowOutsideTheLimitsIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.getCorrelations("user-1", 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getCorrelations("user-1", HabitCorrelationService.MAX_DAYS + 1));
+    }
+}
@@ -0,0 +1,114 @@
+package com.productivity.service;
+
+import com.productivity.config.AppProperties;
+import com.productivity.model.HabitLog;
+import com.productivity.repository.HabitLogRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HabitProgressCoalescerTest {
+
+    private static final String DATE = "2024-05-01";
+
+    private final HabitLogRepository repository = mock(HabitLogRepository.class);
+    private HabitProgressCoalescer coalescer;
+
+    private HabitProgressCoalescer coalescer(long windowMillis) {
+        AppProperties appProperties = new AppProperties();
+        appProperties.getHabitLogs().setProgressCoalesceMillis(windowMillis);
+        when(repository.incrementProgressAsync(anyString(), anyString(), anyString(), anyLong()))
+                .thenAnswer(invocation -> {
+                    HabitLog log = new HabitLog();
+                    log.setDate(invocation.getArgument(2));
+                    log.setValue(invocation.<Long>getArgument(3));
+                    return CompletableFuture.completedFuture(log);
+                });
+        coalescer = new HabitProgressCoalescer(repository, appProperties);
+        return coalescer;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) coalescer.shutdown();
+    }
+
+    @Test
+    void incrementsWithinAWindowAreWrittenOnce() throws Exception {
+        HabitProgressCoalescer coalescer = coalescer(100);
+
+        CompletableFuture<HabitProgressCoalescer.Increment> first = coalescer.add("user-1", "habit-1", DATE, 1);
+        CompletableFuture<HabitProgressCoalescer.Increment> second = coalescer.add("user-1", "habit-1", DATE, 2);
+        CompletableFuture<HabitProgressCoalescer.Increment> third = coalescer.add("user-1", "habit-1", DATE, -1);
+
+        HabitProgressCoalescer.Increment result = first.get(5, TimeUnit.SECONDS);
+        assertSame(result, second.get(5, TimeUnit.SECONDS));
+        assertSame(result, third.get(5, TimeUnit.SECONDS));
+        assertEquals(2, result.getDelta());
+        assertEquals(0, result.previousValue());
+        verify(repository, times(1)).incrementProgressAsync("user-1", "habit-1", DATE, 2);
+    }
+
+    @Test
+    void differentDaysAndHabitsAreWrittenSeparately() throws Exception {
+        HabitProgressCoalescer coalescer = coalescer(100);
+
+        CompletableFuture<HabitProgressCoalescer.Increment> a = coalescer.add("user-1", "habit-1", DATE, 1);
+        CompletableFuture<HabitProgressCoalescer.Increment> b = coalescer.add("user-1", "habit-2", DATE, 2);
+        CompletableFuture<HabitProgressCoalescer.Increment> c = coalescer.add("user-1", "habit-1", "2024-05-02", 3);
+
+        assertEquals(1, a.get(5, TimeUnit.SECONDS).getDelta());
+        assertEquals(2, b.get(5, TimeUnit.SECONDS).getDelta());
+        assertEquals(3, c.get(5, TimeUnit.SECONDS).getDelta());
+        verify(repository, times(3)).incrementProgressAsync(anyString(), anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void laterIncrementOpensANewWindow() throws Exception {
+        HabitProgressCoalescer coalescer = coalescer(50);
+
+        coalescer.add("user-1", "habit-1", DATE, 1).get(5, TimeUnit.SECONDS);
+        coalescer.add("user-1", "habit-1", DATE, 1).get(5, TimeUnit.SECONDS);
+
+        verify(repository, times(2)).incrementProgressAsync("user-1", "habit-1", DATE, 1);
+    }
+
+    @Test
+    void shutdownFlushesOpenWindowsExactlyOnce() throws Exception {
+        HabitProgressCoalescer coalescer = coalescer(60_000);
+        CompletableFuture<HabitProgressCoalescer.Increment> pending = coalescer.add("user-1", "habit-1", DATE, 4);
+        verify(repository, never()).incrementProgressAsync(anyString(), anyString(), anyString(), anyLong());
+
+        coalescer.shutdown();
+        coalescer.shutdown();
+
+        assertEquals(4, pending.get(5, TimeUnit.SECONDS).getDelta());
+        verify(repository, times(1)).incrementProgressAsync("user-1", "habit-1", DATE, 4);
+    }
+
+    @Test
+    void incrementsAfterShutdownAreWrittenDirectly() throws Exception {
+        HabitProgressCoalescer coalescer = coalescer(60_000);
+        coalescer.shutdown();
+
+        CompletableFuture<HabitProgressCoalescer.Increment> late = coalescer.add("user-1", "habit-1", DATE, 2);
+
+        assertTrue(late.isDone());
+        assertEquals(2, late.get().getDelta());
+        verify(repository, times(1)).incrementProgressAsync(eq("user-1"), eq("habit-1"), eq(DATE), eq(2L));
+    }
+}
@@ -0,0 +1,62 @@
+package com.productivity.service;
+
+import com.productivity.config.AppProperties;
+import com.productivity.exception.ServiceUnavailableException;
+import com.productivity.repository.HabitLogRepository;
+import com.productivity.repository.HabitRepository;
+import com.productivity.repository.HabitStatsRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HabitServiceDashboardTest {
+
+    private final HabitRepository habitRepository = mock(HabitRepository.class);
+    private final HabitLogRepository habitLogRepository = mock(HabitLogRepository.class);
+
+    private HabitService habitService(long migrationWaitMillis) {
+        AppProperties appProperties = new AppProperties();
+        appProperties.getDashboard().setMigrationWaitMillis(migrationWaitMillis);
+        return new HabitService(habitRepository, habitLogRepository, mock(HabitStatsRepository.class),
+                mock(HabitIntelligenceEngine.class), mock(HabitProgressCoalescer.class),
+                mock(HabitCorrelationService.class), mock(IntelligenceSnapshotService.class), appProperties);
+    }
+
+    @Test
+    void slowMigrationAnswersRetryAfterAndKeepsRunning() {
+        CompletableFuture<Void> migration = new CompletableFuture<>();
+        when(habitLogRepository.ensureMigratedAsync("user-1")).thenReturn(migration);
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> habitService(50).getDashboard("user-1").get(5, TimeUnit.SECONDS));
+
+        ServiceUnavailableException unavailable = assertInstanceOf(ServiceUnavailableException.class, error.getCause());
+        assertEquals(5, unavailable.getRetryAfterSeconds());
+        assertFalse(migration.isDone(), "the migration is not cancelled by the wait");
+        verify(habitRepository, never()).findAllAsync(anyString(), any());
+    }
+
+    @Test
+    void failedMigrationIsReportedAsIs() {
+        when(habitLogRepository.ensureMigratedAsync("user-1"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("unavailable")));
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> habitService(1000).getDashboard("user-1").get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+}
@@ -0,0 +1,104 @@
+package com.productivity.service;
+
+import com.productivity.config.AppProperties;
+import com.productivity.dto.HabitProgressDTO;
+import com.productivity.model.Habit;
+import com.productivity.model.HabitLog;
+import com.productivity.repository.HabitLogRepository;
+import com.productivity.repository.HabitRepository;
+import com.productivity.repository.HabitStatsRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HabitServiceProgressTest {
+
+    private final HabitRepository habitRepository = mock(HabitRepository.class);
+    private final HabitLogRepository habitLogRepository = mock(HabitLogRepository.class);
+    private final HabitProgressCoalescer progressCoalescer = mock(HabitProgressCoalescer.class);
+    private final HabitService habitService = new HabitService(habitRepository, habitLogRepository,
+            mock(HabitStatsRepository.class), mock(HabitIntelligenceEngine.class), progressCoalescer,
+            mock(HabitCorrelationService.class), mock(IntelligenceSnapshotService.class), new AppProperties());
+
+    private void givenIncrement(boolean completed, long value, long delta) {
+        Habit habit = new Habit();
+        habit.setId("habit-1");
+        habit.setGoalType("count");
+        habit.setGoalValue(5);
+        when(habitRepository.findByIdAsync("user-1", "habit-1")).thenReturn(CompletableFuture.completedFuture(Optional.of(habit)));
+
+        HabitLog log = new HabitLog();
+        log.setDate(LocalDate.now().toString());
+        log.setCompleted(completed);
+        log.setValue(value);
+        when(progressCoalescer.add(anyString(), anyString(), anyString(), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(new HabitProgressCoalescer.Increment(log, delta)));
+    }
+
+    @Test
+    void tapBelowTheGoalKeepsAManuallyCompletedDay() throws Exception {
+        givenIncrement(true, 1, 1);
+
+        HabitProgressDTO progress = habitService.addProgress("user-1", "habit-1", null, 1).get();
+
+        assertTrue(progress.isCompleted());
+        assertEquals(1, progress.getValue());
+        assertNull(progress.getHabit());
+        verify(habitRepository, never()).updateInTransactionAsync(anyString(), anyString(), any());
+        verify(habitLogRepository, never()).ensureMigratedAsync(anyString());
+    }
+
+    @Test
+    void negativeTapWithinAManuallyCompletedDayKeepsIt() throws Exception {
+        givenIncrement(true, 2, -1);
+
+        HabitProgressDTO progress = habitService.addProgress("user-1", "habit-1", null, -1).get();
+
+        assertTrue(progress.isCompleted());
+        verify(habitLogRepository, never()).ensureMigratedAsync(anyString());
+    }
+
+    @Test
+    void progressCompletesOnlyWhenItCrossesTheGoalUpwards() {
+        assertEquals(Boolean.TRUE, HabitService.completionAfterProgress(false, 4, 5, 5));
+        assertEquals(Boolean.TRUE, HabitService.completionAfterProgress(false, 0, 9, 5));
+        assertNull(HabitService.completionAfterProgress(false, 3, 4, 5));
+        assertNull(HabitService.completionAfterProgress(true, 4, 5, 5));
+        // Already past the goal: a later tap does not re-complete a day the user uncompleted by hand
+        assertNull(HabitService.completionAfterProgress(false, 6, 7, 5));
+    }
+
+    @Test
+    void progressUncompletesOnlyWhenItDropsBackBelowTheGoal() {
+        assertEquals(Boolean.FALSE, HabitService.completionAfterProgress(true, 5, 4, 5));
+        assertEquals(Boolean.FALSE, HabitService.completionAfterProgress(true, 7, 0, 5));
+        assertNull(HabitService.completionAfterProgress(true, 0, 1, 5));
+        assertNull(HabitService.completionAfterProgress(true, 3, 2, 5));
+        assertNull(HabitService.completionAfterProgress(true, 7, 6, 5));
+        assertNull(HabitService.completionAfterProgress(false, 5, 4, 5));
+    }
+
+    @Test
+    void unchangedDayReportsItsStoredCompletion() throws Exception {
+        givenIncrement(false, 3, 1);
+
+        HabitProgressDTO progress = habitService.addProgress("user-1", "habit-1", null, 1).get();
+
+        assertFalse(progress.isCompleted());
+        assertEquals(5, progress.getGoalValue());
+    }
+}
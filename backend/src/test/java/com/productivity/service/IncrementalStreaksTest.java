@@ -0,0 +1,126 @@
+package com.productivity.service;
+
+import com.productivity.model.Habit;
+import com.productivity.model.HabitLog;
+import com.productivity.repository.HabitLogRepository;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.atMostOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Property check: after any sequence of single-day edits, the incrementally maintained streak fields and
+ * run-length counts equal a full replay of the resulting history, and only unseeded habits read it all.
+ */
+class IncrementalStreaksTest {
+
+    private static final int HISTORIES = 200;
+    private static final int EDITS_PER_HISTORY = 40;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"daily", "weekdays:mon,wed,fri", "weekdays:sat", "weekly", "weekly:3", "weekly:7"})
+    void incrementalUpdatesMatchFullReplay(String frequency) throws Exception {
+        Random random = new Random(frequency.hashCode());
+        for (int history = 0; history < HISTORIES; history++) {
+            LocalDate floor = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(30));
+            LocalDate today = floor.plusDays(20 + random.nextInt(100));
+            int span = (int) (today.toEpochDay() - floor.toEpochDay()) + 1;
+
+            TreeSet<LocalDate> completedDays = new TreeSet<>();
+            double density = random.nextDouble();
+            for (int i = 0; i < span; i++) {
+                if (random.nextDouble() < density) completedDays.add(floor.plusDays(i));
+            }
+            HabitLogRepository.LogSession logs = session(completedDays);
+            Habit habit = replay(frequency, completedDays);
+            boolean seeded = history % 2 == 0;
+            if (!seeded) {
+                habit.setRunLengths(null);
+            }
+
+            for (int edit = 0; edit < EDITS_PER_HISTORY; edit++) {
+                LocalDate day = floor.plusDays(random.nextInt(span));
+                boolean completed = random.nextBoolean();
+                boolean wasCompleted = completedDays.contains(day);
+
+                boolean changed = IncrementalStreaks.apply(habit, logs, day, completed, floor, today);
+
+                String step = frequency + ": " + (completed ? "complete " : "uncomplete ") + day
+                        + " (floor " + floor + ", today " + today + ")";
+                assertEquals(wasCompleted != completed, changed, step);
+                assertEquals(completed, completedDays.contains(day), step);
+                Habit expected = replay(frequency, completedDays);
+                if (habit.getRunLengths() == null) {
+                    // Counts are seeded by the first edit that changes something
+                    assertFalse(changed, step);
+                    expected.setRunLengths(null);
+                }
+                assertStreakFields(expected, habit, step);
+            }
+            // The whole history is read at most once, to seed the counts
+            verify(logs, seeded ? never() : atMostOnce()).loadRange(any(), any());
+        }
+    }
+
+    /**
+     * A log session over an in-memory set of completed days.
+     */
+    private static HabitLogRepository.LogSession session(TreeSet<LocalDate> completedDays) throws Exception {
+        HabitLogRepository.LogSession logs = mock(HabitLogRepository.LogSession.class);
+        when(logs.isCompleted(any())).thenAnswer(invocation -> completedDays.contains(invocation.<LocalDate>getArgument(0)));
+        doAnswer(invocation -> {
+            LocalDate day = invocation.getArgument(0);
+            if (invocation.<Boolean>getArgument(1)) {
+                completedDays.add(day);
+            } else {
+                completedDays.remove(day);
+            }
+            return null;
+        }).when(logs).set(any(), anyBoolean(), any());
+        when(logs.lastCompletedBefore(any(), any())).thenAnswer(invocation -> {
+            LocalDate previous = completedDays.lower(invocation.<LocalDate>getArgument(0));
+            LocalDate floor = invocation.getArgument(1);
+            return previous == null || previous.isBefore(floor) ? Optional.empty() : Optional.of(previous);
+        });
+        return logs;
+    }
+
+    private static Habit replay(String frequency, TreeSet<LocalDate> completedDays) {
+        Habit stored = new Habit();
+        stored.setId("habit-1");
+        stored.setFrequency(frequency);
+        List<HabitLog> logs = new ArrayList<>();
+        for (LocalDate day : completedDays) {
+            HabitLog log = new HabitLog();
+            log.setDate(day.toString());
+            log.setCompleted(true);
+            logs.add(log);
+        }
+        return StreakRecomputeJob.replay("user-1", stored, logs);
+    }
+
+    private static void assertStreakFields(Habit expected, Habit actual, String step) {
+        assertEquals(expected.getCurrentStreak(), actual.getCurrentStreak(), step + " currentStreak");
+        assertEquals(expected.getLongestStreak(), actual.getLongestStreak(), step + " longestStreak");
+        assertEquals(expected.getLastCompletedDate(), actual.getLastCompletedDate(), step + " lastCompletedDate");
+        assertEquals(expected.getPeriodStart(), actual.getPeriodStart(), step + " periodStart");
+        assertEquals(expected.getPeriodCompletions(), actual.getPeriodCompletions(), step + " periodCompletions");
+        assertEquals(expected.getRunLengths(), actual.getRunLengths(), step + " runLengths");
+    }
+}
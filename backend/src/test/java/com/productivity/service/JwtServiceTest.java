@@ -0,0 +1,139 @@
+package com.productivity.service;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "testsecretkeythatisdefinitelylongerthan256bits";
+    private static final String OTHER_SECRET = "anothersecretkeythatisalsolongerthan256bitsokay";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private JwtService service(String secret, long accessTokenExpiration) {
+        return new JwtService(secret, accessTokenExpiration, 604800000L, 100, meterRegistry);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "verified-jwts")
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
+    @Test
+    void repeatedParsesAreServedFromTheCache() {
+        JwtService jwtService = service(SECRET, 900000L);
+        String token = jwtService.generateAccessToken("uid-1", "USER");
+
+        assertEquals("uid-1", jwtService.extractUid(token));
+        assertEquals(0, cacheGets("hit"));
+        assertEquals(1, cacheGets("miss"));
+
+        assertEquals("USER", jwtService.extractRole(token));
+        assertTrue(jwtService.isTokenValid(token));
+        assertEquals(2, cacheGets("hit"));
+        assertEquals(1, cacheGets("miss"));
+    }
+
+    @Test
+    void cachedTokenIsRejectedOnceItExpires() throws InterruptedException {
+        // exp is serialized in whole seconds, so the token expires 1-2 seconds from now
+        JwtService jwtService = service(SECRET, 2000L);
+        String token = jwtService.generateAccessToken("uid-1", "USER");
+
+        Claims claims = jwtService.parse(token).orElseThrow();
+        long expiresAt = claims.getExpiration().getTime();
+
+        sleepUntil(expiresAt - 300);
+        assertTrue(jwtService.isTokenValid(token), "still valid shortly before exp");
+        assertTrue(cacheGets("hit") >= 1);
+
+        sleepUntil(expiresAt + 100);
+        assertFalse(jwtService.isTokenValid(token), "rejected after exp even though it was cached");
+    }
+
+    @Test
+    void tokenWithAlteredSignatureIsRejected() {
+        JwtService jwtService = service(SECRET, 900000L);
+        String token = jwtService.generateAccessToken("uid-1", "USER");
+        assertTrue(jwtService.isTokenValid(token));
+
+        int signatureStart = token.lastIndexOf('.') + 1;
+        int position = signatureStart + (token.length() - signatureStart) / 2;
+        char replacement = token.charAt(position) == 'A' ? 'B' : 'A';
+        String tampered = token.substring(0, position) + replacement + token.substring(position + 1);
+
+        assertFalse(jwtService.isTokenValid(tampered));
+        // The genuine token's cache entry must not vouch for the tampered one
+        assertFalse(jwtService.parse(tampered).isPresent());
+    }
+
+    @Test
+    void tokenWithAlteredClaimsIsRejected() {
+        JwtService jwtService = service(SECRET, 900000L);
+        String token = jwtService.generateAccessToken("uid-1", "USER");
+        assertTrue(jwtService.isTokenValid(token));
+
+        String[] parts = token.split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+        String forgedPayload = payload.replace("\"uid-1\"", "\"uid-2\"").replace("\"USER\"", "\"ADMIN\"");
+        String forged = parts[0] + "."
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(forgedPayload.getBytes(StandardCharsets.UTF_8))
+                + "." + parts[2];
+
+        assertFalse(jwtService.isTokenValid(forged));
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsRejected() {
+        JwtService jwtService = service(SECRET, 900000L);
+        String foreign = service(OTHER_SECRET, 900000L).generateAccessToken("uid-1", "ADMIN");
+
+        assertFalse(jwtService.isTokenValid(foreign));
+        assertFalse(jwtService.isTokenValid(foreign));
+        assertEquals(0, cacheGets("hit"));
+    }
+
+    @Test
+    void tokensCarryTheirType() {
+        JwtService jwtService = service(SECRET, 900000L);
+
+        Claims access = jwtService.parse(jwtService.generateAccessToken("uid-1", "USER")).orElseThrow();
+        Claims refresh = jwtService.parse(jwtService.generateRefreshToken("uid-1")).orElseThrow();
+        Claims reset = jwtService.parse(jwtService.generateResetToken("user@example.com")).orElseThrow();
+
+        assertTrue(JwtService.isType(access, JwtService.TYPE_ACCESS));
+        assertFalse(JwtService.isType(refresh, JwtService.TYPE_ACCESS));
+        assertTrue(JwtService.isType(refresh, JwtService.TYPE_REFRESH));
+        assertFalse(JwtService.isType(reset, JwtService.TYPE_ACCESS));
+        assertTrue(JwtService.isType(reset, JwtService.TYPE_RESET));
+        assertEquals(null, reset.get("role"));
+    }
+
+    @Test
+    void malformedOrMissingTokensAreRejected() {
+        JwtService jwtService = service(SECRET, 900000L);
+
+        assertFalse(jwtService.isTokenValid(null));
+        assertFalse(jwtService.isTokenValid(""));
+        assertFalse(jwtService.isTokenValid("not-a-jwt"));
+    }
+
+    private static void sleepUntil(long epochMillis) throws InterruptedException {
+        long remaining = epochMillis - System.currentTimeMillis();
+        if (remaining > 0) {
+            Thread.sleep(remaining);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.productivity.service;
+
+import com.productivity.config.AppProperties;
+import com.productivity.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordServiceTest {
+
+    private PasswordService passwordService;
+
+    private PasswordService passwordService(int cost, int threads, int queueCapacity) {
+        AppProperties appProperties = new AppProperties();
+        AppProperties.PasswordHashing config = appProperties.getPasswordHashing();
+        config.setMinCost(cost);
+        config.setMaxCost(cost);
+        config.setThreads(threads);
+        config.setQueueCapacity(queueCapacity);
+        passwordService = new PasswordService(appProperties);
+        return passwordService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (passwordService != null) passwordService.shutdown();
+    }
+
+    @Test
+    void hashesAndChecksPasswords() {
+        PasswordService service = passwordService(4, 1, 4);
+
+        String hash = service.hashPassword("secret");
+
+        assertTrue(service.checkPassword("secret", hash));
+        assertFalse(service.checkPassword("wrong", hash));
+        assertFalse(service.checkPassword(null, hash));
+        assertFalse(service.checkPassword("secret", service.unusableHash()));
+    }
+
+    @Test
+    void workBeyondTheQueueIsRejectedWithRetryAfter() {
+        // One hash runs on the only thread and one waits in the queue; the next has nowhere to go
+        PasswordService service = passwordService(13, 1, 1);
+        CompletableFuture<String> running = service.rehashAsync("first");
+        CompletableFuture<String> queued = service.rehashAsync("second");
+
+        assertTrue(service.rehashAsync("third").isCompletedExceptionally(), "background rehash is skipped, not thrown");
+        ServiceUnavailableException rejected = assertThrows(ServiceUnavailableException.class,
+                () -> service.hashPassword("secret"));
+        assertEquals(2, rejected.getRetryAfterSeconds());
+        assertFalse(running.isCompletedExceptionally());
+        assertFalse(queued.isCompletedExceptionally());
+    }
+
+    @Test
+    void hashesWithAnotherCostAreUpgradedOnceCalibrated() throws Exception {
+        PasswordService service = passwordService(4, 1, 4);
+        String legacy = new BCryptPasswordEncoder(10).encode("secret");
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!service.needsRehash(legacy) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(service.needsRehash(legacy), "calibration finished and picked cost 4");
+        assertFalse(service.needsRehash(service.unusableHash()));
+
+        String upgraded = service.rehashAsync("secret").get(5, TimeUnit.SECONDS);
+
+        assertEquals("04", upgraded.substring(4, 6));
+        assertFalse(service.needsRehash(upgraded));
+        assertTrue(service.checkPassword("secret", upgraded));
+    }
+}
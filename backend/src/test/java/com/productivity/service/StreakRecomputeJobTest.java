@@ -0,0 +1,158 @@
+package com.productivity.service;
+
+import com.google.cloud.Timestamp;
+import com.productivity.config.AppProperties;
+import com.productivity.dto.StreakRecomputeStatusDTO;
+import com.productivity.model.Habit;
+import com.productivity.model.HabitLog;
+import com.productivity.repository.HabitLogRepository;
+import com.productivity.repository.HabitRepository;
+import com.productivity.repository.HabitStatsRepository;
+import com.productivity.repository.UserRepository;
+import com.productivity.repository.Versioned;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StreakRecomputeJobTest {
+
+    private static final Timestamp READ_AT = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 0);
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final HabitRepository habitRepository = mock(HabitRepository.class);
+    private final HabitLogRepository habitLogRepository = mock(HabitLogRepository.class);
+    private final HabitStatsRepository habitStatsRepository = mock(HabitStatsRepository.class);
+    private StreakRecomputeJob job;
+
+    private final List<HabitLog> logs = List.of(
+            log(LocalDate.now().minusDays(2)), log(LocalDate.now().minusDays(1)), log(LocalDate.now()));
+    private Habit drifted;
+
+    @BeforeEach
+    void setUp() {
+        drifted = habit("drifted");
+        drifted.setCurrentStreak(5);
+        drifted.setLongestStreak(5);
+        drifted.setLastCompletedDate(LocalDate.now().minusDays(1).toString());
+        Habit inSync = StreakRecomputeJob.replay("user-1", habit("in-sync"), logs);
+
+        when(userRepository.findUidPageAsync(isNull(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(List.of("user-1", "user-2")));
+        when(userRepository.findUidPageAsync(eq("user-2"), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        when(habitRepository.findAllVersionedAsync("user-1")).thenReturn(CompletableFuture.completedFuture(
+                List.of(new Versioned<>(drifted, READ_AT), new Versioned<>(inSync, READ_AT))));
+        when(habitRepository.findAllVersionedAsync("user-2"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("unavailable")));
+        when(habitLogRepository.findByDateRangeAsync(eq("user-1"), anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(logs));
+        when(habitStatsRepository.findVersionedAsync("user-1"))
+                .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        job = new StreakRecomputeJob(userRepository, habitRepository, habitLogRepository, habitStatsRepository,
+                new AppProperties());
+    }
+
+    @Test
+    void dryRunReportsTheDiffWithoutWriting() throws InterruptedException {
+        job.start(true);
+        StreakRecomputeStatusDTO status = finish();
+
+        assertEquals("completed", status.getState());
+        assertEquals(2, status.getUsersScanned());
+        assertEquals(1, status.getUsersFailed());
+        assertEquals(2, status.getHabitsScanned());
+        assertEquals(1, status.getHabitsDrifted());
+        assertEquals(0, status.getHabitsCorrected());
+
+        assertEquals(1, status.getDiffs().size());
+        StreakRecomputeStatusDTO.StreakDiffDTO diff = status.getDiffs().get(0);
+        assertEquals("user-1", diff.getUserId());
+        assertEquals("drifted", diff.getHabitId());
+        assertEquals(5, diff.getCurrentStreak());
+        assertEquals(3, diff.getExpectedCurrentStreak());
+        assertEquals(5, diff.getLongestStreak());
+        assertEquals(3, diff.getExpectedLongestStreak());
+        assertEquals(LocalDate.now().toString(), diff.getExpectedLastCompletedDate());
+
+        verify(habitRepository, never()).updateStreaksIfUnchangedAsync(anyString(), any(), any());
+        verify(habitStatsRepository, never()).findVersionedAsync(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void correctionIsWrittenGuardedByTheTimeItWasRead() throws InterruptedException {
+        when(habitRepository.updateStreaksIfUnchangedAsync(eq("user-1"), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        job.start(false);
+        StreakRecomputeStatusDTO status = finish();
+
+        assertEquals(1, status.getHabitsCorrected());
+        assertEquals(0, status.getHabitsSkipped());
+        ArgumentCaptor<List<Versioned<Habit>>> written = ArgumentCaptor.forClass(List.class);
+        verify(habitRepository).updateStreaksIfUnchangedAsync(eq("user-1"), written.capture(), any());
+        assertEquals(1, written.getValue().size());
+        Versioned<Habit> update = written.getValue().get(0);
+        assertSame(READ_AT, update.getUpdateTime());
+        assertEquals("drifted", update.getValue().getId());
+        assertEquals(3, update.getValue().getCurrentStreak());
+    }
+
+    @Test
+    void correctionThatFailsToCommitIsSkipped() throws InterruptedException {
+        when(habitRepository.updateStreaksIfUnchangedAsync(eq("user-1"), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("changed since scan")));
+
+        job.start(false);
+        StreakRecomputeStatusDTO status = finish();
+
+        assertEquals("completed", status.getState());
+        assertEquals(0, status.getHabitsCorrected());
+        assertEquals(1, status.getHabitsSkipped());
+    }
+
+    private StreakRecomputeStatusDTO finish() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        StreakRecomputeStatusDTO status = job.getStatus().orElseThrow();
+        while ("running".equals(status.getState()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = job.getStatus().orElseThrow();
+        }
+        assertTrue(status.getFinishedAt() != null, "job finished");
+        return status;
+    }
+
+    private static Habit habit(String id) {
+        Habit habit = new Habit();
+        habit.setId(id);
+        habit.setUserId("user-1");
+        habit.setFrequency("daily");
+        return habit;
+    }
+
+    private static HabitLog log(LocalDate day) {
+        HabitLog log = new HabitLog();
+        log.setDate(day.toString());
+        log.setCompleted(true);
+        return log;
+    }
+}
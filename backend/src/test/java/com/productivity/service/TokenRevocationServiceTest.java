@@ -0,0 +1,110 @@
+package com.productivity.service;
+
+import com.google.cloud.firestore.ListenerRegistration;
+import com.productivity.config.AppProperties;
+import com.productivity.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationServiceTest {
+
+    private static final Instant EXPIRES_AT = Instant.now().plus(7, ChronoUnit.DAYS);
+
+    private final RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+    private TokenRevocationService service;
+    private BiConsumer<String, Instant> onRevoked;
+    private Runnable onFirstSnapshot;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ArgumentCaptor<BiConsumer<String, Instant>> revokedCaptor = ArgumentCaptor.forClass(BiConsumer.class);
+        ArgumentCaptor<Runnable> loadedCaptor = ArgumentCaptor.forClass(Runnable.class);
+        when(repository.listenActive(revokedCaptor.capture(), loadedCaptor.capture()))
+                .thenReturn(mock(ListenerRegistration.class));
+        service = new TokenRevocationService(repository, new AppProperties());
+        onRevoked = revokedCaptor.getValue();
+        onFirstSnapshot = loadedCaptor.getValue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void tokenIdCanBeConsumedOnce() throws Exception {
+        onFirstSnapshot.run();
+        when(repository.createIfAbsent("jti-1", TokenRevocationService.KIND_TOKEN, EXPIRES_AT)).thenReturn(true);
+
+        assertTrue(service.consume("jti-1", EXPIRES_AT));
+        // The replay is caught in memory, without another write or any read
+        assertFalse(service.consume("jti-1", EXPIRES_AT));
+        verify(repository, times(1)).createIfAbsent(anyString(), anyString(), any());
+        verify(repository, never()).isRevoked(anyString());
+    }
+
+    @Test
+    void tokenIdSpentOnAnotherInstanceIsReuse() throws Exception {
+        onFirstSnapshot.run();
+        when(repository.createIfAbsent("jti-1", TokenRevocationService.KIND_TOKEN, EXPIRES_AT)).thenReturn(false);
+
+        assertFalse(service.consume("jti-1", EXPIRES_AT));
+        assertTrue(service.isRevoked("jti-1"));
+    }
+
+    @Test
+    void revokedFamilyIsVisibleImmediatelyAndPersisted() throws Exception {
+        onFirstSnapshot.run();
+
+        service.revoke("family-1", TokenRevocationService.KIND_FAMILY, EXPIRES_AT);
+
+        assertTrue(service.isRevoked("family-1"));
+        assertFalse(service.isRevoked("family-2"));
+        verify(repository).save("family-1", TokenRevocationService.KIND_FAMILY, EXPIRES_AT);
+    }
+
+    @Test
+    void revocationsFromOtherInstancesArriveThroughTheListener() throws Exception {
+        onRevoked.accept("family-1", EXPIRES_AT);
+        onFirstSnapshot.run();
+
+        assertTrue(service.isRevoked("family-1"));
+        verify(repository, never()).isRevoked(anyString());
+    }
+
+    @Test
+    void expiredRevocationNoLongerCounts() throws Exception {
+        onRevoked.accept("family-1", Instant.now().minusSeconds(1));
+        onFirstSnapshot.run();
+
+        assertFalse(service.isRevoked("family-1"));
+    }
+
+    @Test
+    void checksFallBackToFirestoreUntilTheListIsLoaded() throws Exception {
+        when(repository.isRevoked("family-1")).thenReturn(true);
+
+        assertTrue(service.isRevoked("family-1"));
+        assertFalse(service.isRevoked("family-2"));
+
+        onFirstSnapshot.run();
+        assertFalse(service.isRevoked("family-1"));
+    }
+}